@@ -0,0 +1,38 @@
+plugins {
+    java
+    id("me.champeau.jmh") version("0.7.2")
+}
+
+java {
+    toolchain {
+        languageVersion.set(JavaLanguageVersion.of(17))
+    }
+}
+
+dependencies {
+    // not part of the .modl: benchmarks run the common code against an in-process agent on loopback
+    implementation(project(":common"))
+    implementation(project(":gateway"))
+    implementation("com.inductiveautomation.ignitionsdk:ignition-common:${rootProject.extra["sdk_version"]}")
+    implementation("com.inductiveautomation.ignitionsdk:gateway-api:${rootProject.extra["sdk_version"]}")
+    implementation("org.snmp4j:snmp4j:3.7.8")
+}
+
+jmh {
+    warmupIterations.set(2)
+    iterations.set(5)
+    fork.set(1)
+    profilers.add("gc")
+    // ./gradlew :benchmarks:jmh -Pjmh.includes=GetBenchmark
+    project.findProperty("jmh.includes")?.let { includes.add(it.toString()) }
+}
+
+// ./gradlew :benchmarks:loadTest --args="--devices=1000 --scenario=walk --latencyMs=20 --jitterMs=10"
+tasks.register<JavaExec>("loadTest") {
+    group = "verification"
+    description = "Runs a load scenario against simulated devices and reports throughput and resource use."
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("io.cursor.snmp.benchmarks.LoadHarness")
+    // one listen thread per simulated device
+    jvmArgs("-Xss256k")
+}
@@ -0,0 +1,19 @@
+package io.cursor.snmp.benchmarks;
+
+final class Benchmarks {
+
+    private Benchmarks() {
+    }
+
+    /** Fails the trial setup when the module answers with an {@code [Xnnn] Error:} row instead of data. */
+    static void check(String[] result) {
+        if (result == null || result.length == 0) {
+            throw new IllegalStateException("empty result from the stub agent");
+        }
+        for (String row : result) {
+            if (row != null && row.startsWith("[") && row.contains("] Error:")) {
+                throw new IllegalStateException("stub agent call failed: " + row);
+            }
+        }
+    }
+}
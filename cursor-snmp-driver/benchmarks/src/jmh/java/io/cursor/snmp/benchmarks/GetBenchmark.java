@@ -0,0 +1,63 @@
+package io.cursor.snmp.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import io.cursor.snmp.common.CursorSNMPDriverModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * {@code snmpGet} (v2c) against the loopback {@link StubAgent}: list size from a single OID up to lists that are
+ * split into several PDUs, on one thread and with 16 callers sharing the community session.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class GetBenchmark {
+
+    @Param({ "1", "10", "60", "200" })
+    public int oidCount;
+
+    private StubAgent agent;
+    private String[] oids;
+    private String[] params;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        agent = new StubAgent(StubAgent.standardMib(Math.max(1, oidCount / 10 + 1)), 4);
+        oids = new String[oidCount];
+        for (int i = 0; i < oidCount; i++) {
+            oids[i] = StubAgent.column(i % 10 + 1, i / 10 + 1).toDottedString();
+        }
+        params = new String[] { "public", "timeout=2000", "retry=0" };
+        Benchmarks.check(get());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        agent.close();
+        CursorSNMPDriverModule.shutdown();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String[] get() {
+        return CursorSNMPDriverModule.snmpGet("127.0.0.1", agent.getPort(), oids, params);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public String[] getContended() {
+        return CursorSNMPDriverModule.snmpGet("127.0.0.1", agent.getPort(), oids, params);
+    }
+}
@@ -0,0 +1,89 @@
+package io.cursor.snmp.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import io.cursor.snmp.common.CursorSNMPDriverModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.snmp4j.smi.OID;
+
+/**
+ * {@code snmpGetV3}/{@code snmpWalkV3} against the stub at each security level (1 noAuthNoPriv, 2 authNoPriv SHA,
+ * 3 authPriv SHA/AES128), on one thread and with 16 callers sharing the pooled session.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class V3Benchmark {
+    private static final int AUTH_SHA = 2;
+    private static final int PRIV_AES128 = 2;
+
+    @Param({ "1", "2", "3" })
+    public int authLevel;
+
+    @Param({ "10" })
+    public int oidCount;
+
+    private StubAgent agent;
+    private String user;
+    private String[] oids;
+    private String root;
+    private String[] params;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        agent = new StubAgent(StubAgent.standardMib(100), 4);
+        user = authLevel == 3 ? StubAgent.PRIV_USER : authLevel == 2 ? StubAgent.AUTH_USER : StubAgent.NOAUTH_USER;
+        oids = new String[oidCount];
+        for (int i = 0; i < oidCount; i++) {
+            oids[i] = StubAgent.column(i % 10 + 1, i / 10 + 1).toDottedString();
+        }
+        root = new OID(StubAgent.IF_ENTRY.getValue(), 2).toDottedString();
+        params = new String[] { "timeout=2000", "retry=0" };
+        Benchmarks.check(get());
+        Benchmarks.check(walk());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        agent.close();
+        CursorSNMPDriverModule.shutdown();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String[] get() {
+        return CursorSNMPDriverModule.snmpGetV3("127.0.0.1", agent.getPort(), oids, authLevel, user,
+                StubAgent.PASSWORD, AUTH_SHA, PRIV_AES128, params);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public String[] getContended() {
+        return get();
+    }
+
+    /** Walks ifDescr (100 rows). */
+    @Benchmark
+    @Threads(1)
+    public String[] walk() {
+        return CursorSNMPDriverModule.snmpWalkV3("127.0.0.1", agent.getPort(), root, authLevel, user,
+                StubAgent.PASSWORD, AUTH_SHA, PRIV_AES128, params);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public String[] walkContended() {
+        return walk();
+    }
+}
@@ -0,0 +1,69 @@
+package io.cursor.snmp.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import io.cursor.snmp.common.CursorSNMPDriverModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * {@code snmpWalk} (v2c) of the stub's interface table: 10 rows (100 varbinds) up to 10000 rows (100000 varbinds),
+ * with GETBULK at the default sizing and forced GETNEXT.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class WalkBenchmark {
+
+    @Param({ "10", "1000", "10000" })
+    public int rows;
+
+    @Param({ "adaptive", "0" })
+    public String maxRepetitions;
+
+    private StubAgent agent;
+    private String root;
+    private String[] params;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        agent = new StubAgent(StubAgent.standardMib(rows), 4);
+        root = StubAgent.IF_ENTRY.toDottedString();
+        params = "adaptive".equals(maxRepetitions)
+                ? new String[] { "public", "timeout=5000", "retry=0" }
+                : new String[] { "public", "timeout=5000", "retry=0", "maxRepetitions=" + maxRepetitions };
+        String[] first = walk();
+        Benchmarks.check(first);
+        if (first.length != rows * 10) {
+            throw new IllegalStateException("walk returned " + first.length + " rows, expected " + rows * 10);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        agent.close();
+        CursorSNMPDriverModule.shutdown();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String[] walk() {
+        return CursorSNMPDriverModule.snmpWalk("127.0.0.1", agent.getPort(), root, params);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String[] walkContended() {
+        return CursorSNMPDriverModule.snmpWalk("127.0.0.1", agent.getPort(), root, params);
+    }
+}
@@ -0,0 +1,302 @@
+package io.cursor.snmp.benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.inductiveautomation.ignition.common.Dataset;
+import io.cursor.snmp.common.CursorSNMPDriverModule;
+import io.cursor.snmp.common.FunctionInterface;
+import io.cursor.snmp.common.SnmpStats;
+import io.cursor.snmp.gateway.BenchmarkModules;
+import io.cursor.snmp.gateway.GatewayScriptModule;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.Variable;
+
+/**
+ * Load scenarios against a {@link Simulator}. Calls go through the gateway RPC implementation invoked in-process
+ * ({@code --path=direct}: what Vision clients reach, without the RPC serialization or network hop) or the gateway
+ * script module ({@code --path=script}), and the run reports throughput, latency percentiles, peak thread and file
+ * descriptor counts and heap growth.
+ * <p>
+ * Options ({@code --key=value}): {@code devices} (100), {@code walkFiles} (comma-separated recorded walks; default
+ * a generated 50-row interface table), {@code latencyMs}, {@code jitterMs}, {@code loss} (percent),
+ * {@code tooBigAbove} (varbinds), {@code scenario} ({@code get}, {@code walk}, {@code getMany}, {@code getV3},
+ * {@code walkV3}), {@code path}, {@code concurrency} (64), {@code durationSec} (30), {@code oids} (10),
+ * {@code walkRoot}, {@code authLevel} (3), {@code timeout} (1000), {@code retry} (1) and {@code simThreads} (4).
+ */
+public final class LoadHarness {
+    private static final String HOST = "127.0.0.1";
+    private static final int AUTH_SHA = 2;
+    private static final int PRIV_AES128 = 2;
+    private static final int GET_MANY_BATCH = 100;
+
+    private LoadHarness() {
+    }
+
+    private interface Operation {
+        /** Runs one call against device {@code index}; returns {@code false} when the module reported an error. */
+        boolean run(int index);
+    }
+
+    /** Growable primitive list so recording a latency does not allocate per sample. */
+    private static final class Samples {
+        long[] values = new long[1 << 16];
+        int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int devices = intOption(options, "devices", 100);
+        int concurrency = intOption(options, "concurrency", 64);
+        int durationSec = intOption(options, "durationSec", 30);
+        String scenario = options.getOrDefault("scenario", "get");
+        String path = options.getOrDefault("path", "direct");
+
+        List<NavigableMap<OID, Variable>> mibs = new ArrayList<>();
+        String walkFiles = options.get("walkFiles");
+        if (walkFiles == null || walkFiles.isEmpty()) {
+            mibs.add(StubAgent.standardMib(50));
+        } else {
+            for (String file : walkFiles.split(",")) {
+                mibs.add(WalkFiles.load(Paths.get(file.trim())));
+            }
+        }
+        Simulator.Behaviour behaviour = new Simulator.Behaviour()
+                .latency(intOption(options, "latencyMs", 0), intOption(options, "jitterMs", 0))
+                .loss(Double.parseDouble(options.getOrDefault("loss", "0")))
+                .tooBigAbove(intOption(options, "tooBigAbove", 0));
+
+        System.out.printf("Starting %d simulated devices...%n", devices);
+        try (Simulator simulator = new Simulator(mibs, devices, intOption(options, "basePort", 0), behaviour,
+                intOption(options, "simThreads", 4))) {
+            int[] ports = simulator.getPorts();
+            Operation operation = operation(scenario, path, ports, mibs.get(0), options);
+
+            System.gc();
+            long heapBefore = usedHeap();
+            int threadsBefore = Thread.activeCount();
+            long fdsBefore = openFileDescriptors();
+
+            AtomicLong next = new AtomicLong();
+            AtomicLong errors = new AtomicLong();
+            AtomicInteger peakThreads = new AtomicInteger(threadsBefore);
+            AtomicLong peakFds = new AtomicLong(fdsBefore);
+            List<Samples> perWorker = new ArrayList<>();
+            ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+            sampler.scheduleAtFixedRate(() -> {
+                peakThreads.accumulateAndGet(Thread.activeCount(), Math::max);
+                peakFds.accumulateAndGet(openFileDescriptors(), Math::max);
+            }, 0, 1, TimeUnit.SECONDS);
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(durationSec);
+            ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+            long started = System.nanoTime();
+            for (int w = 0; w < concurrency; w++) {
+                Samples samples = new Samples();
+                perWorker.add(samples);
+                workers.execute(() -> {
+                    while (System.nanoTime() < deadline) {
+                        int index = (int) (next.getAndIncrement() % ports.length);
+                        long t0 = System.nanoTime();
+                        boolean ok;
+                        try {
+                            ok = operation.run(index);
+                        } catch (RuntimeException e) {
+                            ok = false;
+                        }
+                        samples.add(System.nanoTime() - t0);
+                        if (!ok) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            workers.shutdown();
+            workers.awaitTermination(durationSec + 120L, TimeUnit.SECONDS);
+            long elapsed = System.nanoTime() - started;
+            sampler.shutdownNow();
+
+            System.gc();
+            long heapAfter = usedHeap();
+            report(scenario, path, devices, concurrency, elapsed, perWorker, errors.get(), threadsBefore,
+                    peakThreads.get(), fdsBefore, peakFds.get(), heapBefore, heapAfter, simulator);
+        } finally {
+            CursorSNMPDriverModule.shutdown();
+        }
+    }
+
+    private static Operation operation(
+            String scenario,
+            String path,
+            int[] ports,
+            NavigableMap<OID, Variable> mib,
+            Map<String, String> options) {
+        boolean direct = !"script".equals(path);
+        FunctionInterface functions = BenchmarkModules.functions();
+        GatewayScriptModule script = BenchmarkModules.scriptModule();
+
+        String[] oids = mib.keySet().stream()
+                .limit(intOption(options, "oids", 10))
+                .map(OID::toDottedString)
+                .toArray(String[]::new);
+        String walkRoot = options.getOrDefault("walkRoot",
+                mib.containsKey(StubAgent.column(1, 1)) ? StubAgent.IF_ENTRY.toDottedString() : "1.3.6.1.2.1.1");
+        String timeout = "timeout=" + intOption(options, "timeout", 1000);
+        String retry = "retry=" + intOption(options, "retry", 1);
+        String[] params = { "public", timeout, retry };
+        String[] v3Params = { timeout, retry };
+        int authLevel = intOption(options, "authLevel", 3);
+        String user = authLevel == 3 ? StubAgent.PRIV_USER : authLevel == 2 ? StubAgent.AUTH_USER : StubAgent.NOAUTH_USER;
+        String pass = StubAgent.PASSWORD;
+
+        switch (scenario) {
+            case "get":
+                return i -> ok(direct
+                        ? functions.get(HOST, ports[i], oids, params)
+                        : script.get(HOST, ports[i], oids, params));
+            case "walk":
+                return i -> ok(direct
+                        ? functions.walk(HOST, ports[i], walkRoot, params)
+                        : script.walk(HOST, ports[i], walkRoot, params));
+            case "getV3":
+                return i -> ok(direct
+                        ? functions.getV3(HOST, ports[i], oids, authLevel, user, pass, AUTH_SHA, PRIV_AES128, v3Params)
+                        : script.getV3(HOST, ports[i], oids, authLevel, user, pass, AUTH_SHA, PRIV_AES128, v3Params));
+            case "walkV3":
+                return i -> ok(direct
+                        ? functions.walkV3(HOST, ports[i], walkRoot, authLevel, user, pass, AUTH_SHA, PRIV_AES128, v3Params)
+                        : script.walkV3(HOST, ports[i], walkRoot, authLevel, user, pass, AUTH_SHA, PRIV_AES128, v3Params));
+            case "getMany":
+                return i -> {
+                    String[] targets = new String[Math.min(GET_MANY_BATCH, ports.length)];
+                    for (int t = 0; t < targets.length; t++) {
+                        targets[t] = HOST + ":" + ports[(i + t) % ports.length];
+                    }
+                    Dataset result = direct
+                            ? functions.getMany(targets, oids, params)
+                            : script.getMany(targets, oids, params);
+                    int status = result.getColumnIndex("status");
+                    for (int row = 0; row < result.getRowCount(); row++) {
+                        if (!"OK".equals(result.getValueAt(row, status))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                };
+            default:
+                throw new IllegalArgumentException("unknown scenario: " + scenario);
+        }
+    }
+
+    private static boolean ok(String[] result) {
+        for (String row : result) {
+            if (row != null && row.startsWith("[") && row.contains("] Error:")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void report(
+            String scenario,
+            String path,
+            int devices,
+            int concurrency,
+            long elapsedNanos,
+            List<Samples> perWorker,
+            long errors,
+            int threadsBefore,
+            int peakThreads,
+            long fdsBefore,
+            long peakFds,
+            long heapBefore,
+            long heapAfter,
+            Simulator simulator) {
+        int total = 0;
+        for (Samples s : perWorker) {
+            total += s.size;
+        }
+        long[] all = new long[total];
+        int pos = 0;
+        for (Samples s : perWorker) {
+            System.arraycopy(s.values, 0, all, pos, s.size);
+            pos += s.size;
+        }
+        Arrays.sort(all);
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("%nScenario %s via %s: %d devices, %d concurrent callers, %.1f s%n",
+                scenario, path, devices, concurrency, seconds);
+        System.out.printf("  operations  %d (%.1f/s), errors %d (%.2f%%)%n",
+                total, total / seconds, errors, total == 0 ? 0.0 : errors * 100.0 / total);
+        System.out.printf("  latency ms  p50 %.2f  p95 %.2f  p99 %.2f  p99.9 %.2f  max %.2f%n",
+                percentile(all, 0.50), percentile(all, 0.95), percentile(all, 0.99), percentile(all, 0.999),
+                all.length == 0 ? 0.0 : all[all.length - 1] / 1e6);
+        System.out.printf("  threads     %d before, %d peak (%d simulator listen threads)%n",
+                threadsBefore, peakThreads, devices);
+        System.out.printf("  open fds    %d before, %d peak (%d simulator sockets)%n", fdsBefore, peakFds, devices);
+        System.out.printf("  heap        %.1f MB before, %.1f MB after (growth %.1f MB)%n",
+                heapBefore / 1048576.0, heapAfter / 1048576.0, (heapAfter - heapBefore) / 1048576.0);
+        System.out.printf("  module      %d requests, %d timeouts, %d retries%n",
+                SnmpStats.totalRequests(), SnmpStats.totalTimeouts(), SnmpStats.totalRetries());
+        System.out.printf("  simulator   %d answered, %d lost, %d tooBig%n",
+                simulator.getAnswered(), simulator.getLost(), simulator.getTooBig());
+    }
+
+    private static double percentile(long[] sorted, double q) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(q * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long openFileDescriptors() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.UnixOperatingSystemMXBean) {
+            return ((com.sun.management.UnixOperatingSystemMXBean) os).getOpenFileDescriptorCount();
+        }
+        return -1;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.indexOf('=') > 2) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            } else {
+                throw new IllegalArgumentException("expected --key=value, got " + arg);
+            }
+        }
+        return options;
+    }
+
+    private static int intOption(Map<String, String> options, String key, int defaultValue) {
+        String value = options.get(key);
+        return value == null || value.isEmpty() ? defaultValue : Integer.parseInt(value);
+    }
+}
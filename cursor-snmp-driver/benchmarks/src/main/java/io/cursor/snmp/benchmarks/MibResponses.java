@@ -0,0 +1,126 @@
+package io.cursor.snmp.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+
+import org.snmp4j.CommandResponderEvent;
+import org.snmp4j.MessageException;
+import org.snmp4j.PDU;
+import org.snmp4j.mp.StatusInformation;
+import org.snmp4j.smi.Address;
+import org.snmp4j.smi.Null;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.Variable;
+import org.snmp4j.smi.VariableBinding;
+
+/**
+ * GET/GETNEXT/GETBULK answers from an in-memory MIB, shared by {@link StubAgent} and {@link Simulator}.
+ */
+final class MibResponses {
+    /** Upper bound on varbinds in one GETBULK response. */
+    private static final int MAX_BULK_VARBINDS = 1000;
+
+    private MibResponses() {
+    }
+
+    /** Builds the response for {@code request}; {@code null} leaves the request unanswered. */
+    static PDU answer(NavigableMap<OID, Variable> mib, PDU request, boolean v1) {
+        List<VariableBinding> out = new ArrayList<>();
+        int errorStatus = PDU.noError;
+        int errorIndex = 0;
+        switch (request.getType()) {
+            case PDU.GET:
+                for (int i = 0; i < request.size() && errorStatus == PDU.noError; i++) {
+                    OID oid = request.get(i).getOid();
+                    Variable value = mib.get(oid);
+                    if (value == null && v1) {
+                        errorStatus = PDU.noSuchName;
+                        errorIndex = i + 1;
+                    } else {
+                        out.add(new VariableBinding(oid, value == null ? Null.noSuchObject : value));
+                    }
+                }
+                break;
+            case PDU.GETNEXT:
+                for (int i = 0; i < request.size() && errorStatus == PDU.noError; i++) {
+                    Map.Entry<OID, Variable> next = mib.higherEntry(request.get(i).getOid());
+                    if (next == null && v1) {
+                        errorStatus = PDU.noSuchName;
+                        errorIndex = i + 1;
+                    } else if (next == null) {
+                        out.add(new VariableBinding(request.get(i).getOid(), Null.endOfMibView));
+                    } else {
+                        out.add(new VariableBinding(next.getKey(), next.getValue()));
+                    }
+                }
+                break;
+            case PDU.GETBULK:
+                bulk(mib, request, out);
+                break;
+            default:
+                return null;
+        }
+        PDU response = (PDU) request.clone();
+        response.setType(PDU.RESPONSE);
+        response.setErrorStatus(errorStatus);
+        response.setErrorIndex(errorIndex);
+        if (errorStatus == PDU.noError) {
+            response.setVariableBindings(out);
+        }
+        return response;
+    }
+
+    private static void bulk(NavigableMap<OID, Variable> mib, PDU request, List<VariableBinding> out) {
+        int nonRepeaters = Math.max(0, Math.min(request.getNonRepeaters(), request.size()));
+        for (int i = 0; i < nonRepeaters; i++) {
+            Map.Entry<OID, Variable> next = mib.higherEntry(request.get(i).getOid());
+            out.add(next == null
+                    ? new VariableBinding(request.get(i).getOid(), Null.endOfMibView)
+                    : new VariableBinding(next.getKey(), next.getValue()));
+        }
+        int repeaters = request.size() - nonRepeaters;
+        if (repeaters == 0) {
+            return;
+        }
+        OID[] cursor = new OID[repeaters];
+        for (int r = 0; r < repeaters; r++) {
+            cursor[r] = request.get(nonRepeaters + r).getOid();
+        }
+        int maxRepetitions = Math.max(1, request.getMaxRepetitions());
+        for (int rep = 0; rep < maxRepetitions && out.size() + repeaters <= MAX_BULK_VARBINDS; rep++) {
+            boolean allEnded = true;
+            for (int r = 0; r < repeaters; r++) {
+                Map.Entry<OID, Variable> next = cursor[r] == null ? null : mib.higherEntry(cursor[r]);
+                if (next == null) {
+                    out.add(new VariableBinding(cursor[r] == null ? new OID() : cursor[r], Null.endOfMibView));
+                    cursor[r] = null;
+                } else {
+                    out.add(new VariableBinding(next.getKey(), next.getValue()));
+                    cursor[r] = next.getKey();
+                    allEnded = false;
+                }
+            }
+            if (allEnded) {
+                break;
+            }
+        }
+    }
+
+    static <A extends Address> void respond(CommandResponderEvent<A> event, PDU response) {
+        try {
+            event.getMessageDispatcher().returnResponsePdu(
+                    event.getMessageProcessingModel(),
+                    event.getSecurityModel(),
+                    event.getSecurityName(),
+                    event.getSecurityLevel(),
+                    response,
+                    event.getMaxSizeResponsePDU(),
+                    event.getStateReference(),
+                    new StatusInformation());
+        } catch (MessageException e) {
+            // the client retries; nothing else to do in a stub
+        }
+    }
+}
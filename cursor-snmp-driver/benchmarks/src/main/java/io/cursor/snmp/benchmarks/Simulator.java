@@ -0,0 +1,219 @@
+package io.cursor.snmp.benchmarks;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.snmp4j.CommandResponder;
+import org.snmp4j.CommandResponderEvent;
+import org.snmp4j.MessageDispatcherImpl;
+import org.snmp4j.PDU;
+import org.snmp4j.Snmp;
+import org.snmp4j.TransportMapping;
+import org.snmp4j.mp.MPv1;
+import org.snmp4j.mp.MPv2c;
+import org.snmp4j.mp.MPv3;
+import org.snmp4j.mp.MessageProcessingModel;
+import org.snmp4j.smi.Address;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.TransportIpAddress;
+import org.snmp4j.smi.UdpAddress;
+import org.snmp4j.smi.Variable;
+import org.snmp4j.smi.VariableBinding;
+import org.snmp4j.transport.DefaultUdpTransportMapping;
+import org.snmp4j.util.MultiThreadedMessageDispatcher;
+import org.snmp4j.util.ThreadPool;
+
+/**
+ * Many simulated agents on loopback ports behind one SNMP4J session. Device {@code i} listens on its own UDP port
+ * and serves MIB {@code i % mibs.size()}; all devices accept any community and the {@link StubAgent} v3 users.
+ * <p>
+ * {@link Behaviour} adds per-response latency (with jitter; responses are scheduled, so slow devices do not hold
+ * dispatcher threads), random request loss, and a {@code tooBig} answer for requests with more than
+ * {@code tooBigAbove} varbinds or whose response would exceed it.
+ * <p>
+ * SNMP4J gives every UDP transport its own listen thread, so N devices cost N threads; run large simulations with
+ * a small thread stack ({@code -Xss256k}).
+ */
+public class Simulator implements CommandResponder, Closeable {
+
+    /** Network behaviour applied to every device. */
+    public static final class Behaviour {
+        long latencyMs;
+        long jitterMs;
+        double lossPercent;
+        int tooBigAbove;
+
+        public Behaviour latency(long latencyMs, long jitterMs) {
+            this.latencyMs = Math.max(0, latencyMs);
+            this.jitterMs = Math.max(0, jitterMs);
+            return this;
+        }
+
+        public Behaviour loss(double percent) {
+            this.lossPercent = Math.max(0, Math.min(100, percent));
+            return this;
+        }
+
+        /** 0 disables {@code tooBig}. */
+        public Behaviour tooBigAbove(int varbinds) {
+            this.tooBigAbove = Math.max(0, varbinds);
+            return this;
+        }
+    }
+
+    private final List<NavigableMap<OID, Variable>> mibs;
+    private final Behaviour behaviour;
+    private final Snmp snmp;
+    private final ThreadPool threadPool;
+    private final ScheduledExecutorService delays;
+    private final Map<Integer, NavigableMap<OID, Variable>> byPort = new ConcurrentHashMap<>();
+    private final int[] ports;
+    private final AtomicLong answered = new AtomicLong();
+    private final AtomicLong lost = new AtomicLong();
+    private final AtomicLong tooBig = new AtomicLong();
+
+    /**
+     * Starts {@code devices} agents on consecutive ports from {@code basePort}, or on free ports when
+     * {@code basePort} is 0.
+     */
+    public Simulator(
+            List<NavigableMap<OID, Variable>> mibs,
+            int devices,
+            int basePort,
+            Behaviour behaviour,
+            int threads) throws IOException {
+        if (mibs.isEmpty()) {
+            throw new IllegalArgumentException("at least one MIB is required");
+        }
+        this.mibs = new ArrayList<>(mibs);
+        this.behaviour = behaviour;
+        threadPool = ThreadPool.create("simulator", Math.max(1, threads));
+        MultiThreadedMessageDispatcher dispatcher =
+                new MultiThreadedMessageDispatcher(threadPool, new MessageDispatcherImpl());
+        dispatcher.addMessageProcessingModel(new MPv1());
+        dispatcher.addMessageProcessingModel(new MPv2c());
+        dispatcher.addMessageProcessingModel(new MPv3(StubAgent.benchmarkUsm()));
+        snmp = new Snmp(dispatcher);
+        snmp.addCommandResponder(this);
+        delays = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "simulator-delay");
+            t.setDaemon(true);
+            return t;
+        });
+
+        ports = new int[devices];
+        try {
+            for (int i = 0; i < devices; i++) {
+                DefaultUdpTransportMapping transport = new DefaultUdpTransportMapping(
+                        new UdpAddress("127.0.0.1/" + (basePort > 0 ? basePort + i : 0)));
+                snmp.addTransportMapping(transport);
+                transport.listen();
+                ports[i] = transport.getListenAddress().getPort();
+                byPort.put(ports[i], this.mibs.get(i % this.mibs.size()));
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public int[] getPorts() {
+        return ports.clone();
+    }
+
+    public long getAnswered() {
+        return answered.get();
+    }
+
+    public long getLost() {
+        return lost.get();
+    }
+
+    public long getTooBig() {
+        return tooBig.get();
+    }
+
+    @Override
+    public <A extends Address> void processPdu(CommandResponderEvent<A> event) {
+        PDU request = event.getPDU();
+        NavigableMap<OID, Variable> mib = mibFor(event.getTransportMapping());
+        if (request == null || mib == null) {
+            return;
+        }
+        event.setProcessed(true);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (behaviour.lossPercent > 0 && random.nextDouble() * 100.0 < behaviour.lossPercent) {
+            lost.incrementAndGet();
+            return;
+        }
+        PDU response;
+        if (behaviour.tooBigAbove > 0 && request.size() > behaviour.tooBigAbove) {
+            response = tooBig(request);
+        } else {
+            boolean v1 = event.getMessageProcessingModel() == MessageProcessingModel.MPv1;
+            response = MibResponses.answer(mib, request, v1);
+            if (response == null) {
+                return;
+            }
+            if (behaviour.tooBigAbove > 0 && response.size() > behaviour.tooBigAbove
+                    && request.getType() != PDU.GETBULK) {
+                response = tooBig(request);
+            } else if (behaviour.tooBigAbove > 0 && response.size() > behaviour.tooBigAbove) {
+                // agents truncate bulk responses rather than failing them
+                List<VariableBinding> truncated =
+                        new ArrayList<>(response.getVariableBindings().subList(0, behaviour.tooBigAbove));
+                response.setVariableBindings(truncated);
+            }
+        }
+        if (response.getErrorStatus() == PDU.tooBig) {
+            tooBig.incrementAndGet();
+        }
+        long delay = behaviour.latencyMs + (behaviour.jitterMs > 0 ? random.nextLong(behaviour.jitterMs + 1) : 0);
+        PDU reply = response;
+        if (delay == 0) {
+            MibResponses.respond(event, reply);
+            answered.incrementAndGet();
+        } else {
+            delays.schedule(() -> {
+                MibResponses.respond(event, reply);
+                answered.incrementAndGet();
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private NavigableMap<OID, Variable> mibFor(TransportMapping<?> transport) {
+        if (transport == null || !(transport.getListenAddress() instanceof TransportIpAddress)) {
+            return null;
+        }
+        return byPort.get(((TransportIpAddress) transport.getListenAddress()).getPort());
+    }
+
+    private static PDU tooBig(PDU request) {
+        PDU response = (PDU) request.clone();
+        response.setType(PDU.RESPONSE);
+        response.setErrorStatus(PDU.tooBig);
+        response.setErrorIndex(0);
+        response.setVariableBindings(new ArrayList<>());
+        return response;
+    }
+
+    @Override
+    public void close() throws IOException {
+        delays.shutdownNow();
+        try {
+            snmp.close();
+        } finally {
+            threadPool.stop();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package io.cursor.snmp.benchmarks;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.snmp4j.CommandResponder;
+import org.snmp4j.CommandResponderEvent;
+import org.snmp4j.MessageDispatcherImpl;
+import org.snmp4j.PDU;
+import org.snmp4j.Snmp;
+import org.snmp4j.mp.MPv1;
+import org.snmp4j.mp.MPv2c;
+import org.snmp4j.mp.MPv3;
+import org.snmp4j.mp.MessageProcessingModel;
+import org.snmp4j.security.AuthSHA;
+import org.snmp4j.security.PrivAES128;
+import org.snmp4j.security.SecurityProtocols;
+import org.snmp4j.security.USM;
+import org.snmp4j.security.UsmUser;
+import org.snmp4j.smi.Address;
+import org.snmp4j.smi.Counter32;
+import org.snmp4j.smi.Counter64;
+import org.snmp4j.smi.Gauge32;
+import org.snmp4j.smi.Integer32;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.TimeTicks;
+import org.snmp4j.smi.UdpAddress;
+import org.snmp4j.smi.Variable;
+import org.snmp4j.transport.DefaultUdpTransportMapping;
+import org.snmp4j.util.MultiThreadedMessageDispatcher;
+import org.snmp4j.util.ThreadPool;
+
+/**
+ * Minimal SNMP agent on a loopback port, answering GET, GETNEXT and GETBULK from an in-memory MIB for v1, v2c
+ * (any community) and v3. The v3 users {@link #NOAUTH_USER}, {@link #AUTH_USER} (SHA) and {@link #PRIV_USER}
+ * (SHA/AES128) all use {@link #PASSWORD}; in the module's codes that is {@code authProt=2}, {@code privProt=2}.
+ */
+public class StubAgent implements CommandResponder, Closeable {
+    public static final String NOAUTH_USER = "noAuthUser";
+    public static final String AUTH_USER = "authUser";
+    public static final String PRIV_USER = "privUser";
+    public static final String PASSWORD = "benchmarkpass";
+
+    /** Root of the generated interface table ({@code ifTable.ifEntry}). */
+    public static final OID IF_ENTRY = new OID("1.3.6.1.2.1.2.2.1");
+    public static final OID SYSTEM = new OID("1.3.6.1.2.1.1");
+
+    private final NavigableMap<OID, Variable> mib;
+    private final Snmp snmp;
+    private final ThreadPool threadPool;
+    private final int port;
+
+    public StubAgent(NavigableMap<OID, Variable> mib, int threads) throws IOException {
+        this(mib, threads, 0);
+    }
+
+    /** Starts the agent on {@code 127.0.0.1:port}; port 0 picks a free port (see {@link #getPort()}). */
+    public StubAgent(NavigableMap<OID, Variable> mib, int threads, int port) throws IOException {
+        this.mib = mib;
+        USM usm = benchmarkUsm();
+        threadPool = ThreadPool.create("stub-agent", Math.max(1, threads));
+        MultiThreadedMessageDispatcher dispatcher =
+                new MultiThreadedMessageDispatcher(threadPool, new MessageDispatcherImpl());
+        dispatcher.addMessageProcessingModel(new MPv1());
+        dispatcher.addMessageProcessingModel(new MPv2c());
+        dispatcher.addMessageProcessingModel(new MPv3(usm));
+
+        DefaultUdpTransportMapping transport = new DefaultUdpTransportMapping(new UdpAddress("127.0.0.1/" + port));
+        snmp = new Snmp(dispatcher, transport);
+        snmp.addCommandResponder(this);
+        snmp.listen();
+        this.port = transport.getListenAddress().getPort();
+    }
+
+    /** A USM with a fresh local engine ID and the three benchmark users. */
+    static USM benchmarkUsm() {
+        SecurityProtocols.getInstance().addDefaultProtocols();
+        USM usm = new USM(SecurityProtocols.getInstance(), new OctetString(MPv3.createLocalEngineID()), 0);
+        OctetString engineId = usm.getLocalEngineID();
+        OctetString password = new OctetString(PASSWORD);
+        usm.addUser(new OctetString(NOAUTH_USER), engineId,
+                new UsmUser(new OctetString(NOAUTH_USER), null, null, null, null));
+        usm.addUser(new OctetString(AUTH_USER), engineId,
+                new UsmUser(new OctetString(AUTH_USER), AuthSHA.ID, password, null, null));
+        usm.addUser(new OctetString(PRIV_USER), engineId,
+                new UsmUser(new OctetString(PRIV_USER), AuthSHA.ID, password, PrivAES128.ID, password));
+        return usm;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * A MIB with the system group and an interface table of {@code ifRows} rows by 10 columns (mixed Integer32,
+     * OctetString, Gauge32, Counter32 and Counter64 values).
+     */
+    public static NavigableMap<OID, Variable> standardMib(int ifRows) {
+        NavigableMap<OID, Variable> mib = new ConcurrentSkipListMap<>();
+        mib.put(new OID(SYSTEM.getValue(), new int[] { 1, 0 }), new OctetString("cursorSNMP stub agent"));
+        mib.put(new OID(SYSTEM.getValue(), new int[] { 2, 0 }), new OID("1.3.6.1.4.1.99999.1"));
+        mib.put(new OID(SYSTEM.getValue(), new int[] { 3, 0 }), new TimeTicks(123456L));
+        mib.put(new OID(SYSTEM.getValue(), new int[] { 4, 0 }), new OctetString("bench@localhost"));
+        mib.put(new OID(SYSTEM.getValue(), new int[] { 5, 0 }), new OctetString("stub"));
+        mib.put(new OID(SYSTEM.getValue(), new int[] { 6, 0 }), new OctetString("loopback"));
+        mib.put(new OID(SYSTEM.getValue(), new int[] { 7, 0 }), new Integer32(72));
+        for (int row = 1; row <= ifRows; row++) {
+            mib.put(column(1, row), new Integer32(row));
+            mib.put(column(2, row), new OctetString("eth" + row));
+            mib.put(column(3, row), new Integer32(6));
+            mib.put(column(4, row), new Integer32(1500));
+            mib.put(column(5, row), new Gauge32(1000000000L));
+            mib.put(column(6, row), new OctetString(new byte[] { 0, 0x1b, 0x21, 0, (byte) (row >> 8), (byte) row }));
+            mib.put(column(7, row), new Integer32(1));
+            mib.put(column(8, row), new Integer32(row % 7 == 0 ? 2 : 1));
+            mib.put(column(9, row), new Counter32(row * 1000L));
+            mib.put(column(10, row), new Counter64(row * 1000000L));
+        }
+        return mib;
+    }
+
+    /** {@code ifEntry.column.row} */
+    public static OID column(int column, int row) {
+        return new OID(IF_ENTRY.getValue(), new int[] { column, row });
+    }
+
+    @Override
+    public <A extends Address> void processPdu(CommandResponderEvent<A> event) {
+        PDU request = event.getPDU();
+        if (request == null) {
+            return;
+        }
+        boolean v1 = event.getMessageProcessingModel() == MessageProcessingModel.MPv1;
+        PDU response = MibResponses.answer(mib, request, v1);
+        if (response == null) {
+            return;
+        }
+        event.setProcessed(true);
+        MibResponses.respond(event, response);
+    }
+
+    @Override
+    public void close() throws IOException {
+        snmp.close();
+        threadPool.stop();
+    }
+}
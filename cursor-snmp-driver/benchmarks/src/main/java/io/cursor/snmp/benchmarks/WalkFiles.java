@@ -0,0 +1,115 @@
+package io.cursor.snmp.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.snmp4j.smi.Counter32;
+import org.snmp4j.smi.Counter64;
+import org.snmp4j.smi.Gauge32;
+import org.snmp4j.smi.Integer32;
+import org.snmp4j.smi.IpAddress;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.TimeTicks;
+import org.snmp4j.smi.Variable;
+
+/**
+ * Loads recorded walks into a MIB for the simulator. Two line formats are accepted:
+ * <ul>
+ * <li>net-snmp {@code snmpwalk -On} output: {@code .1.3.6.1.2.1.1.5.0 = STRING: "core-sw1"}, with the types
+ * INTEGER, STRING, Hex-STRING, OID, IpAddress, Counter32, Counter64, Gauge32 and Timeticks;</li>
+ * <li>this module's walk rows: {@code 1.3.6.1.2.1.1.5.0 = core-sw1}, where whole numbers become Integer32 and
+ * everything else OctetString.</li>
+ * </ul>
+ * Blank lines, {@code #} comments and continuation lines of multi-line strings are skipped.
+ */
+final class WalkFiles {
+
+    private WalkFiles() {
+    }
+
+    static NavigableMap<OID, Variable> load(Path file) throws IOException {
+        NavigableMap<OID, Variable> mib = new ConcurrentSkipListMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int eq = line.indexOf(" = ");
+                if (line.isEmpty() || line.startsWith("#") || eq <= 0) {
+                    continue;
+                }
+                String oid = line.substring(0, eq).trim();
+                if (oid.startsWith(".")) {
+                    oid = oid.substring(1);
+                }
+                if (!oid.matches("[0-9]+(\\.[0-9]+)*")) {
+                    continue;
+                }
+                Variable value = parseValue(line.substring(eq + 3).trim());
+                if (value != null) {
+                    mib.put(new OID(oid), value);
+                }
+            }
+        }
+        return mib;
+    }
+
+    private static Variable parseValue(String text) {
+        int colon = text.indexOf(": ");
+        String type = colon > 0 ? text.substring(0, colon) : "";
+        String value = colon > 0 ? text.substring(colon + 2).trim() : text;
+        try {
+            switch (type) {
+                case "INTEGER":
+                    return new Integer32(Integer.parseInt(leadingNumber(value)));
+                case "STRING":
+                    return new OctetString(unquote(value));
+                case "Hex-STRING":
+                    return OctetString.fromHexString(value.replace(" ", ""));
+                case "OID":
+                    return new OID(value.startsWith(".") ? value.substring(1) : value);
+                case "IpAddress":
+                    return new IpAddress(value);
+                case "Counter32":
+                    return new Counter32(Long.parseLong(value));
+                case "Counter64":
+                    return new Counter64(Long.parseUnsignedLong(value));
+                case "Gauge32":
+                    return new Gauge32(Long.parseLong(leadingNumber(value)));
+                case "Timeticks":
+                    return new TimeTicks(Long.parseLong(value.substring(value.indexOf('(') + 1, value.indexOf(')'))));
+                case "":
+                    if (value.matches("-?[0-9]{1,9}")) {
+                        return new Integer32(Integer.parseInt(value));
+                    }
+                    return new OctetString(value);
+                default:
+                    // types the simulator does not model (Opaque, BITS, ...) are served as strings
+                    return new OctetString(value);
+            }
+        } catch (RuntimeException e) {
+            return new OctetString(value);
+        }
+    }
+
+    /** {@code up(1)} and {@code 1000 bits} style values carry the number in parentheses or first. */
+    private static String leadingNumber(String value) {
+        int open = value.indexOf('(');
+        if (open >= 0 && value.indexOf(')') > open) {
+            return value.substring(open + 1, value.indexOf(')'));
+        }
+        int space = value.indexOf(' ');
+        return space > 0 ? value.substring(0, space) : value;
+    }
+
+    private static String unquote(String value) {
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+}
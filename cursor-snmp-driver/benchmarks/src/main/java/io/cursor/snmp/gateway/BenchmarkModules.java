@@ -0,0 +1,22 @@
+package io.cursor.snmp.gateway;
+
+import io.cursor.snmp.common.FunctionInterface;
+
+/**
+ * Builds the gateway entry points for the load harness without a running gateway. The constructors are package-private
+ * in the module; this class shares their package so only the benchmarks can reach them.
+ */
+public final class BenchmarkModules {
+    private BenchmarkModules() {
+    }
+
+    /** The RPC implementation, called in-process: no serialization and no subscription or journal support. */
+    public static FunctionInterface functions() {
+        return new FunctionInterfaceImpl();
+    }
+
+    /** The gateway script module with its own poll engine and trap receiver. */
+    public static GatewayScriptModule scriptModule() {
+        return new GatewayScriptModule(new PollEngine(), new TrapReceiver());
+    }
+}
@@ -1,9 +1,15 @@
 package io.cursor.snmp.client;
 
+import java.util.concurrent.CompletableFuture;
+
 import com.inductiveautomation.ignition.client.gateway_interface.GatewayConnection;
+import com.inductiveautomation.ignition.common.Dataset;
 import io.cursor.snmp.common.AbstractScriptModule;
 import io.cursor.snmp.common.CursorSNMPDriverModule;
+import io.cursor.snmp.common.DeltaView;
 import io.cursor.snmp.common.FunctionInterface;
+import io.cursor.snmp.common.PackedResults;
+import org.python.core.PyObject;
 
 public class ClientScriptModule extends AbstractScriptModule {
 
@@ -13,6 +19,22 @@ public class ClientScriptModule extends AbstractScriptModule {
             FunctionInterface.class
     );
 
+    /**
+     * Large results travel in the compact encoding of {@link PackedResults} unless the client JVM is started with
+     * {@code -Dcursor.snmp.packedRpc=false}.
+     */
+    private static final boolean PACKED = !"false".equalsIgnoreCase(System.getProperty("cursor.snmp.packedRpc"));
+
+    private static final ClientSubscriptions subscriptions = new ClientSubscriptions(rpc);
+
+    /** Stops renewing subscriptions and drops the push listener; called when the client or designer hook shuts down. */
+    public static void shutdown() {
+        subscriptions.shutdown();
+    }
+
+    /** Last full result per delta query, rebuilt from the changed rows the gateway sends. */
+    private final DeltaView deltas = new DeltaView();
+
     @Override
     protected String[] getImpl(String addr, int port, String[] OIDS, String... params){
         return rpc.get(addr, port, OIDS, params);
@@ -25,11 +47,177 @@ public class ClientScriptModule extends AbstractScriptModule {
 
     @Override
     protected String[] walkImpl(String addr, int port, String startOID, String... params){
+        if (PACKED) {
+            return PackedResults.unpack(rpc.walkPacked(addr, port, startOID, params));
+        }
         return rpc.walk(addr, port, startOID, params);
     }
 
     @Override
     protected String[] walkImplV3(String addr, int port, String startOID, int authLevel, String user, String pass, int authProt, int privProt, String... params) {
+        if (PACKED) {
+            return PackedResults.unpack(
+                    rpc.walkV3Packed(addr, port, startOID, authLevel, user, pass, authProt, privProt, params));
+        }
     	return rpc.walkV3(addr, port, startOID, authLevel, user, pass, authProt, privProt, params);
     }
+
+    /**
+     * The RPC channel is request/response, so the client waits for the gateway on a pooled background thread
+     * instead of the calling script thread.
+     */
+    @Override
+    protected CompletableFuture<String[]> getAsyncImpl(String addr, int port, String[] OIDS, String... params) {
+        return CompletableFuture.supplyAsync(
+                () -> rpc.get(addr, port, OIDS, params),
+                CursorSNMPDriverModule.callbackExecutor());
+    }
+
+    @Override
+    protected CompletableFuture<String[]> walkAsyncImpl(String addr, int port, String startOID, String... params) {
+        return CompletableFuture.supplyAsync(
+                () -> walkImpl(addr, port, startOID, params),
+                CursorSNMPDriverModule.callbackExecutor());
+    }
+
+    @Override
+    protected Dataset getManyImpl(String[] targets, String[] OIDS, String... params) {
+        if (PACKED) {
+            return PackedResults.unpackDataset(rpc.getManyPacked(targets, OIDS, params));
+        }
+        return rpc.getMany(targets, OIDS, params);
+    }
+
+    @Override
+    protected Dataset getTypedImpl(String addr, int port, String[] OIDS, String... params) {
+        return rpc.getTyped(addr, port, OIDS, params);
+    }
+
+    @Override
+    protected Dataset getTypedV3Impl(String addr, int port, String[] OIDS, int authLevel, String user, String pass, int authProt, int privProt, String... params) {
+        return rpc.getTypedV3(addr, port, OIDS, authLevel, user, pass, authProt, privProt, params);
+    }
+
+    @Override
+    protected Dataset walkTypedImpl(String addr, int port, String startOID, String... params) {
+        return rpc.walkTyped(addr, port, startOID, params);
+    }
+
+    @Override
+    protected Dataset walkTypedV3Impl(String addr, int port, String startOID, int authLevel, String user, String pass, int authProt, int privProt, String... params) {
+        return rpc.walkTypedV3(addr, port, startOID, authLevel, user, pass, authProt, privProt, params);
+    }
+
+    @Override
+    protected String walkOpenImpl(String addr, int port, String startOID, String... params) {
+        return rpc.walkOpen(addr, port, startOID, params);
+    }
+
+    @Override
+    protected String walkOpenV3Impl(String addr, int port, String startOID, int authLevel, String user, String pass, int authProt, int privProt, String... params) {
+        return rpc.walkOpenV3(addr, port, startOID, authLevel, user, pass, authProt, privProt, params);
+    }
+
+    @Override
+    protected String[] walkNextImpl(String cursorId, int maxRows) {
+        return rpc.walkNext(cursorId, maxRows);
+    }
+
+    @Override
+    protected boolean walkCloseImpl(String cursorId) {
+        return rpc.walkClose(cursorId);
+    }
+
+    @Override
+    protected Dataset getTableImpl(String addr, int port, String[] columnOIDs, String... params) {
+        return rpc.getTable(addr, port, columnOIDs, params);
+    }
+
+    @Override
+    protected Dataset getTableV3Impl(String addr, int port, String[] columnOIDs, int authLevel, String user, String pass, int authProt, int privProt, String... params) {
+        return rpc.getTableV3(addr, port, columnOIDs, authLevel, user, pass, authProt, privProt, params);
+    }
+
+    @Override
+    protected Dataset getStatsImpl() {
+        return rpc.getStats();
+    }
+
+    @Override
+    protected String prepareImpl(String addr, int port, String[] OIDS, String... params) {
+        return rpc.prepare(addr, port, OIDS, params);
+    }
+
+    @Override
+    protected String prepareV3Impl(String addr, int port, String[] OIDS, int authLevel, String user, String pass, int authProt, int privProt, String... params) {
+        return rpc.prepareV3(addr, port, OIDS, authLevel, user, pass, authProt, privProt, params);
+    }
+
+    @Override
+    protected String[] executeImpl(String handle) {
+        return rpc.execute(handle);
+    }
+
+    @Override
+    protected boolean releasePreparedImpl(String handle) {
+        return rpc.releasePrepared(handle);
+    }
+
+    @Override
+    protected String[] walkDeltaImpl(String addr, int port, String startOID, String... params) {
+        return deltas.walk(addr, port, startOID, params,
+                (clientId, knownSeq) -> rpc.walkDelta(clientId, knownSeq, addr, port, startOID, params));
+    }
+
+    @Override
+    protected String[] getDeltaImpl(String addr, int port, String[] OIDS, String... params) {
+        return deltas.get(addr, port, OIDS, params,
+                (clientId, knownSeq) -> rpc.getDelta(clientId, knownSeq, addr, port, OIDS, params));
+    }
+
+    @Override
+    protected String subscribeImpl(String addr, int port, String[] OIDS, long rateMs, double deadband, PyObject callback, String... params) {
+        return subscriptions.subscribe(addr, port, OIDS, rateMs, deadband, callback, params);
+    }
+
+    @Override
+    protected String[] readSubscriptionImpl(String handle) {
+        String[] values = subscriptions.read(handle);
+        return values == null ? new String[] { "[S001] Error: unknown subscription" } : values;
+    }
+
+    @Override
+    protected boolean unsubscribeImpl(String handle) {
+        return subscriptions.unsubscribe(handle);
+    }
+
+    @Override
+    protected Dataset getRatesImpl(String addr, int port, String[] OIDS, String... params) {
+        return rpc.getRates(addr, port, OIDS, params);
+    }
+
+    @Override
+    protected String discoverImpl(String[] cidrs, String[] communities, String[] oids, String... params) {
+        return rpc.discover(cidrs, communities, oids, params);
+    }
+
+    @Override
+    protected String discoverV3Impl(String[] cidrs, String[] oids, int authLevel, String user, String pass, int authProt, int privProt, String... params) {
+        return rpc.discoverV3(cidrs, oids, authLevel, user, pass, authProt, privProt, params);
+    }
+
+    @Override
+    protected Dataset discoverNextImpl(String sweepId, int maxRows) {
+        return rpc.discoverNext(sweepId, maxRows);
+    }
+
+    @Override
+    protected boolean discoverCloseImpl(String sweepId) {
+        return rpc.discoverClose(sweepId);
+    }
+
+    @Override
+    protected Dataset queryJournalImpl(String addr, int port, String[] OIDS, long startMillis, long endMillis, int maxRows) {
+        return rpc.queryJournal(addr, port, OIDS, startMillis, endMillis, maxRows);
+    }
 }
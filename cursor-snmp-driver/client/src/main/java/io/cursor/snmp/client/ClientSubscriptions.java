@@ -0,0 +1,311 @@
+package io.cursor.snmp.client;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+import com.inductiveautomation.ignition.client.gateway_interface.GatewayConnectionManager;
+import com.inductiveautomation.ignition.client.gateway_interface.PushNotificationListener;
+import com.inductiveautomation.ignition.common.gateway.messages.PushNotification;
+import io.cursor.snmp.common.CursorSNMPDriverModule;
+import io.cursor.snmp.common.FunctionInterface;
+import org.python.core.Py;
+import org.python.core.PyObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Client side of change-of-value subscriptions. Script subscriptions with the same arguments share one gateway
+ * subscription; values arrive as push notifications and are kept here, so reading them costs no RPC. One background
+ * RPC every {@value #RENEW_INTERVAL_MS} ms renews all leases, and subscriptions the gateway no longer knows (after a
+ * gateway restart) are taken out again. Callbacks run on the Swing event thread.
+ */
+final class ClientSubscriptions implements PushNotificationListener {
+    static final long RENEW_INTERVAL_MS = 20_000L;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final FunctionInterface rpc;
+    private final String clientId = UUID.randomUUID().toString();
+
+    /** One gateway subscription and the script handles sharing it. */
+    private static final class Remote {
+        final String key;
+        final String address;
+        final int port;
+        final String[] oids;
+        final long rateMs;
+        final double deadband;
+        final String[] params;
+        final Set<String> handles = new LinkedHashSet<>();
+        String id;
+        String[] values;
+        String status;
+
+        Remote(String key, String address, int port, String[] oids, long rateMs, double deadband, String[] params) {
+            this.key = key;
+            this.address = address;
+            this.port = port;
+            this.oids = oids.clone();
+            this.rateMs = rateMs;
+            this.deadband = deadband;
+            this.params = params == null ? new String[0] : params.clone();
+            this.values = new String[oids.length];
+        }
+    }
+
+    private final Map<String, Remote> byKey = new ConcurrentHashMap<>();
+    private final Map<String, Remote> byId = new ConcurrentHashMap<>();
+    private final Map<String, Remote> byHandle = new ConcurrentHashMap<>();
+    private final Map<String, PyObject> callbacks = new ConcurrentHashMap<>();
+    private ScheduledExecutorService renewer;
+
+    ClientSubscriptions(FunctionInterface rpc) {
+        this.rpc = rpc;
+    }
+
+    synchronized String subscribe(
+            String address,
+            int port,
+            String[] oids,
+            long rateMs,
+            double deadband,
+            PyObject callback,
+            String[] params) {
+        start();
+        String key = address + "/" + port + "@" + rateMs + "~" + deadband + "|" + String.join("\0", oids)
+                + "|" + (params == null ? "" : String.join("\0", params));
+        Remote remote = byKey.get(key);
+        if (remote == null) {
+            remote = new Remote(key, address, port, oids, rateMs, deadband, params);
+            String error = open(remote);
+            if (error != null) {
+                return error;
+            }
+            byKey.put(key, remote);
+        }
+        String handle = UUID.randomUUID().toString();
+        remote.handles.add(handle);
+        byHandle.put(handle, remote);
+        if (callback != null && callback != Py.None) {
+            callbacks.put(handle, callback);
+            if (remote.status != null) {
+                String[] values = remote.values.clone();
+                String status = remote.status;
+                SwingUtilities.invokeLater(() -> call(callback, values, status));
+            }
+        }
+        return handle;
+    }
+
+    /** The latest values, the error as the only element, or {@code null} for an unknown handle. */
+    synchronized String[] read(String handle) {
+        Remote remote = handle == null ? null : byHandle.get(handle);
+        if (remote == null) {
+            return null;
+        }
+        if (remote.status != null && !"OK".equals(remote.status)) {
+            return new String[] { remote.status };
+        }
+        return remote.values.clone();
+    }
+
+    /**
+     * Drops {@code handle}. The last handle of a gateway subscription releases it on the gateway first, outside the
+     * lock; if that request fails the handle stays subscribed and {@code false} is returned, so the script can retry.
+     */
+    boolean unsubscribe(String handle) {
+        String releaseId;
+        synchronized (this) {
+            Remote remote = handle == null ? null : byHandle.get(handle);
+            if (remote == null) {
+                return false;
+            }
+            releaseId = remote.handles.size() == 1 ? remote.id : null;
+            if (releaseId == null) {
+                remove(remote, handle);
+                return true;
+            }
+        }
+        try {
+            rpc.unsubscribe(clientId, releaseId);
+        } catch (Exception e) {
+            logger.warn("Could not release SNMP subscription {}", releaseId, e);
+            return false;
+        }
+        synchronized (this) {
+            Remote remote = byHandle.get(handle);
+            if (remote == null) {
+                return false;
+            }
+            remove(remote, handle);
+            if (!remote.handles.isEmpty()) {
+                // Another script joined while the gateway released it; take it out again for that handle.
+                String error = open(remote);
+                if (error != null) {
+                    logger.warn("Could not renew SNMP subscription {}: {}", remote.id, error);
+                }
+            }
+        }
+        return true;
+    }
+
+    /** Drops {@code handle} locally, and {@code remote} with its last handle; callers hold the lock. */
+    private void remove(Remote remote, String handle) {
+        byHandle.remove(handle);
+        callbacks.remove(handle);
+        remote.handles.remove(handle);
+        if (remote.handles.isEmpty()) {
+            byKey.remove(remote.key);
+            if (remote.id != null) {
+                byId.remove(remote.id);
+            }
+        }
+    }
+
+    @Override
+    public void receiveNotification(PushNotification notification) {
+        if (!CursorSNMPDriverModule.MODULE_ID.equals(notification.getModuleId())
+                || !FunctionInterface.SUBSCRIPTION_NOTIFICATION.equals(notification.getMessageType())
+                || !(notification.getMessage() instanceof String[])) {
+            return;
+        }
+        apply((String[]) notification.getMessage());
+    }
+
+    /** Applies a notification (or subscribe snapshot) and schedules the callbacks of the handles it concerns. */
+    private synchronized void apply(String[] payload) {
+        Remote remote = payload.length < 2 ? null : byId.get(payload[0]);
+        if (remote == null || payload[1] == null) {
+            return;
+        }
+        remote.status = payload[1];
+        for (int i = 2; i + 1 < payload.length; i += 2) {
+            int index;
+            try {
+                index = Integer.parseInt(payload[i]);
+            } catch (NumberFormatException e) {
+                logger.debug("Ignoring malformed subscription value index {}", payload[i]);
+                continue;
+            }
+            if (index >= 0 && index < remote.values.length) {
+                remote.values[index] = payload[i + 1];
+            }
+        }
+        String[] values = remote.values.clone();
+        String status = remote.status;
+        List<PyObject> targets = new ArrayList<>();
+        for (String handle : remote.handles) {
+            PyObject callback = callbacks.get(handle);
+            if (callback != null) {
+                targets.add(callback);
+            }
+        }
+        if (!targets.isEmpty()) {
+            SwingUtilities.invokeLater(() -> {
+                for (PyObject callback : targets) {
+                    call(callback, values, status);
+                }
+            });
+        }
+    }
+
+    /**
+     * Takes out the gateway subscription for {@code remote}; callers hold the lock. Returns {@code null}, or the
+     * {@code [Xnnn] Error:} row when the gateway refused or could not be reached.
+     */
+    private String open(Remote remote) {
+        String[] snapshot;
+        try {
+            snapshot = rpc.subscribe(
+                    clientId, remote.address, remote.port, remote.oids, remote.rateMs, remote.deadband, remote.params);
+        } catch (Exception e) {
+            return "[S003] Error: " + e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+        if (snapshot == null || snapshot.length == 0 || snapshot[0] == null) {
+            return "[S003] Error: empty subscribe response from gateway";
+        }
+        if (snapshot[0].startsWith("[")) {
+            return snapshot[0];
+        }
+        if (remote.id != null) {
+            byId.remove(remote.id);
+        }
+        remote.id = snapshot[0];
+        byId.put(remote.id, remote);
+        apply(snapshot);
+        return null;
+    }
+
+    private void start() {
+        if (renewer != null) {
+            return;
+        }
+        GatewayConnectionManager.getInstance().addPushNotificationListener(this);
+        renewer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "cursorSNMP-subscriptions");
+            t.setDaemon(true);
+            return t;
+        });
+        renewer.scheduleWithFixedDelay(this::renew, RENEW_INTERVAL_MS, RENEW_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops renewing and listening for notifications, and forgets every subscription; called when the client module
+     * shuts down. The gateway drops the leases once they run out.
+     */
+    synchronized void shutdown() {
+        if (renewer == null) {
+            return;
+        }
+        GatewayConnectionManager.getInstance().removePushNotificationListener(this);
+        renewer.shutdownNow();
+        renewer = null;
+        byKey.clear();
+        byId.clear();
+        byHandle.clear();
+        callbacks.clear();
+    }
+
+    private void renew() {
+        try {
+            String[] ids;
+            synchronized (this) {
+                ids = byId.keySet().toArray(new String[0]);
+            }
+            if (ids.length == 0) {
+                return;
+            }
+            String[] unknown = rpc.renewSubscriptions(clientId, ids);
+            synchronized (this) {
+                for (String id : unknown) {
+                    Remote remote = byId.get(id);
+                    String error = remote == null ? null : open(remote);
+                    if (error != null) {
+                        // The id stays unknown to the gateway, so the next renewal tries again.
+                        logger.warn("Could not renew SNMP subscription {}: {}", id, error);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Could not renew SNMP subscriptions", e);
+        }
+    }
+
+    private void call(PyObject callback, String[] values, String status) {
+        try {
+            callback.__call__(Py.java2py(values), Py.java2py(status));
+        } catch (Exception e) {
+            logger.warn("SNMP subscription callback failed", e);
+        }
+    }
+}
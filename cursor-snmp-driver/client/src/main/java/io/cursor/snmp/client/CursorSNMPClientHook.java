@@ -15,4 +15,10 @@ public class CursorSNMPClientHook extends AbstractClientModuleHook {
                 new PropertiesFileDocProvider()
         );
     }
+
+    @Override
+    public void shutdown() {
+        ClientScriptModule.shutdown();
+        super.shutdown();
+    }
 }
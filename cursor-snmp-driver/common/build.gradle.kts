@@ -13,4 +13,14 @@ dependencies {
     compileOnly("com.inductiveautomation.ignitionsdk:ignition-common:${rootProject.extra["sdk_version"]}")
     // https://mvnrepository.com/artifact/org.snmp4j/snmp4j
 	modlImplementation("org.snmp4j:snmp4j:3.7.8")
+
+    testImplementation("com.inductiveautomation.ignitionsdk:ignition-common:${rootProject.extra["sdk_version"]}")
+    testImplementation("org.snmp4j:snmp4j:3.7.8")
+    testImplementation(platform("org.junit:junit-bom:5.10.2"))
+    testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+}
+
+tasks.test {
+    useJUnitPlatform()
 }
@@ -1,10 +1,20 @@
 package io.cursor.snmp.common;
 
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+
 import com.inductiveautomation.ignition.common.BundleUtil;
+import com.inductiveautomation.ignition.common.Dataset;
 import com.inductiveautomation.ignition.common.script.hints.JythonElement;
 import com.inductiveautomation.ignition.common.script.hints.ScriptArg;
+import org.python.core.Py;
+import org.python.core.PyObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public abstract class AbstractScriptModule {
 
-public abstract class AbstractScriptModule implements FunctionInterface {
+    private static final Logger logger = LoggerFactory.getLogger(AbstractScriptModule.class);
 
     static {
         BundleUtil.get().addBundle(
@@ -70,5 +80,418 @@ public abstract class AbstractScriptModule implements FunctionInterface {
     	return CursorSNMPDriverModule.snmpWalkV3(addr, port, startOID, authLevel, user, pass, authProt, privProt, params);
     }
     
-    protected abstract String[] walkImplV3(String addr, int port, String startOID, int authLevel, String user, String pass, int authProt, int privProt, String... params);    
+    protected abstract String[] walkImplV3(String addr, int port, String startOID, int authLevel, String user, String pass, int authProt, int privProt, String... params);
+
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public CompletableFuture<String[]> getAsync(
+            @ScriptArg("address") String addr,
+            @ScriptArg("port") int port,
+            @ScriptArg("OID") String[] OIDS,
+            @ScriptArg("callback") PyObject callback,
+            @ScriptArg("others") String... params)
+    {
+        return withCallback(getAsyncImpl(addr, port, OIDS, params), callback);
+    }
+
+    protected abstract CompletableFuture<String[]> getAsyncImpl(String addr, int port, String[] OIDS, String... params);
+
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public CompletableFuture<String[]> walkAsync(
+            @ScriptArg("address") String addr,
+            @ScriptArg("port") int port,
+            @ScriptArg("startOID") String startOID,
+            @ScriptArg("callback") PyObject callback,
+            @ScriptArg("others") String... params)
+    {
+        return withCallback(walkAsyncImpl(addr, port, startOID, params), callback);
+    }
+
+    protected abstract CompletableFuture<String[]> walkAsyncImpl(String addr, int port, String startOID, String... params);
+
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public Dataset getMany(
+            @ScriptArg("targets") String[] targets,
+            @ScriptArg("OID") String[] OIDS,
+            @ScriptArg("others") String... params)
+    {
+        return getManyImpl(targets, OIDS, params);
+    }
+
+    protected abstract Dataset getManyImpl(String[] targets, String[] OIDS, String... params);
+
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public Dataset getTyped(
+            @ScriptArg("address") String addr,
+            @ScriptArg("port") int port,
+            @ScriptArg("OID") String[] OIDS,
+            @ScriptArg("others") String... params)
+    {
+        return getTypedImpl(addr, port, OIDS, params);
+    }
+
+    protected abstract Dataset getTypedImpl(String addr, int port, String[] OIDS, String... params);
+
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public Dataset getTypedV3(
+            @ScriptArg("address") String addr,
+            @ScriptArg("port") int port,
+            @ScriptArg("OID") String[] OIDS,
+            @ScriptArg("authLevel") int authLevel,
+            @ScriptArg("user") String user,
+            @ScriptArg("pass") String pass,
+            @ScriptArg("authProt") int authProt,
+            @ScriptArg("privProt") int privProt,
+            @ScriptArg("others") String... params)
+    {
+        return getTypedV3Impl(addr, port, OIDS, authLevel, user, pass, authProt, privProt, params);
+    }
+
+    protected abstract Dataset getTypedV3Impl(String addr, int port, String[] OIDS, int authLevel, String user, String pass, int authProt, int privProt, String... params);
+
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public Dataset walkTyped(
+            @ScriptArg("address") String addr,
+            @ScriptArg("port") int port,
+            @ScriptArg("startOID") String startOID,
+            @ScriptArg("others") String... params)
+    {
+        return walkTypedImpl(addr, port, startOID, params);
+    }
+
+    protected abstract Dataset walkTypedImpl(String addr, int port, String startOID, String... params);
+
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public Dataset walkTypedV3(
+            @ScriptArg("address") String addr,
+            @ScriptArg("port") int port,
+            @ScriptArg("startOID") String startOID,
+            @ScriptArg("authLevel") int authLevel,
+            @ScriptArg("user") String user,
+            @ScriptArg("pass") String pass,
+            @ScriptArg("authProt") int authProt,
+            @ScriptArg("privProt") int privProt,
+            @ScriptArg("others") String... params)
+    {
+        return walkTypedV3Impl(addr, port, startOID, authLevel, user, pass, authProt, privProt, params);
+    }
+
+    protected abstract Dataset walkTypedV3Impl(String addr, int port, String startOID, int authLevel, String user, String pass, int authProt, int privProt, String... params);
+
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public String walkOpen(
+            @ScriptArg("address") String addr,
+            @ScriptArg("port") int port,
+            @ScriptArg("startOID") String startOID,
+            @ScriptArg("others") String... params)
+    {
+        return walkOpenImpl(addr, port, startOID, params);
+    }
+
+    protected abstract String walkOpenImpl(String addr, int port, String startOID, String... params);
+
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public String walkOpenV3(
+            @ScriptArg("address") String addr,
+            @ScriptArg("port") int port,
+            @ScriptArg("startOID") String startOID,
+            @ScriptArg("authLevel") int authLevel,
+            @ScriptArg("user") String user,
+            @ScriptArg("pass") String pass,
+            @ScriptArg("authProt") int authProt,
+            @ScriptArg("privProt") int privProt,
+            @ScriptArg("others") String... params)
+    {
+        return walkOpenV3Impl(addr, port, startOID, authLevel, user, pass, authProt, privProt, params);
+    }
+
+    protected abstract String walkOpenV3Impl(String addr, int port, String startOID, int authLevel, String user, String pass, int authProt, int privProt, String... params);
+
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public String[] walkNext(
+            @ScriptArg("cursorId") String cursorId,
+            @ScriptArg("maxRows") int maxRows)
+    {
+        return walkNextImpl(cursorId, maxRows);
+    }
+
+    protected abstract String[] walkNextImpl(String cursorId, int maxRows);
+
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public boolean walkClose(
+            @ScriptArg("cursorId") String cursorId)
+    {
+        return walkCloseImpl(cursorId);
+    }
+
+    protected abstract boolean walkCloseImpl(String cursorId);
+
+    /**
+     * Walks a subtree through a cursor and calls {@code callback(rows)} on the calling thread for each page of at
+     * most {@code chunkSize} rows, so only one page is held at a time. Works in every scope; in Vision clients each
+     * page is one RPC round trip. A page ending with an {@code [Xnnn]} error row is the last one.
+     */
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public int walkStream(
+            @ScriptArg("address") String addr,
+            @ScriptArg("port") int port,
+            @ScriptArg("startOID") String startOID,
+            @ScriptArg("callback") PyObject callback,
+            @ScriptArg("chunkSize") int chunkSize,
+            @ScriptArg("others") String... params)
+    {
+        String cursorId = walkOpenImpl(addr, port, startOID, params);
+        int total = 0;
+        try {
+            String[] rows = walkNextImpl(cursorId, chunkSize);
+            while (rows.length > 0) {
+                total += rows.length;
+                callback.__call__(Py.java2py(rows));
+                if (isError(rows[rows.length - 1])) {
+                    // An error is the last row of a walk; an unknown cursor would return it forever.
+                    break;
+                }
+                rows = walkNextImpl(cursorId, chunkSize);
+            }
+        } finally {
+            walkCloseImpl(cursorId);
+        }
+        return total;
+    }
+
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public Dataset getTable(
+            @ScriptArg("address") String addr,
+            @ScriptArg("port") int port,
+            @ScriptArg("columnOIDs") String[] columnOIDs,
+            @ScriptArg("others") String... params)
+    {
+        return getTableImpl(addr, port, columnOIDs, params);
+    }
+
+    protected abstract Dataset getTableImpl(String addr, int port, String[] columnOIDs, String... params);
+
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public Dataset getTableV3(
+            @ScriptArg("address") String addr,
+            @ScriptArg("port") int port,
+            @ScriptArg("columnOIDs") String[] columnOIDs,
+            @ScriptArg("authLevel") int authLevel,
+            @ScriptArg("user") String user,
+            @ScriptArg("pass") String pass,
+            @ScriptArg("authProt") int authProt,
+            @ScriptArg("privProt") int privProt,
+            @ScriptArg("others") String... params)
+    {
+        return getTableV3Impl(addr, port, columnOIDs, authLevel, user, pass, authProt, privProt, params);
+    }
+
+    protected abstract Dataset getTableV3Impl(String addr, int port, String[] columnOIDs, int authLevel, String user, String pass, int authProt, int privProt, String... params);
+
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public Dataset getStats()
+    {
+        return getStatsImpl();
+    }
+
+    protected abstract Dataset getStatsImpl();
+
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public String prepare(
+            @ScriptArg("address") String addr,
+            @ScriptArg("port") int port,
+            @ScriptArg("OID") String[] OIDS,
+            @ScriptArg("others") String... params)
+    {
+        return prepareImpl(addr, port, OIDS, params);
+    }
+
+    protected abstract String prepareImpl(String addr, int port, String[] OIDS, String... params);
+
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public String prepareV3(
+            @ScriptArg("address") String addr,
+            @ScriptArg("port") int port,
+            @ScriptArg("OID") String[] OIDS,
+            @ScriptArg("authLevel") int authLevel,
+            @ScriptArg("user") String user,
+            @ScriptArg("pass") String pass,
+            @ScriptArg("authProt") int authProt,
+            @ScriptArg("privProt") int privProt,
+            @ScriptArg("others") String... params)
+    {
+        return prepareV3Impl(addr, port, OIDS, authLevel, user, pass, authProt, privProt, params);
+    }
+
+    protected abstract String prepareV3Impl(String addr, int port, String[] OIDS, int authLevel, String user, String pass, int authProt, int privProt, String... params);
+
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public String[] execute(
+            @ScriptArg("handle") String handle)
+    {
+        return executeImpl(handle);
+    }
+
+    protected abstract String[] executeImpl(String handle);
+
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public boolean releasePrepared(
+            @ScriptArg("handle") String handle)
+    {
+        return releasePreparedImpl(handle);
+    }
+
+    protected abstract boolean releasePreparedImpl(String handle);
+
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public String[] walkDelta(
+            @ScriptArg("address") String addr,
+            @ScriptArg("port") int port,
+            @ScriptArg("startOID") String startOID,
+            @ScriptArg("others") String... params)
+    {
+        return walkDeltaImpl(addr, port, startOID, params);
+    }
+
+    protected abstract String[] walkDeltaImpl(String addr, int port, String startOID, String... params);
+
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public String[] getDelta(
+            @ScriptArg("address") String addr,
+            @ScriptArg("port") int port,
+            @ScriptArg("OID") String[] OIDS,
+            @ScriptArg("others") String... params)
+    {
+        return getDeltaImpl(addr, port, OIDS, params);
+    }
+
+    protected abstract String[] getDeltaImpl(String addr, int port, String[] OIDS, String... params);
+
+    /**
+     * Subscribes to {@code OIDS} on the target, polled every {@code rateMs} on the gateway. Identical subscriptions
+     * from all scopes share one poll; {@code callback(values, status)} is called with every value whenever one of
+     * them changed by more than {@code deadband} (numeric values) or at all (others), or the status changed.
+     */
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public String subscribe(
+            @ScriptArg("address") String addr,
+            @ScriptArg("port") int port,
+            @ScriptArg("OID") String[] OIDS,
+            @ScriptArg("rateMs") long rateMs,
+            @ScriptArg("deadband") double deadband,
+            @ScriptArg("callback") PyObject callback,
+            @ScriptArg("others") String... params)
+    {
+        return subscribeImpl(addr, port, OIDS, rateMs, deadband, callback, params);
+    }
+
+    protected abstract String subscribeImpl(String addr, int port, String[] OIDS, long rateMs, double deadband, PyObject callback, String... params);
+
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public String[] readSubscription(@ScriptArg("handle") String handle) {
+        return readSubscriptionImpl(handle);
+    }
+
+    protected abstract String[] readSubscriptionImpl(String handle);
+
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public boolean unsubscribe(@ScriptArg("handle") String handle) {
+        return unsubscribeImpl(handle);
+    }
+
+    protected abstract boolean unsubscribeImpl(String handle);
+
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public Dataset getRates(
+            @ScriptArg("address") String addr,
+            @ScriptArg("port") int port,
+            @ScriptArg("OID") String[] OIDS,
+            @ScriptArg("others") String... params)
+    {
+        return getRatesImpl(addr, port, OIDS, params);
+    }
+
+    protected abstract Dataset getRatesImpl(String addr, int port, String[] OIDS, String... params);
+
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public String discover(
+            @ScriptArg("cidrs") String[] cidrs,
+            @ScriptArg("communities") String[] communities,
+            @ScriptArg("OID") String[] oids,
+            @ScriptArg("others") String... params)
+    {
+        return discoverImpl(cidrs, communities, oids, params);
+    }
+
+    protected abstract String discoverImpl(String[] cidrs, String[] communities, String[] oids, String... params);
+
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public String discoverV3(
+            @ScriptArg("cidrs") String[] cidrs,
+            @ScriptArg("OID") String[] oids,
+            @ScriptArg("authLevel") int authLevel,
+            @ScriptArg("user") String user,
+            @ScriptArg("pass") String pass,
+            @ScriptArg("authProt") int authProt,
+            @ScriptArg("privProt") int privProt,
+            @ScriptArg("others") String... params)
+    {
+        return discoverV3Impl(cidrs, oids, authLevel, user, pass, authProt, privProt, params);
+    }
+
+    protected abstract String discoverV3Impl(String[] cidrs, String[] oids, int authLevel, String user, String pass, int authProt, int privProt, String... params);
+
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public Dataset discoverNext(
+            @ScriptArg("sweepId") String sweepId,
+            @ScriptArg("maxRows") int maxRows)
+    {
+        return discoverNextImpl(sweepId, maxRows);
+    }
+
+    protected abstract Dataset discoverNextImpl(String sweepId, int maxRows);
+
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public boolean discoverClose(
+            @ScriptArg("sweepId") String sweepId)
+    {
+        return discoverCloseImpl(sweepId);
+    }
+
+    protected abstract boolean discoverCloseImpl(String sweepId);
+
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public Dataset queryJournal(
+            @ScriptArg("address") String addr,
+            @ScriptArg("port") int port,
+            @ScriptArg("OID") String[] OIDS,
+            @ScriptArg("startDate") Date startDate,
+            @ScriptArg("endDate") Date endDate,
+            @ScriptArg("maxRows") int maxRows)
+    {
+        return queryJournalImpl(addr, port, OIDS, startDate.getTime(), endDate.getTime(), maxRows);
+    }
+
+    protected abstract Dataset queryJournalImpl(String addr, int port, String[] OIDS, long startMillis, long endMillis, int maxRows);
+
+    private static boolean isError(String row) {
+        return row != null && row.startsWith("[") && row.contains("] Error:");
+    }
+
+    /**
+     * Invokes {@code callback(result)} on the module's callback executor once the future completes. A {@code None}
+     * callback leaves the caller to consume the returned future.
+     */
+    private static <T> CompletableFuture<T> withCallback(CompletableFuture<T> future, PyObject callback) {
+        if (callback == null || callback == Py.None) {
+            return future;
+        }
+        future.whenCompleteAsync((result, error) -> {
+            try {
+                callback.__call__(Py.java2py(error != null ? new String[] { "[A001] Error: " + error } : result));
+            } catch (Exception e) {
+                logger.warn("SNMP async callback failed", e);
+            }
+        }, CursorSNMPDriverModule.callbackExecutor());
+        return future;
+    }
 }
@@ -0,0 +1,117 @@
+package io.cursor.snmp.common;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.snmp4j.Target;
+import org.snmp4j.smi.Address;
+
+/**
+ * Per-agent timeouts derived from measured round-trip times, in the manner of TCP's retransmission timer (RFC 6298).
+ * <p>
+ * Every answered get updates a smoothed RTT and RTT variance for the agent address; answers that arrive after the
+ * target timeout are ambiguous (SNMP4J has retransmitted) and are not sampled. With {@code adaptive=true} in
+ * {@code params}, or the {@code cursor.snmp.adaptiveTimeouts} system property set to {@code true}, targets get
+ * {@code timeout = srtt + 4 * rttvar}, clamped to {@code minTimeout=N} (default {@value #DEFAULT_MIN_TIMEOUT_MS})
+ * and {@code maxTimeout=N} (default {@value #DEFAULT_MAX_TIMEOUT_MS}) ms, and as many retries (at most
+ * {@value #MAX_RETRIES}) as fit in the budget a default target would wait. Each timeout doubles the agent's timeout
+ * until the next clean sample. An explicit {@code timeout=N} or {@code retry=N} always wins, and agents without
+ * samples keep the defaults.
+ */
+final class AdaptiveTimeouts {
+    static final String ENABLED_PROPERTY = "cursor.snmp.adaptiveTimeouts";
+    static final long DEFAULT_MIN_TIMEOUT_MS = 200L;
+    static final long DEFAULT_MAX_TIMEOUT_MS = 10000L;
+    static final int MAX_RETRIES = 2;
+    /** Total wait a default target allows (timeout times attempts); adaptive targets spend the same at most. */
+    private static final long RETRY_BUDGET_MS =
+            CursorSNMPDriverModule.DEFAULT_TIMEOUT * (CursorSNMPDriverModule.DEFAULT_RETRY + 1);
+    private static final int MAX_BACKOFF_SHIFT = 6;
+
+    private static final ConcurrentHashMap<Address, Rtt> AGENTS = new ConcurrentHashMap<>();
+
+    private AdaptiveTimeouts() {
+    }
+
+    private static final class Rtt {
+        private double srttMs = -1;
+        private double rttvarMs;
+        private int backoff;
+
+        synchronized void sample(double rttMs) {
+            if (srttMs < 0) {
+                srttMs = rttMs;
+                rttvarMs = rttMs / 2;
+            } else {
+                rttvarMs = 0.75 * rttvarMs + 0.25 * Math.abs(srttMs - rttMs);
+                srttMs = 0.875 * srttMs + 0.125 * rttMs;
+            }
+            backoff = 0;
+        }
+
+        synchronized void timedOut() {
+            if (srttMs >= 0 && backoff < MAX_BACKOFF_SHIFT) {
+                backoff++;
+            }
+        }
+
+        /** {@code -1} until the first sample. */
+        synchronized long timeoutMs(long min, long max) {
+            if (srttMs < 0) {
+                return -1;
+            }
+            long rto = (long) Math.ceil(srttMs + Math.max(1.0, 4 * rttvarMs)) << backoff;
+            return Math.max(min, Math.min(max, rto));
+        }
+    }
+
+    /** Records the outcome of a get begun at {@code startNanos}; {@code status} is an {@link SnmpResult} status. */
+    static void sample(Target<?> target, long startNanos, int status) {
+        if (status == SnmpResult.STATUS_EXCEPTION) {
+            return;
+        }
+        if (status == SnmpResult.STATUS_TIMEOUT) {
+            Rtt rtt = AGENTS.get(target.getAddress());
+            if (rtt != null) {
+                rtt.timedOut();
+            }
+            return;
+        }
+        double elapsedMs = (System.nanoTime() - startNanos) / 1e6;
+        if (elapsedMs > target.getTimeout()) {
+            return;
+        }
+        AGENTS.computeIfAbsent(target.getAddress(), a -> new Rtt()).sample(elapsedMs);
+    }
+
+    /** Applies the learned timeout and retries to a freshly created target when adaptive mode is on. */
+    static void apply(Target<?> target, String[] params) {
+        if (!enabled(params)) {
+            return;
+        }
+        Rtt rtt = AGENTS.get(target.getAddress());
+        if (rtt == null) {
+            return;
+        }
+        long min = Math.max(1, CursorSNMPDriverModule.intParam(params, "minTimeout", (int) DEFAULT_MIN_TIMEOUT_MS));
+        long max = Math.max(min, CursorSNMPDriverModule.intParam(params, "maxTimeout", (int) DEFAULT_MAX_TIMEOUT_MS));
+        long timeout = rtt.timeoutMs(min, max);
+        if (timeout < 0) {
+            return;
+        }
+        if (CursorSNMPDriverModule.findParam(params, "timeout") == null) {
+            target.setTimeout(timeout);
+        }
+        if (CursorSNMPDriverModule.findParam(params, "retry") == null) {
+            long attempts = RETRY_BUDGET_MS / Math.max(1, target.getTimeout());
+            target.setRetries((int) Math.max(0, Math.min(MAX_RETRIES, attempts - 1)));
+        }
+    }
+
+    static boolean enabled(String[] params) {
+        String value = CursorSNMPDriverModule.findParam(params, "adaptive");
+        if (value == null || value.isEmpty()) {
+            return Boolean.getBoolean(ENABLED_PROPERTY);
+        }
+        return Boolean.parseBoolean(value);
+    }
+}
@@ -0,0 +1,66 @@
+package io.cursor.snmp.common;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.snmp4j.PDU;
+import org.snmp4j.Session;
+import org.snmp4j.Target;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.smi.Address;
+import org.snmp4j.util.TreeUtils;
+
+/**
+ * GETBULK sizing for walks. {@code maxRepetitions=N} and {@code maxVarbinds=N} in {@code params} pin the values for a
+ * call; {@code maxRepetitions=0} forces GETNEXT. Otherwise each agent starts at {@link #DEFAULT_MAX_REPETITIONS},
+ * is halved after a walk that ends in an error (timeouts and {@code tooBig} from small agents) and grows back by half
+ * after each clean walk.
+ */
+final class BulkWalkTuning {
+    static final int DEFAULT_MAX_REPETITIONS = 25;
+    static final int MAX_REPETITIONS_LIMIT = 200;
+
+    private static final ConcurrentHashMap<Address, Integer> LEARNED = new ConcurrentHashMap<>();
+
+    private BulkWalkTuning() {
+    }
+
+    /** Repetitions to use for this walk; {@code 0} means GETNEXT. */
+    static int maxRepetitions(Target<?> target, String[] params) {
+        if (target.getVersion() == SnmpConstants.version1) {
+            return 0;
+        }
+        int reps = CursorSNMPDriverModule.intParam(params, "maxRepetitions", -1);
+        if (reps < 0) {
+            reps = LEARNED.getOrDefault(target.getAddress(), DEFAULT_MAX_REPETITIONS);
+        }
+        int maxVarbinds = CursorSNMPDriverModule.intParam(params, "maxVarbinds", 0);
+        if (maxVarbinds > 0) {
+            reps = Math.min(reps, maxVarbinds);
+        }
+        return Math.min(reps, MAX_REPETITIONS_LIMIT);
+    }
+
+    static TreeUtils treeUtils(Session snmp, int maxRepetitions) {
+        if (maxRepetitions <= 0) {
+            return new TreeUtils(snmp, RateLimits.pduFactory(PDU.GETNEXT));
+        }
+        TreeUtils treeUtils = new TreeUtils(snmp, RateLimits.pduFactory(PDU.GETBULK));
+        treeUtils.setMaxRepetitions(maxRepetitions);
+        return treeUtils;
+    }
+
+    /** Adapts the learned value unless the caller pinned {@code maxRepetitions}. */
+    static void recordOutcome(Target<?> target, String[] params, int maxRepetitions, boolean error) {
+        if (maxRepetitions <= 0 || CursorSNMPDriverModule.findParam(params, "maxRepetitions") != null) {
+            return;
+        }
+        Address address = target.getAddress();
+        if (error) {
+            LEARNED.put(address, Math.max(1, maxRepetitions / 2));
+        } else if (maxRepetitions < DEFAULT_MAX_REPETITIONS) {
+            LEARNED.put(address, Math.min(DEFAULT_MAX_REPETITIONS, maxRepetitions + Math.max(1, maxRepetitions / 2)));
+        } else {
+            LEARNED.remove(address);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package io.cursor.snmp.common;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.snmp4j.PDU;
+import org.snmp4j.Target;
+import org.snmp4j.smi.Address;
+import org.snmp4j.smi.VariableBinding;
+
+/**
+ * Splits large get lists into PDUs an agent will accept and pipelines them.
+ * <p>
+ * The OID list is cut into chunks of the agent's learned size ({@code maxOids=N} in {@code params} overrides it) and,
+ * when {@code maxPduSize=N} is given, so that no request exceeds that many bytes. Chunks are sent concurrently with at
+ * most {@code window=N} (default {@value #DEFAULT_WINDOW}) requests in flight per agent, shared by all callers. A
+ * {@code tooBig} answer halves the chunk and remembers the smaller size for the agent; an agent that has answered
+ * before but goes silent on a multi-OID chunk gets one halved retry, since some agents drop oversize requests instead
+ * of answering {@code tooBig}. Results are merged in request order; if any chunk still fails, its error is returned.
+ */
+final class ChunkedGet {
+    static final int DEFAULT_MAX_OIDS = 60;
+    static final int DEFAULT_WINDOW = 4;
+    /** Room left in a request for the message header, community/security parameters and PDU fields. */
+    private static final int PDU_OVERHEAD_BYTES = 100;
+
+    private static final ConcurrentHashMap<Address, AgentState> AGENTS = new ConcurrentHashMap<>();
+
+    private ChunkedGet() {
+    }
+
+    private static final class AgentState {
+        final Address address;
+        volatile int maxOids = DEFAULT_MAX_OIDS;
+        volatile boolean responded;
+        private int inFlight;
+        private final ArrayDeque<Runnable> queued = new ArrayDeque<>();
+
+        AgentState(Address address) {
+            this.address = address;
+        }
+
+        void submit(Runnable send, int window) {
+            boolean runNow;
+            synchronized (this) {
+                runNow = inFlight < window;
+                if (runNow) {
+                    inFlight++;
+                } else {
+                    queued.add(send);
+                }
+            }
+            if (runNow) {
+                send.run();
+            }
+        }
+
+        void done() {
+            Runnable next;
+            synchronized (this) {
+                next = queued.poll();
+                if (next == null) {
+                    inFlight--;
+                }
+            }
+            if (next != null) {
+                next.run();
+            }
+        }
+    }
+
+    /**
+     * @param sender sends one PDU's worth of bindings and completes with its result; must not block
+     */
+    static CompletableFuture<SnmpResult> get(
+            Target<?> target,
+            VariableBinding[] bindings,
+            String[] params,
+            Function<VariableBinding[], CompletableFuture<SnmpResult>> sender) {
+        AgentState agent = AGENTS.computeIfAbsent(target.getAddress(), AgentState::new);
+        int window = Math.max(1, CursorSNMPDriverModule.intParam(params, "window", DEFAULT_WINDOW));
+        int maxOids = Math.max(1, CursorSNMPDriverModule.intParam(params, "maxOids", agent.maxOids));
+        int maxPduSize = CursorSNMPDriverModule.intParam(params, "maxPduSize", 0);
+
+        List<VariableBinding[]> chunks = split(bindings, maxOids, maxPduSize);
+        if (chunks.size() == 1) {
+            return sendChunk(agent, chunks.get(0), window, sender, true);
+        }
+        List<CompletableFuture<SnmpResult>> parts = new ArrayList<>(chunks.size());
+        for (VariableBinding[] chunk : chunks) {
+            parts.add(sendChunk(agent, chunk, window, sender, true));
+        }
+        return merge(parts);
+    }
+
+    private static List<VariableBinding[]> split(VariableBinding[] bindings, int maxOids, int maxPduSize) {
+        List<VariableBinding[]> chunks = new ArrayList<>();
+        int byteBudget = maxPduSize > 0 ? Math.max(1, maxPduSize - PDU_OVERHEAD_BYTES) : Integer.MAX_VALUE;
+        int start = 0;
+        while (start < bindings.length) {
+            int end = start;
+            int bytes = 0;
+            while (end < bindings.length && end - start < maxOids) {
+                int len = bindings[end].getBERLength();
+                if (end > start && bytes + len > byteBudget) {
+                    break;
+                }
+                bytes += len;
+                end++;
+            }
+            chunks.add(Arrays.copyOfRange(bindings, start, end));
+            start = end;
+        }
+        if (chunks.isEmpty()) {
+            chunks.add(bindings);
+        }
+        return chunks;
+    }
+
+    private static CompletableFuture<SnmpResult> sendChunk(
+            AgentState agent,
+            VariableBinding[] chunk,
+            int window,
+            Function<VariableBinding[], CompletableFuture<SnmpResult>> sender,
+            boolean retryOnSilence) {
+        CompletableFuture<SnmpResult> out = new CompletableFuture<>();
+        agent.submit(() -> {
+            CompletableFuture<SnmpResult> request;
+            try {
+                request = sender.apply(chunk);
+            } catch (RuntimeException e) {
+                request = CompletableFuture.completedFuture(
+                        SnmpResult.error("[G002] Error: " + e.getClass().getSimpleName() + ": " + e.getMessage()));
+            }
+            request.whenComplete((result, error) -> {
+                agent.done();
+                if (error != null) {
+                    out.complete(SnmpResult.error("[G002] Error: " + error));
+                } else {
+                    out.complete(result);
+                }
+            });
+        }, window);
+
+        return out.thenCompose(result -> {
+            if (result.status != SnmpResult.STATUS_TIMEOUT && result.status != SnmpResult.STATUS_EXCEPTION) {
+                agent.responded = true;
+            }
+            boolean tooBig = result.status == PDU.tooBig;
+            boolean silent = result.status == SnmpResult.STATUS_TIMEOUT && retryOnSilence && agent.responded;
+            if (chunk.length < 2 || !(tooBig || silent)) {
+                return CompletableFuture.completedFuture(result);
+            }
+            int half = (chunk.length + 1) / 2;
+            SnmpStats.retried(agent.address);
+            if (tooBig) {
+                agent.maxOids = Math.min(agent.maxOids, half);
+            }
+            CompletableFuture<SnmpResult> first =
+                    sendChunk(agent, Arrays.copyOfRange(chunk, 0, half), window, sender, tooBig);
+            CompletableFuture<SnmpResult> second =
+                    sendChunk(agent, Arrays.copyOfRange(chunk, half, chunk.length), window, sender, tooBig);
+            return merge(List.of(first, second)).thenApply(merged -> {
+                if (silent && merged.isError()) {
+                    return result;
+                }
+                if (silent) {
+                    agent.maxOids = Math.min(agent.maxOids, half);
+                }
+                return merged;
+            });
+        });
+    }
+
+    private static CompletableFuture<SnmpResult> merge(List<CompletableFuture<SnmpResult>> parts) {
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            int total = 0;
+            for (CompletableFuture<SnmpResult> part : parts) {
+                SnmpResult r = part.join();
+                if (r.isError()) {
+                    return r;
+                }
+                total += r.bindings.length;
+            }
+            VariableBinding[] merged = new VariableBinding[total];
+            int pos = 0;
+            for (CompletableFuture<SnmpResult> part : parts) {
+                VariableBinding[] b = part.join().bindings;
+                System.arraycopy(b, 0, merged, pos, b.length);
+                pos += b.length;
+            }
+            return SnmpResult.of(merged);
+        });
+    }
+}
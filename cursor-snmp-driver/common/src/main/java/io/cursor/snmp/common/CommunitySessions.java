@@ -0,0 +1,116 @@
+package io.cursor.snmp.common;
+
+import java.io.IOException;
+import java.net.SocketException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.snmp4j.MessageDispatcher;
+import org.snmp4j.MessageDispatcherImpl;
+import org.snmp4j.Snmp;
+import org.snmp4j.mp.MPv1;
+import org.snmp4j.mp.MPv2c;
+import org.snmp4j.smi.Address;
+import org.snmp4j.transport.DefaultUdpTransportMapping;
+import org.snmp4j.util.MultiThreadedMessageDispatcher;
+import org.snmp4j.util.ThreadPool;
+
+/**
+ * The shared v1/v2c sessions, optionally sharded over several UDP sockets.
+ * <p>
+ * Configured once at first use with system properties:
+ * <ul>
+ * <li>{@value #TRANSPORTS_PROPERTY} (default 1): number of sessions, each with its own socket, listen thread and
+ * request table;</li>
+ * <li>{@value #SHARD_BY_PROPERTY}: {@code hash} (default) keeps each agent on one socket, {@code roundRobin} spreads
+ * successive calls over all sockets;</li>
+ * <li>{@value #DISPATCHER_THREADS_PROPERTY} (default 0): when positive, responses are decoded and matched on a
+ * pool of that many threads, split across the sessions, instead of on each socket's listen thread;</li>
+ * <li>{@value #RCVBUF_PROPERTY} / {@value #SNDBUF_PROPERTY} (bytes, default 0 = OS default): {@code SO_RCVBUF} and
+ * {@code SO_SNDBUF} for every socket. The OS may cap the values (on Linux, {@code net.core.rmem_max}).</li>
+ * </ul>
+ */
+final class CommunitySessions {
+    static final String TRANSPORTS_PROPERTY = "cursor.snmp.transports";
+    static final String SHARD_BY_PROPERTY = "cursor.snmp.shardBy";
+    static final String DISPATCHER_THREADS_PROPERTY = "cursor.snmp.dispatcherThreads";
+    static final String RCVBUF_PROPERTY = "cursor.snmp.rcvBuf";
+    static final String SNDBUF_PROPERTY = "cursor.snmp.sndBuf";
+
+    private final Snmp[] sessions;
+    private final ThreadPool[] pools;
+    private final boolean roundRobin;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /** UDP transport that also applies {@code SO_SNDBUF} once its socket is open. */
+    private static final class TunedUdpTransportMapping extends DefaultUdpTransportMapping {
+        private final int sendBufferSize;
+
+        TunedUdpTransportMapping(int receiveBufferSize, int sendBufferSize) throws IOException {
+            super();
+            this.sendBufferSize = sendBufferSize;
+            if (receiveBufferSize > 0) {
+                setReceiveBufferSize(receiveBufferSize);
+            }
+        }
+
+        @Override
+        public synchronized void listen() throws IOException {
+            super.listen();
+            if (sendBufferSize > 0 && socket != null) {
+                try {
+                    socket.setSendBufferSize(sendBufferSize);
+                } catch (SocketException ignored) {
+                }
+            }
+        }
+    }
+
+    CommunitySessions() throws IOException {
+        int count = Math.max(1, Integer.getInteger(TRANSPORTS_PROPERTY, 1));
+        int threads = Math.max(0, Integer.getInteger(DISPATCHER_THREADS_PROPERTY, 0));
+        int rcvBuf = Math.max(0, Integer.getInteger(RCVBUF_PROPERTY, 0));
+        int sndBuf = Math.max(0, Integer.getInteger(SNDBUF_PROPERTY, 0));
+        roundRobin = "roundRobin".equalsIgnoreCase(System.getProperty(SHARD_BY_PROPERTY, "hash"));
+        sessions = new Snmp[count];
+        pools = new ThreadPool[count];
+        try {
+            for (int i = 0; i < count; i++) {
+                MessageDispatcher dispatcher = new MessageDispatcherImpl();
+                if (threads > 0) {
+                    pools[i] = ThreadPool.create("cursorSNMP-dispatch-" + i, Math.max(1, threads / count));
+                    dispatcher = new MultiThreadedMessageDispatcher(pools[i], dispatcher);
+                }
+                dispatcher.addMessageProcessingModel(new MPv1());
+                dispatcher.addMessageProcessingModel(new MPv2c());
+                sessions[i] = new Snmp(dispatcher, new TunedUdpTransportMapping(rcvBuf, sndBuf));
+                sessions[i].listen();
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /** The session for calls to {@code address}. */
+    Snmp forAddress(Address address) {
+        if (sessions.length == 1) {
+            return sessions[0];
+        }
+        int i = roundRobin ? next.getAndIncrement() : address.hashCode();
+        return sessions[Math.floorMod(i, sessions.length)];
+    }
+
+    void close() {
+        for (int i = 0; i < sessions.length; i++) {
+            if (sessions[i] != null) {
+                try {
+                    sessions[i].close();
+                } catch (IOException ignored) {
+                }
+            }
+            if (pools[i] != null) {
+                pools[i].stop();
+            }
+        }
+    }
+}
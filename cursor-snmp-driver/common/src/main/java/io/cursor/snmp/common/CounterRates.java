@@ -0,0 +1,262 @@
+package io.cursor.snmp.common;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.inductiveautomation.ignition.common.BasicDataset;
+import com.inductiveautomation.ignition.common.Dataset;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.SMIConstants;
+import org.snmp4j.smi.Variable;
+import org.snmp4j.smi.VariableBinding;
+
+/**
+ * Per-second rates of SNMP counters, computed on the gateway from successive gets.
+ * <p>
+ * Each (agent, OID) keeps its last counter value and a ring of recent intervals ({@value #HISTORY_PROPERTY},
+ * default {@value #DEFAULT_HISTORY}) in primitive arrays: end time, length and counter increase. The rate is the
+ * increase of the latest interval divided by its length. The average covers every interval that ended within
+ * {@code window=N} ms (default {@value #DEFAULT_WINDOW_MS}) and is weighted by time. A Counter32 that goes down is
+ * taken to have wrapped at 2^32. A Counter64 that goes down, a change of type, an exception value, and an agent
+ * restart (sysUpTime, requested with every get, going down) all clear the history: that sample only starts a new
+ * series.
+ * <p>
+ * The result has one row per OID with the columns {@code oid}, {@code value} (native value, see {@link TypedResults}),
+ * {@code rate} and {@code average} (per second, {@code Double}), {@code samples} (intervals in the average) and
+ * {@code status}: {@code OK}, {@code wrap}, {@code first}, {@code reset}, {@code notCounter} (gauges and other
+ * types, value only) or the exception syntax. A failed get returns a single row whose {@code status} is the error.
+ * Agents and counters not read for {@link #IDLE_TIMEOUT_MS} are forgotten.
+ */
+final class CounterRates {
+    static final String HISTORY_PROPERTY = "cursor.snmp.rateHistory";
+    static final int DEFAULT_HISTORY = 64;
+    static final long DEFAULT_WINDOW_MS = 60_000L;
+    static final long IDLE_TIMEOUT_MS = 60L * 60L * 1000L;
+    static final OID SYS_UP_TIME = new OID("1.3.6.1.2.1.1.3.0");
+
+    private static final int HISTORY = Math.max(2, Integer.getInteger(HISTORY_PROPERTY, DEFAULT_HISTORY));
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private static final List<String> NAMES = List.of("oid", "value", "rate", "average", "samples", "status");
+    private static final List<Class<?>> TYPES =
+            List.of(String.class, Object.class, Double.class, Double.class, Integer.class, String.class);
+
+    private static final ConcurrentHashMap<String, Agent> AGENTS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Series> SERIES = new ConcurrentHashMap<>();
+
+    private CounterRates() {
+    }
+
+    /** Restart tracking for one agent; {@link #epoch} moves on every restart. */
+    private static final class Agent {
+        long upTime = -1;
+        int epoch;
+        volatile long lastUsed;
+
+        synchronized int update(long newUpTime) {
+            if (newUpTime >= 0) {
+                if (upTime >= 0 && newUpTime < upTime) {
+                    epoch++;
+                }
+                upTime = newUpTime;
+            }
+            return epoch;
+        }
+    }
+
+    /** One counter: the last raw value and a ring of intervals. */
+    private static final class Series {
+        final long[] endNanos = new long[HISTORY];
+        final long[] lengthNanos = new long[HISTORY];
+        final double[] increase = new double[HISTORY];
+        int head;
+        int count;
+        int syntax = -1;
+        int epoch;
+        long last;
+        long lastNanos;
+        volatile long lastUsed;
+
+        void reset(int syntax, int epoch, long value, long nanos) {
+            this.syntax = syntax;
+            this.epoch = epoch;
+            this.last = value;
+            this.lastNanos = nanos;
+            this.count = 0;
+        }
+
+        void push(long end, long length, double delta) {
+            head = (head + 1) % HISTORY;
+            endNanos[head] = end;
+            lengthNanos[head] = length;
+            increase[head] = delta;
+            if (count < HISTORY) {
+                count++;
+            }
+        }
+    }
+
+    /** The oids to request: {@code oids} followed by sysUpTime.0. */
+    static VariableBinding[] bindings(String[] oids) {
+        VariableBinding[] bindings = new VariableBinding[oids.length + 1];
+        for (int i = 0; i < oids.length; i++) {
+            bindings[i] = new VariableBinding(new OID(oids[i]));
+        }
+        bindings[oids.length] = new VariableBinding(SYS_UP_TIME);
+        return bindings;
+    }
+
+    /** Folds {@code result} (for {@link #bindings}) into the series of {@code agentKey} and returns the rates. */
+    static Dataset update(String agentKey, String[] oids, SnmpResult result, long windowMs) {
+        return update(agentKey, oids, result, windowMs, System.nanoTime());
+    }
+
+    /** {@link #update(String, String[], SnmpResult, long)} at {@code now} on the {@link System#nanoTime} scale. */
+    static Dataset update(String agentKey, String[] oids, SnmpResult result, long windowMs, long now) {
+        if (result.isError()) {
+            return error(result.error);
+        }
+        Agent agent = agent(agentKey);
+        VariableBinding upTime = result.bindings.length > oids.length ? result.bindings[oids.length] : null;
+        int epoch = agent.update(upTime == null || upTime.getVariable().isException()
+                ? -1 : upTime.getVariable().toLong());
+        long windowStart = now - Math.max(0, windowMs) * 1_000_000L;
+
+        Object[][] data = new Object[NAMES.size()][oids.length];
+        for (int i = 0; i < oids.length; i++) {
+            data[0][i] = oids[i];
+            VariableBinding vb = i < result.bindings.length ? result.bindings[i] : null;
+            if (vb == null) {
+                data[5][i] = "noSuchObject";
+                continue;
+            }
+            Variable v = vb.getVariable();
+            if (v.isException()) {
+                data[5][i] = v.getSyntaxString();
+                SERIES.remove(agentKey + "|" + oids[i]);
+                continue;
+            }
+            int syntax = v.getSyntax();
+            if (syntax != SMIConstants.SYNTAX_COUNTER32 && syntax != SMIConstants.SYNTAX_COUNTER64) {
+                data[1][i] = CursorSNMPDriverModule.nativeValue(v);
+                data[5][i] = "notCounter";
+                continue;
+            }
+            long value = v.toLong();
+            data[1][i] = value;
+            Series series = series(agentKey + "|" + oids[i]);
+            synchronized (series) {
+                series.lastUsed = System.currentTimeMillis();
+                data[5][i] = sample(series, syntax, epoch, value, now);
+                if (series.count > 0 && series.endNanos[series.head] == now) {
+                    data[2][i] = series.increase[series.head] * NANOS_PER_SECOND / series.lengthNanos[series.head];
+                }
+                double increase = 0;
+                long length = 0;
+                int samples = 0;
+                for (int k = 0, j = series.head; k < series.count; k++, j = (j - 1 + HISTORY) % HISTORY) {
+                    if (series.endNanos[j] < windowStart) {
+                        break;
+                    }
+                    increase += series.increase[j];
+                    length += series.lengthNanos[j];
+                    samples++;
+                }
+                data[3][i] = length > 0 ? increase * NANOS_PER_SECOND / length : null;
+                data[4][i] = samples;
+            }
+        }
+        return new BasicDataset(NAMES, TYPES, data);
+    }
+
+    static void clear() {
+        AGENTS.clear();
+        SERIES.clear();
+    }
+
+    private static String sample(Series series, int syntax, int epoch, long value, long now) {
+        if (series.syntax < 0) {
+            series.reset(syntax, epoch, value, now);
+            return "first";
+        }
+        if (series.syntax != syntax || series.epoch != epoch) {
+            series.reset(syntax, epoch, value, now);
+            return "reset";
+        }
+        long length = now - series.lastNanos;
+        if (length <= 0) {
+            return "OK";
+        }
+        String status = "OK";
+        double delta;
+        if (syntax == SMIConstants.SYNTAX_COUNTER32) {
+            long d = value - series.last;
+            if (d < 0) {
+                d += 1L << 32;
+                status = "wrap";
+            }
+            delta = d;
+        } else {
+            if (Long.compareUnsigned(value, series.last) < 0) {
+                series.reset(syntax, epoch, value, now);
+                return "reset";
+            }
+            long d = value - series.last;
+            delta = d >= 0 ? d : (double) (d >>> 1) * 2.0 + (d & 1);
+        }
+        series.push(now, length, delta);
+        series.last = value;
+        series.lastNanos = now;
+        return status;
+    }
+
+    private static Agent agent(String key) {
+        Agent agent = AGENTS.get(key);
+        if (agent == null) {
+            expireIdle();
+            agent = AGENTS.computeIfAbsent(key, k -> new Agent());
+        }
+        agent.lastUsed = System.currentTimeMillis();
+        return agent;
+    }
+
+    private static Series series(String key) {
+        Series series = SERIES.get(key);
+        if (series == null) {
+            expireIdle();
+            series = SERIES.computeIfAbsent(key, k -> new Series());
+        }
+        return series;
+    }
+
+    static Dataset error(String message) {
+        Object[][] data = new Object[NAMES.size()][1];
+        data[5][0] = message;
+        return new BasicDataset(NAMES, TYPES, data);
+    }
+
+    private static void expireIdle() {
+        expireIdle(System.currentTimeMillis());
+    }
+
+    /** Forgets agents and counters last read more than {@link #IDLE_TIMEOUT_MS} before {@code now}. */
+    static void expireIdle(long now) {
+        long cutoff = now - IDLE_TIMEOUT_MS;
+        Iterator<Map.Entry<String, Series>> it = SERIES.entrySet().iterator();
+        while (it.hasNext()) {
+            long lastUsed = it.next().getValue().lastUsed;
+            if (lastUsed != 0 && lastUsed < cutoff) {
+                it.remove();
+            }
+        }
+        Iterator<Map.Entry<String, Agent>> agents = AGENTS.entrySet().iterator();
+        while (agents.hasNext()) {
+            long lastUsed = agents.next().getValue().lastUsed;
+            if (lastUsed != 0 && lastUsed < cutoff) {
+                agents.remove();
+            }
+        }
+    }
+}
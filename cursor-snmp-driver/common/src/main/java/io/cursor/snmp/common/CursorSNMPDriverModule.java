@@ -12,14 +12,24 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import com.inductiveautomation.ignition.common.BasicDataset;
+import com.inductiveautomation.ignition.common.Dataset;
 
 import org.snmp4j.CommunityTarget;
 import org.snmp4j.UserTarget;
 import org.snmp4j.PDU;
 import org.snmp4j.ScopedPDU;
 import org.snmp4j.Snmp;
+import org.snmp4j.Target;
 import org.snmp4j.event.ResponseEvent;
-import org.snmp4j.mp.MPv3;
+import org.snmp4j.event.ResponseListener;
 import org.snmp4j.mp.SnmpConstants;
 import org.snmp4j.security.AuthHMAC128SHA224;
 import org.snmp4j.security.AuthHMAC192SHA256;
@@ -32,18 +42,16 @@ import org.snmp4j.security.PrivAES192;
 import org.snmp4j.security.PrivAES256;
 import org.snmp4j.security.PrivDES;
 import org.snmp4j.security.SecurityLevel;
-import org.snmp4j.security.SecurityModels;
 import org.snmp4j.security.SecurityProtocols;
-import org.snmp4j.security.USM;
 import org.snmp4j.security.UsmUser;
 import org.snmp4j.smi.Address;
 import org.snmp4j.smi.GenericAddress;
 import org.snmp4j.smi.OID;
 import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.Variable;
 import org.snmp4j.smi.VariableBinding;
-import org.snmp4j.transport.DefaultUdpTransportMapping;
-import org.snmp4j.util.DefaultPDUFactory;
 import org.snmp4j.util.TreeEvent;
+import org.snmp4j.util.TreeListener;
 import org.snmp4j.util.TreeUtils;
 
 public class CursorSNMPDriverModule {
@@ -53,14 +61,29 @@ public class CursorSNMPDriverModule {
     public static final long DEFAULT_TIMEOUT = 3000L;
     public static final int DEFAULT_RETRY = 1;
     public static final int DEFAULT_AUTH_LVL = SecurityLevel.NOAUTH_NOPRIV;
+    public static final int DEFAULT_GET_MANY_CONCURRENCY = 64;
+    public static final int DEFAULT_DISCOVER_V3_THREADS = 32;
 
-    /** Shared UDP + Snmp for v1/v2c: avoids per-tag listen()/close() overhead. */
+    /** Shared UDP + Snmp for v1/v2c (see {@link CommunitySessions}): avoids per-tag listen()/close() overhead. */
     private static final Object COMMUNITY_INIT_LOCK = new Object();
-    private static volatile CommunitySnmpHolder communityHolder;
+    private static volatile CommunitySessions communitySessions;
+
+    /** Small daemon pool that runs completion callbacks off the SNMP4J dispatch thread. */
+    private static final int CALLBACK_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private static volatile ExecutorService callbackExecutor;
+
+    /** Pooled v3 sessions: USM users, localized keys and engine IDs survive across calls. */
+    private static final V3SessionPool V3_POOL = new V3SessionPool(V3SessionPool.DEFAULT_IDLE_TIMEOUT_MS);
+
+    /** usmStats (RFC 3414); a report's first binding is one of its counters, in the order of the names. */
+    private static final OID USM_STATS = new OID("1.3.6.1.6.3.15.1.1");
+    private static final String[] USM_STATS_NAMES = { "usmStatsUnsupportedSecLevels", "usmStatsNotInTimeWindows",
+            "usmStatsUnknownUserNames", "usmStatsUnknownEngineIDs", "usmStatsWrongDigests",
+            "usmStatsDecryptionErrors" };
 
     /**
-     * Striped locks so concurrent v3 calls to different agents do not serialize globally,
-     * while same (host, user, credentials) stays ordered for USM safety.
+     * Striped locks so first-contact engine discovery for the same (host, user, credentials) runs once,
+     * while discovery against different agents proceeds in parallel.
      */
     private static final int V3_STRIPE_COUNT = 64;
     private static final Object[] V3_STRIPES = new Object[V3_STRIPE_COUNT];
@@ -71,46 +94,63 @@ public class CursorSNMPDriverModule {
         }
     }
 
-    private static final class CommunitySnmpHolder {
-        final Snmp snmp;
-
-        CommunitySnmpHolder() throws IOException {
-            DefaultUdpTransportMapping transport = new DefaultUdpTransportMapping();
-            snmp = new Snmp(transport);
-            snmp.listen();
+    /**
+     * Releases the shared community SNMP session. Invoke from the gateway module {@code shutdown()}
+     * so reload/uninstall does not leave a listening UDP socket behind.
+     */
+    public static void shutdown() {
+        synchronized (COMMUNITY_INIT_LOCK) {
+            if (communitySessions != null) {
+                communitySessions.close();
+                communitySessions = null;
+            }
         }
-
-        void close() {
-            try {
-                snmp.close();
-            } catch (IOException ignored) {
+        V3_POOL.closeAll();
+        ResponseCache.clear();
+        HostHealth.clear();
+        PreparedRequests.clear();
+        DeltaSnapshots.clear();
+        CounterRates.clear();
+        Discovery.clear();
+        RateLimits.clear();
+        synchronized (COMMUNITY_INIT_LOCK) {
+            if (callbackExecutor != null) {
+                callbackExecutor.shutdown();
+                callbackExecutor = null;
             }
         }
     }
 
     /**
-     * Releases the shared community SNMP session. Invoke from the gateway module {@code shutdown()}
-     * so reload/uninstall does not leave a listening UDP socket behind.
+     * Executor for script callbacks and other completion work that must not run on SNMP4J's listen thread.
      */
-    public static void shutdown() {
+    public static ExecutorService callbackExecutor() {
+        ExecutorService e = callbackExecutor;
+        if (e != null) {
+            return e;
+        }
         synchronized (COMMUNITY_INIT_LOCK) {
-            if (communityHolder != null) {
-                communityHolder.close();
-                communityHolder = null;
+            if (callbackExecutor == null) {
+                callbackExecutor = Executors.newFixedThreadPool(CALLBACK_THREADS, r -> {
+                    Thread t = new Thread(r, "cursorSNMP-callback");
+                    t.setDaemon(true);
+                    return t;
+                });
             }
+            return callbackExecutor;
         }
     }
 
-    private static Snmp communitySnmp() throws IOException {
-        CommunitySnmpHolder h = communityHolder;
-        if (h != null) {
-            return h.snmp;
+    private static Snmp communitySnmp(Address address) throws IOException {
+        CommunitySessions c = communitySessions;
+        if (c != null) {
+            return c.forAddress(address);
         }
         synchronized (COMMUNITY_INIT_LOCK) {
-            if (communityHolder == null) {
-                communityHolder = new CommunitySnmpHolder();
+            if (communitySessions == null) {
+                communitySessions = new CommunitySessions();
             }
-            return communityHolder.snmp;
+            return communitySessions.forAddress(address);
         }
     }
 
@@ -119,6 +159,102 @@ public class CursorSNMPDriverModule {
         return V3_STRIPES[(h & Integer.MAX_VALUE) % V3_STRIPE_COUNT];
     }
 
+    /** Everything a v3 call needs to reach the pooled session for its credential profile. */
+    static final class V3Call {
+        final UserTarget target;
+        final UsmUser usr;
+        final String username;
+        final OID authProt;
+        final String ip;
+        final int port;
+        final String credFingerprint;
+
+        V3Call(UserTarget target, UsmUser usr, String username, OID authProt, String ip, int port, String credFingerprint) {
+            this.target = target;
+            this.usr = usr;
+            this.username = username;
+            this.authProt = authProt;
+            this.ip = ip;
+            this.port = port;
+            this.credFingerprint = credFingerprint;
+        }
+
+        V3Call withTarget(UserTarget newTarget) {
+            return new V3Call(newTarget, usr, username, authProt, ip, port, credFingerprint);
+        }
+    }
+
+    static V3Call v3Call(
+            String ip,
+            int port,
+            int authLevel,
+            String user,
+            String pass,
+            int authProt,
+            int privProt,
+            String[] params) {
+        UserTarget target = createDefault(ip, authLevel, user, pass, port, params);
+        OID authProtocol = getAuthProtocol(authProt);
+        OID privProtocol = getPrivProtocol(privProt);
+        String privKey = extractPrivKey(params, pass);
+        UsmUser usr = buildUsmUser(user, authLevel, pass, privKey, authProtocol, privProtocol);
+        String credFp = v3CredentialFingerprint(authLevel, pass, privKey, authProt, privProt);
+        return new V3Call(target, usr, user, authProtocol, ip, port, credFp);
+    }
+
+    /**
+     * Acquires the pooled session for this credential profile and makes sure the agent's engine ID is known.
+     * Callers must hand the session back with {@link #releaseV3Session}.
+     *
+     * @throws V3SessionPool.EngineUnreachable when discovery failed now or recently; the session is released
+     */
+    static V3SessionPool.Session v3Session(V3Call call) throws IOException {
+        V3SessionPool.Session session = V3_POOL.acquire(call.username, call.credFingerprint, call.usr, call.authProt);
+        Address address = call.target.getAddress();
+        if (session.knowsEngine(address)) {
+            session.touch(address);
+            return session;
+        }
+        boolean cached = session.recentlyUnreachable(address);
+        boolean known = false;
+        if (!cached) {
+            long waitStart = System.nanoTime();
+            synchronized (v3Stripe(call.ip, call.port, call.username, call.credFingerprint)) {
+                SnmpStats.stripeWait(address, System.nanoTime() - waitStart);
+                cached = session.recentlyUnreachable(address);
+                known = session.discoverEngine(address, call.target.getTimeout());
+            }
+        }
+        if (!known) {
+            releaseV3Session(session);
+            throw new V3SessionPool.EngineUnreachable(address, cached);
+        }
+        return session;
+    }
+
+    static void releaseV3Session(V3SessionPool.Session session) {
+        if (session != null) {
+            V3_POOL.release(session);
+        }
+    }
+
+    /**
+     * USM user for the given credentials, built exactly as for outbound v3 calls (same {@code authProt}/
+     * {@code privProt} codes and {@code privKey} param), with the auth protocol registered. Used by gateway
+     * components such as the trap receiver that run their own USM.
+     */
+    public static UsmUser snmpUsmUser(
+            String user,
+            int authLevel,
+            String pass,
+            int authProt,
+            int privProt,
+            String[] params) {
+        OID authProtocol = getAuthProtocol(authProt);
+        registerAuthProtocolsForV3(authProtocol);
+        return buildUsmUser(user, authLevel, pass, extractPrivKey(params, pass), authProtocol, getPrivProtocol(privProt));
+    }
+
     private static String v3CredentialFingerprint(
             int authLevel, String pass, String privKey, int authProtCode, int privProtCode) {
         return authLevel + "\0" + pass + "\0" + privKey + "\0" + authProtCode + "\0" + privProtCode;
@@ -148,6 +284,8 @@ public class CursorSNMPDriverModule {
                     target.setTimeout(Long.parseLong(val));
                 } else if (key.equalsIgnoreCase("retry")) {
                     target.setRetries(Integer.parseInt(val));
+                } else if (key.equalsIgnoreCase("maxPduSize")) {
+                    target.setMaxSizeRequestPDU(Integer.parseInt(val));
                 }
             } catch (NumberFormatException ignored) {
             }
@@ -193,6 +331,7 @@ public class CursorSNMPDriverModule {
         target.setRetries(DEFAULT_RETRY);
 
         applyCommunityTargetOptions(target, params);
+        AdaptiveTimeouts.apply(target, params);
         return target;
     }
 
@@ -207,9 +346,32 @@ public class CursorSNMPDriverModule {
         target.setSecurityName(new OctetString(user));
 
         applyUserTargetOptions(target, params);
+        AdaptiveTimeouts.apply(target, params);
         return target;
     }
 
+    /** A modifiable copy, for per-call timeout changes on a shared target. */
+    static CommunityTarget copyTarget(CommunityTarget target) {
+        CommunityTarget copy = new CommunityTarget(target.getAddress(), target.getCommunity());
+        copy.setVersion(target.getVersion());
+        copy.setTimeout(target.getTimeout());
+        copy.setRetries(target.getRetries());
+        copy.setMaxSizeRequestPDU(target.getMaxSizeRequestPDU());
+        return copy;
+    }
+
+    static UserTarget copyTarget(UserTarget target) {
+        UserTarget copy = new UserTarget();
+        copy.setAddress(target.getAddress());
+        copy.setVersion(target.getVersion());
+        copy.setSecurityLevel(target.getSecurityLevel());
+        copy.setSecurityName(target.getSecurityName());
+        copy.setTimeout(target.getTimeout());
+        copy.setRetries(target.getRetries());
+        copy.setMaxSizeRequestPDU(target.getMaxSizeRequestPDU());
+        return copy;
+    }
+
     private static int getVersion(String s) {
         if (s.equalsIgnoreCase("1")) {
             return SnmpConstants.version1;
@@ -280,6 +442,35 @@ public class CursorSNMPDriverModule {
         return defaultPrivKey;
     }
 
+    /** Value of the first {@code key=value} entry in {@code params}, or {@code null}. */
+    public static String findParam(String[] params, String key) {
+        if (params == null) {
+            return null;
+        }
+        for (String param : params) {
+            if (param == null) {
+                continue;
+            }
+            int eq = param.indexOf('=');
+            if (eq > 0 && param.substring(0, eq).trim().equalsIgnoreCase(key)) {
+                return param.substring(eq + 1).trim();
+            }
+        }
+        return null;
+    }
+
+    public static int intParam(String[] params, String key, int defaultValue) {
+        String val = findParam(params, key);
+        if (val == null || val.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(val);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
     private static UsmUser buildUsmUser(
             String user,
             int authLevel,
@@ -306,7 +497,7 @@ public class CursorSNMPDriverModule {
         return new UsmUser(new OctetString(user), null, null, null, null);
     }
 
-    private static void registerAuthProtocolsForV3(OID authProt) {
+    static void registerAuthProtocolsForV3(OID authProt) {
         if (authProt != null && authProt.equals(AuthMD5.ID)) {
             SecurityProtocols.getInstance().addAuthenticationProtocol(new AuthMD5());
         } else if (authProt != null && authProt.equals(AuthSHA.ID)) {
@@ -316,28 +507,16 @@ public class CursorSNMPDriverModule {
         }
     }
 
-    private static USM createAndRegisterUsm(UsmUser usr, String username, OID authProt) {
-        registerAuthProtocolsForV3(authProt);
-        byte[] localEngineID = MPv3.createLocalEngineID();
-        USM usm = new USM(SecurityProtocols.getInstance(), new OctetString(localEngineID), 0);
-        usm.addUser(new OctetString(username), usr);
-        SecurityModels.getInstance().addSecurityModel(usm);
-        return usm;
-    }
-
-    private static void unregisterUsm(USM usm) {
-        if (usm != null) {
-            SecurityModels.getInstance().removeSecurityModel(usm.getID());
-        }
-    }
-
     public static String[] snmpWalk(String ip, int port, String startOID, String[] params) {
         if (params == null || params.length == 0 || params[0] == null) {
             return new String[] { "[W000] Error: community string required as first parameter" };
         }
         String community = params[0];
         CommunityTarget target = createDefault(ip, community, port, params);
-        return walk(target, new OID(startOID));
+        return ResponseCache.get(
+                ResponseCache.key("walk", ip, port, new String[] { startOID }, params),
+                ResponseCache.ttl(params),
+                () -> walk(target, new OID(startOID), params));
     }
 
     public static String[] snmpWalkV3(
@@ -350,13 +529,8 @@ public class CursorSNMPDriverModule {
             int authProt,
             int privProt,
             String[] params) {
-        UserTarget target = createDefault(ip, authLevel, user, pass, port, params);
-        OID authProtocol = getAuthProtocol(authProt);
-        OID privProtocol = getPrivProtocol(privProt);
-        String privKey = extractPrivKey(params, pass);
-        UsmUser usr = buildUsmUser(user, authLevel, pass, privKey, authProtocol, privProtocol);
-        String credFp = v3CredentialFingerprint(authLevel, pass, privKey, authProt, privProt);
-        return walkV3(target, new OID(startOID), usr, user, authProtocol, ip, port, credFp);
+        V3Call call = v3Call(ip, port, authLevel, user, pass, authProt, privProt, params);
+        return walkV3(call, new OID(startOID), params);
     }
 
     public static String[] snmpGet(String ip, int port, String[] oids, String[] params) {
@@ -365,9 +539,155 @@ public class CursorSNMPDriverModule {
         }
         String community = params[0];
         CommunityTarget target = createDefault(ip, community, port, params);
-        PDU pdu = new PDU();
-        pdu.addAll(getBindings(oids));
-        return get(pdu, target);
+        return ResponseCache.get(
+                ResponseCache.key("get", ip, port, oids, params),
+                ResponseCache.ttl(params),
+                () -> getChunked(target, getBindings(oids), params).join().toStrings());
+    }
+
+    /**
+     * Non-blocking {@link #snmpGet}: the request is sent on the shared community session and the future completes
+     * from SNMP4J's response listener, so no thread waits for the agent. Errors complete the future normally with
+     * the same {@code [Gxxx]} strings as the blocking call.
+     */
+    public static CompletableFuture<String[]> snmpGetAsync(String ip, int port, String[] oids, String[] params) {
+        if (params == null || params.length == 0 || params[0] == null) {
+            return CompletableFuture.completedFuture(
+                    new String[] { "[G000] Error: community string required as first parameter" });
+        }
+        String community = params[0];
+        CommunityTarget target = createDefault(ip, community, port, params);
+        return ResponseCache.getAsync(
+                ResponseCache.key("get", ip, port, oids, params),
+                ResponseCache.ttl(params),
+                () -> getChunked(target, getBindings(oids), params).thenApply(SnmpResult::toStrings));
+    }
+
+    /**
+     * Binding-level {@link #snmpGetAsync} for gateway components (poll engine, rate engine) that need the SNMP
+     * types rather than strings.
+     */
+    public static CompletableFuture<SnmpResult> snmpGetResultAsync(String ip, int port, String[] oids, String[] params) {
+        if (params == null || params.length == 0 || params[0] == null) {
+            return CompletableFuture.completedFuture(
+                    SnmpResult.error("[G000] Error: community string required as first parameter"));
+        }
+        String community = params[0];
+        CommunityTarget target = createDefault(ip, community, port, params);
+        return getChunked(target, getBindings(oids), params);
+    }
+
+    /** Native Java value of an SNMP variable ({@code Long}, {@code String} or {@code byte[]}); see {@link TypedResults}. */
+    public static Object nativeValue(Variable variable) {
+        return variable == null || variable.isException() ? null : TypedResults.nativeValue(variable);
+    }
+
+    /**
+     * Gets the same OIDs from many agents over the shared community session. At most {@code concurrency}
+     * (param, default {@value #DEFAULT_GET_MANY_CONCURRENCY}) requests are in flight at once. Targets are
+     * {@code host} or {@code host:port} (default port 161); params are as for {@link #snmpGet}.
+     *
+     * @return one row per target: a {@code target} column, one string column per OID and a {@code status}
+     * column holding {@code OK} or the {@code [Gxxx]} error for that target
+     */
+    public static Dataset snmpGetMany(String[] targets, String[] oids, String[] params) {
+        int rows = targets == null ? 0 : targets.length;
+        int cols = oids == null ? 0 : oids.length;
+        Object[][] data = new Object[cols + 2][rows];
+        if (params == null || params.length == 0 || params[0] == null) {
+            for (int r = 0; r < rows; r++) {
+                data[0][r] = targets[r];
+                data[cols + 1][r] = "[G000] Error: community string required as first parameter";
+            }
+            return getManyDataset(oids, data);
+        }
+        String community = params[0];
+        Semaphore permits = new Semaphore(Math.max(1, intParam(params, "concurrency", DEFAULT_GET_MANY_CONCURRENCY)));
+        VariableBinding[] bindings = getBindings(oids);
+        List<CompletableFuture<Void>> pending = new ArrayList<>(rows);
+
+        for (int r = 0; r < rows; r++) {
+            final int row = r;
+            data[0][row] = targets[row];
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                data[cols + 1][row] = "[G002] Error: interrupted";
+                continue;
+            }
+            CompletableFuture<SnmpResult> request;
+            try {
+                String[] hostPort = splitHostPort(targets[row], 161);
+                CommunityTarget target = createDefault(hostPort[0], community, Integer.parseInt(hostPort[1]), params);
+                request = getChunked(target, bindings, params);
+            } catch (Exception e) {
+                request = CompletableFuture.completedFuture(
+                        SnmpResult.error("[G002] Error: " + e.getClass().getSimpleName() + ": " + e.getMessage()));
+            }
+            pending.add(request.thenAccept(result -> {
+                permits.release();
+                if (result.isError()) {
+                    data[cols + 1][row] = result.error;
+                } else {
+                    for (int c = 0; c < cols && c < result.bindings.length; c++) {
+                        data[c + 1][row] = String.valueOf(result.bindings[c].getVariable());
+                    }
+                    data[cols + 1][row] = "OK";
+                }
+            }));
+        }
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).join();
+        return getManyDataset(oids, data);
+    }
+
+    private static Dataset getManyDataset(String[] oids, Object[][] data) {
+        List<String> names = new ArrayList<>();
+        List<Class<?>> types = new ArrayList<>();
+        names.add("target");
+        types.add(String.class);
+        if (oids != null) {
+            for (String oid : oids) {
+                names.add(oid);
+                types.add(String.class);
+            }
+        }
+        names.add("status");
+        types.add(String.class);
+        return new BasicDataset(names, types, data);
+    }
+
+    /**
+     * Splits {@code host}, {@code host:port} or {@code [v6]:port}; a bare IPv6 address keeps the default port.
+     */
+    static String[] splitHostPort(String target, int defaultPort) {
+        String t = target.trim();
+        if (t.startsWith("[")) {
+            int close = t.indexOf(']');
+            String host = t.substring(1, close);
+            return new String[] { host, close + 2 <= t.length() ? t.substring(close + 2) : String.valueOf(defaultPort) };
+        }
+        int colon = t.indexOf(':');
+        if (colon > 0 && colon == t.lastIndexOf(':')) {
+            return new String[] { t.substring(0, colon), t.substring(colon + 1) };
+        }
+        return new String[] { t, String.valueOf(defaultPort) };
+    }
+
+    /**
+     * Non-blocking {@link #snmpWalk} built on {@link TreeUtils#walk}; the future completes once the subtree ends.
+     */
+    public static CompletableFuture<String[]> snmpWalkAsync(String ip, int port, String startOID, String[] params) {
+        if (params == null || params.length == 0 || params[0] == null) {
+            return CompletableFuture.completedFuture(
+                    new String[] { "[W000] Error: community string required as first parameter" });
+        }
+        String community = params[0];
+        CommunityTarget target = createDefault(ip, community, port, params);
+        return ResponseCache.getAsync(
+                ResponseCache.key("walk", ip, port, new String[] { startOID }, params),
+                ResponseCache.ttl(params),
+                () -> walkAsync(target, new OID(startOID), params));
     }
 
     public static String[] snmpGetV3(
@@ -380,15 +700,410 @@ public class CursorSNMPDriverModule {
             int authProt,
             int privProt,
             String[] params) {
-        UserTarget target = createDefault(ip, authLevel, user, pass, port, params);
-        OID authProtocol = getAuthProtocol(authProt);
-        OID privProtocol = getPrivProtocol(privProt);
-        String privKey = extractPrivKey(params, pass);
-        PDU pdu = new ScopedPDU();
-        pdu.addAll(getBindings(oids));
-        UsmUser usr = buildUsmUser(user, authLevel, pass, privKey, authProtocol, privProtocol);
-        String credFp = v3CredentialFingerprint(authLevel, pass, privKey, authProt, privProt);
-        return getV3(pdu, target, usr, user, authProtocol, ip, port, credFp);
+        V3Call call = v3Call(ip, port, authLevel, user, pass, authProt, privProt, params);
+        String quarantined = HostHealth.check(call.target, params);
+        if (quarantined != null) {
+            return new String[] { quarantined };
+        }
+        return getV3(call, getBindings(oids), params).toStrings();
+    }
+
+    /**
+     * Typed variant of {@link #snmpGet}: values are returned natively instead of as strings and errors go to a
+     * separate status column; see {@link TypedResults}.
+     */
+    public static Dataset snmpGetTyped(String ip, int port, String[] oids, String[] params) {
+        if (params == null || params.length == 0 || params[0] == null) {
+            return TypedResults.error("[G000] Error: community string required as first parameter");
+        }
+        String community = params[0];
+        CommunityTarget target = createDefault(ip, community, port, params);
+        return TypedResults.fromResult(getChunked(target, getBindings(oids), params).join());
+    }
+
+    public static Dataset snmpGetTypedV3(
+            String ip,
+            int port,
+            String[] oids,
+            int authLevel,
+            String user,
+            String pass,
+            int authProt,
+            int privProt,
+            String[] params) {
+        V3Call call = v3Call(ip, port, authLevel, user, pass, authProt, privProt, params);
+        String quarantined = HostHealth.check(call.target, params);
+        if (quarantined != null) {
+            return TypedResults.error(quarantined);
+        }
+        return TypedResults.fromResult(getV3(call, getBindings(oids), params));
+    }
+
+    /** Typed variant of {@link #snmpWalk}; see {@link TypedResults}. */
+    public static Dataset snmpWalkTyped(String ip, int port, String startOID, String[] params) {
+        if (params == null || params.length == 0 || params[0] == null) {
+            return TypedResults.error("[W000] Error: community string required as first parameter");
+        }
+        String community = params[0];
+        CommunityTarget target = createDefault(ip, community, port, params);
+        String refused = admit(target, params);
+        if (refused != null) {
+            return TypedResults.error(refused);
+        }
+        try {
+            Snmp snmp = communitySnmp(target.getAddress());
+            return TypedResults.fromEvents(
+                    subtree(snmp, target, new OID(startOID), params, () -> probe(target)), "[W001]");
+        } catch (Exception e) {
+            return TypedResults.error("[W002] Error: " + e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+    }
+
+    public static Dataset snmpWalkTypedV3(
+            String ip,
+            int port,
+            String startOID,
+            int authLevel,
+            String user,
+            String pass,
+            int authProt,
+            int privProt,
+            String[] params) {
+        V3Call call = v3Call(ip, port, authLevel, user, pass, authProt, privProt, params);
+        String refused = admit(call.target, params);
+        if (refused != null) {
+            return TypedResults.error(refused);
+        }
+        V3SessionPool.Session session = null;
+        try {
+            session = v3Session(call);
+            return TypedResults.fromEvents(
+                    subtree(session.snmp, call.target, new OID(startOID), params, () -> probe(call)), "[WV02]");
+        } catch (Exception e) {
+            return TypedResults.error("[WV03] Error: " + e.getClass().getSimpleName() + ": " + e.getMessage());
+        } finally {
+            releaseV3Session(session);
+        }
+    }
+
+    /**
+     * Opens a pageable walk over the shared community session; see {@link WalkCursors}.
+     *
+     * @return a cursor id for {@link #snmpWalkNext} and {@link #snmpWalkClose}
+     */
+    public static String snmpWalkOpen(String ip, int port, String startOID, String[] params) {
+        if (params == null || params.length == 0 || params[0] == null) {
+            return WalkCursors.openFailed("[W000] Error: community string required as first parameter");
+        }
+        String community = params[0];
+        CommunityTarget target = createDefault(ip, community, port, params);
+        String quarantined = HostHealth.check(target, params);
+        if (quarantined != null) {
+            return WalkCursors.openFailed(quarantined);
+        }
+        return WalkCursors.open(
+                new OID(startOID),
+                pdu -> {
+                    RateLimits.awaitOrThrow(target, params);
+                    return communitySnmp(target.getAddress()).send(pdu, target);
+                },
+                PDU::new,
+                BulkWalkTuning.maxRepetitions(target, params),
+                "[W001]");
+    }
+
+    public static String snmpWalkOpenV3(
+            String ip,
+            int port,
+            String startOID,
+            int authLevel,
+            String user,
+            String pass,
+            int authProt,
+            int privProt,
+            String[] params) {
+        V3Call call = v3Call(ip, port, authLevel, user, pass, authProt, privProt, params);
+        String quarantined = HostHealth.check(call.target, params);
+        if (quarantined != null) {
+            return WalkCursors.openFailed(quarantined);
+        }
+        return WalkCursors.open(
+                new OID(startOID),
+                pdu -> {
+                    RateLimits.awaitOrThrow(call.target, params);
+                    V3SessionPool.Session session = v3Session(call);
+                    try {
+                        return session.snmp.send(pdu, call.target);
+                    } finally {
+                        releaseV3Session(session);
+                    }
+                },
+                ScopedPDU::new,
+                BulkWalkTuning.maxRepetitions(call.target, params),
+                "[WV02]");
+    }
+
+    public static String[] snmpWalkNext(String cursorId, int maxRows) {
+        return WalkCursors.next(cursorId, maxRows);
+    }
+
+    public static boolean snmpWalkClose(String cursorId) {
+        return WalkCursors.close(cursorId);
+    }
+
+    /**
+     * Retrieves a conceptual table by column OIDs over the shared community session; see {@link TableResults}.
+     * {@code lowerBound}/{@code upperBound} params restrict the row index range, {@code maxRepetitions} and
+     * {@code maxVarbinds} size the GETBULK requests as for walks.
+     */
+    public static Dataset snmpGetTable(String ip, int port, String[] columnOIDs, String[] params) {
+        if (params == null || params.length == 0 || params[0] == null) {
+            return TableResults.error("[T000] Error: community string required as first parameter");
+        }
+        String community = params[0];
+        CommunityTarget target = createDefault(ip, community, port, params);
+        String refused = admit(target, params);
+        if (refused != null) {
+            return TableResults.error(refused);
+        }
+        try {
+            return TableResults.getTable(communitySnmp(target.getAddress()), target, columnOIDs, params, "[T001]");
+        } catch (Exception e) {
+            return TableResults.error("[T002] Error: " + e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+    }
+
+    public static Dataset snmpGetTableV3(
+            String ip,
+            int port,
+            String[] columnOIDs,
+            int authLevel,
+            String user,
+            String pass,
+            int authProt,
+            int privProt,
+            String[] params) {
+        V3Call call = v3Call(ip, port, authLevel, user, pass, authProt, privProt, params);
+        String refused = admit(call.target, params);
+        if (refused != null) {
+            return TableResults.error(refused);
+        }
+        V3SessionPool.Session session = null;
+        try {
+            session = v3Session(call);
+            return TableResults.getTable(session.snmp, call.target, columnOIDs, params, "[TV01]");
+        } catch (Exception e) {
+            return TableResults.error("[TV02] Error: " + e.getClass().getSimpleName() + ": " + e.getMessage());
+        } finally {
+            releaseV3Session(session);
+        }
+    }
+
+    /**
+     * Prepares a reusable v1/v2c get: the target, params and OIDs are parsed once and reused by every
+     * {@link #snmpExecute}; see {@link PreparedRequests}.
+     *
+     * @return a handle for {@link #snmpExecute} and {@link #snmpReleasePrepared}
+     */
+    public static String snmpPrepare(String ip, int port, String[] oids, String[] params) {
+        if (params == null || params.length == 0 || params[0] == null) {
+            return PreparedRequests.addFailed("[G000] Error: community string required as first parameter");
+        }
+        try {
+            CommunityTarget target = createDefault(ip, params[0], port, params);
+            return PreparedRequests.add(new PreparedRequests.Prepared(
+                    target, null, getBindings(oids), params, ResponseCache.key("get", ip, port, oids, params), null));
+        } catch (RuntimeException e) {
+            return PreparedRequests.addFailed("[PR02] Error: " + e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+    }
+
+    public static String snmpPrepareV3(
+            String ip,
+            int port,
+            String[] oids,
+            int authLevel,
+            String user,
+            String pass,
+            int authProt,
+            int privProt,
+            String[] params) {
+        try {
+            V3Call call = v3Call(ip, port, authLevel, user, pass, authProt, privProt, params);
+            return PreparedRequests.add(new PreparedRequests.Prepared(null, call, getBindings(oids), params, null, null));
+        } catch (RuntimeException e) {
+            return PreparedRequests.addFailed("[PR02] Error: " + e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+    }
+
+    /** Runs a prepared get; the result is the same string array {@code get}/{@code getV3} would return. */
+    public static String[] snmpExecute(String handle) {
+        PreparedRequests.Prepared prepared = PreparedRequests.get(handle);
+        if (prepared == null) {
+            return new String[] { PreparedRequests.UNKNOWN_HANDLE };
+        }
+        if (prepared.error != null) {
+            return new String[] { prepared.error };
+        }
+        String[] params = prepared.params;
+        if (prepared.v3Call != null) {
+            V3Call call = prepared.v3Call;
+            if (prepared.adaptive) {
+                call = call.withTarget(copyTarget(call.target));
+                AdaptiveTimeouts.apply(call.target, params);
+            }
+            String quarantined = HostHealth.check(call.target, params);
+            if (quarantined != null) {
+                return new String[] { quarantined };
+            }
+            return getV3(call, prepared.bindings, params).toStrings();
+        }
+        CommunityTarget target = prepared.target;
+        if (prepared.adaptive) {
+            target = copyTarget(target);
+            AdaptiveTimeouts.apply(target, params);
+        }
+        CommunityTarget t = target;
+        return ResponseCache.get(
+                prepared.cacheKey,
+                prepared.cacheTtl,
+                () -> getChunked(t, prepared.bindings, params).join().toStrings());
+    }
+
+    public static boolean snmpReleasePrepared(String handle) {
+        return PreparedRequests.release(handle);
+    }
+
+    /**
+     * {@link #snmpWalk} encoded as a delta against the result {@code clientId} last received for the same query
+     * (sequence {@code knownSeq}, {@code 0} for none); see {@link DeltaSnapshots}.
+     */
+    public static String[] snmpWalkDelta(
+            String clientId, long knownSeq, String ip, int port, String startOID, String[] params) {
+        String[] rows = snmpWalk(ip, port, startOID, params);
+        String queryKey = ResponseCache.key("walk", ip, port, new String[] { startOID }, params);
+        return DeltaSnapshots.encode(clientId, queryKey, knownSeq, rows, true);
+    }
+
+    /** {@link #snmpGet} encoded as a delta; see {@link #snmpWalkDelta}. */
+    public static String[] snmpGetDelta(
+            String clientId, long knownSeq, String ip, int port, String[] oids, String[] params) {
+        String[] rows = snmpGet(ip, port, oids, params);
+        return DeltaSnapshots.encode(clientId, ResponseCache.key("get", ip, port, oids, params), knownSeq, rows, false);
+    }
+
+    /**
+     * Sets the request rate limit for one agent, or for all requests together when {@code ip} is {@code *}; see
+     * {@link RateLimits}. {@code rateLimit} is in requests per second, {@code 0} removes the limit, and a
+     * {@code rateBurst} of {@code 0} means one second's worth. Limits live in gateway memory.
+     *
+     * @return {@code false} if the address cannot be parsed
+     */
+    public static boolean snmpSetRateLimit(String ip, int port, int rateLimit, int rateBurst) {
+        if ("*".equals(ip)) {
+            RateLimits.configureGlobal(rateLimit, rateBurst);
+            return true;
+        }
+        Address address = ip == null ? null : GenericAddress.parse(DEFAULT_PROTOCOL + ":" + ip + "/" + port);
+        if (address == null) {
+            return false;
+        }
+        RateLimits.configure(address, rateLimit, rateBurst);
+        return true;
+    }
+
+    /**
+     * Gets {@code oids} (and sysUpTime.0) and returns per-second rates from this and earlier calls for the same
+     * agent; {@code window=N} (ms) sets the averaging window. Never answered from the response cache. See
+     * {@link CounterRates}.
+     */
+    public static Dataset snmpGetRates(String ip, int port, String[] oids, String[] params) {
+        if (params == null || params.length == 0 || params[0] == null) {
+            return CounterRates.error("[G000] Error: community string required as first parameter");
+        }
+        String community = params[0];
+        CommunityTarget target = createDefault(ip, community, port, params);
+        SnmpResult result = getChunked(target, CounterRates.bindings(oids), params).join();
+        long windowMs = intParam(params, "window", (int) CounterRates.DEFAULT_WINDOW_MS);
+        return CounterRates.update(ip + ":" + port, oids, result, windowMs);
+    }
+
+    /**
+     * Starts a discovery sweep of {@code cidrs}, probing {@code oids} (default sysObjectID.0 and sysName.0) with
+     * each community until one answers; see {@link Discovery}. {@code port=N} (default 161), {@code timeout=N}
+     * (default {@value Discovery#DEFAULT_PROBE_TIMEOUT_MS} ms), {@code retry=N} (default 0), {@code version},
+     * {@code pps=N} and {@code concurrency=N} apply to the whole sweep.
+     *
+     * @return a sweep id for {@link #snmpDiscoverNext} and {@link #snmpDiscoverClose}
+     */
+    public static String snmpDiscover(String[] cidrs, String[] communities, String[] oids, String[] params) {
+        int port = intParam(params, "port", 161);
+        return Discovery.open(cidrs, communities, oids, params, (ip, community, bindings) -> {
+            CommunityTarget target = discoveryTarget(createDefault(ip, community, port, params), params);
+            PDU pdu = new PDU();
+            pdu.addAll(bindings);
+            return discoveryGet(pdu, target);
+        }, Discovery.DEFAULT_CONCURRENCY);
+    }
+
+    /**
+     * v3 variant of {@link #snmpDiscover} for one credential profile. Engine discovery blocks, so probes run on a
+     * pool shared by all sweeps and {@code concurrency=N} defaults to {@code threads=N} (default
+     * {@value #DEFAULT_DISCOVER_V3_THREADS}); addresses whose engine ID cannot be discovered count as silent.
+     */
+    public static String snmpDiscoverV3(
+            String[] cidrs,
+            String[] oids,
+            int authLevel,
+            String user,
+            String pass,
+            int authProt,
+            int privProt,
+            String[] params) {
+        int port = intParam(params, "port", 161);
+        int threads = Math.max(1, intParam(params, "threads", DEFAULT_DISCOVER_V3_THREADS));
+        return Discovery.open(cidrs, new String[] { user }, oids, params, (ip, name, bindings) ->
+                CompletableFuture.supplyAsync(() -> discoveryGetV3(
+                        v3Call(ip, port, authLevel, user, pass, authProt, privProt, params), bindings, params),
+                        Discovery.v3Executor()),
+                threads);
+    }
+
+    public static Dataset snmpDiscoverNext(String sweepId, int maxRows) {
+        return Discovery.next(sweepId, maxRows);
+    }
+
+    public static boolean snmpDiscoverClose(String sweepId) {
+        return Discovery.close(sweepId);
+    }
+
+    /** {@link #snmpWalk} in the compact RPC encoding; see {@link PackedResults}. */
+    public static byte[] snmpWalkPacked(String ip, int port, String startOID, String[] params) {
+        return PackedResults.pack(snmpWalk(ip, port, startOID, params));
+    }
+
+    /** {@link #snmpWalkV3} in the compact RPC encoding; see {@link PackedResults}. */
+    public static byte[] snmpWalkV3Packed(
+            String ip,
+            int port,
+            String startOID,
+            int authLevel,
+            String user,
+            String pass,
+            int authProt,
+            int privProt,
+            String[] params) {
+        return PackedResults.pack(snmpWalkV3(ip, port, startOID, authLevel, user, pass, authProt, privProt, params));
+    }
+
+    /** {@link #snmpGetMany} in the compact RPC encoding; see {@link PackedResults#packDataset}. */
+    public static byte[] snmpGetManyPacked(String[] targets, String[] oids, String[] params) {
+        return PackedResults.packDataset(snmpGetMany(targets, oids, params));
+    }
+
+    /** Per-target latency, timeout, retry, in-flight, lock-wait and walk counters; see {@link SnmpStats}. */
+    public static Dataset snmpGetStats() {
+        return SnmpStats.snapshot();
     }
 
     private static VariableBinding[] getBindings(String[] oids) {
@@ -399,29 +1114,16 @@ public class CursorSNMPDriverModule {
         return vars.toArray(new VariableBinding[0]);
     }
 
-    private static String[] walk(CommunityTarget target, OID startOID) {
+    private static String[] walk(CommunityTarget target, OID startOID, String[] params) {
+        String refused = admit(target, params);
+        if (refused != null) {
+            return new String[] { refused };
+        }
         ArrayList<String> results = new ArrayList<>();
         try {
-            Snmp snmp = communitySnmp();
-            DefaultPDUFactory pduFactory = target.getVersion() == SnmpConstants.version1
-                    ? new DefaultPDUFactory(PDU.GETNEXT)
-                    : new DefaultPDUFactory();
-            TreeUtils treeUtils = new TreeUtils(snmp, pduFactory);
-            List<TreeEvent> events = treeUtils.getSubtree(target, startOID);
-
-            for (TreeEvent event : events) {
-                if (event != null) {
-                    if (event.isError()) {
-                        results.add("[W001] Error: " + event.getErrorMessage());
-                    } else {
-                        VariableBinding[] varBindings = event.getVariableBindings();
-                        if (varBindings != null) {
-                            for (VariableBinding varBinding : varBindings) {
-                                results.add(varBinding.toString());
-                            }
-                        }
-                    }
-                }
+            Snmp snmp = communitySnmp(target.getAddress());
+            for (TreeEvent event : subtree(snmp, target, startOID, params, () -> probe(target))) {
+                addTreeEvent(results, event, "[W001]");
             }
         } catch (IOException e) {
             results.add("[W002] Error: IOException: " + e.getMessage());
@@ -432,154 +1134,421 @@ public class CursorSNMPDriverModule {
         return results.toArray(new String[0]);
     }
 
-    private static String[] walkV3(
-            UserTarget target,
+    /**
+     * Blocking subtree retrieval with GETBULK sizing from {@link BulkWalkTuning}; {@code probe} is handed to
+     * {@link HostHealth} if the walk times out.
+     */
+    private static List<TreeEvent> subtree(
+            Snmp snmp,
+            Target<?> target,
             OID startOID,
-            UsmUser usr,
-            String username,
-            OID authProt,
-            String ip,
-            int port,
-            String credFingerprint) {
-        synchronized (v3Stripe(ip, port, username, credFingerprint)) {
+            String[] params,
+            Supplier<CompletableFuture<Boolean>> probe) {
+        int maxRepetitions = BulkWalkTuning.maxRepetitions(target, params);
+        long start = SnmpStats.started(target);
+        List<TreeEvent> events;
+        try {
+            events = BulkWalkTuning.treeUtils(snmp, maxRepetitions).getSubtree(target, startOID);
+        } catch (RuntimeException e) {
+            SnmpStats.walkFinished(target, start, 0, false, true);
+            throw e;
+        }
+        boolean error = false;
+        boolean timedOut = false;
+        int varbinds = 0;
+        for (TreeEvent event : events) {
+            if (event == null) {
+                continue;
+            }
+            error |= event.isError();
+            timedOut |= event.getStatus() == TreeEvent.STATUS_TIMEOUT;
+            if (event.getVariableBindings() != null) {
+                varbinds += event.getVariableBindings().length;
+            }
+        }
+        SnmpStats.walkFinished(target, start, varbinds, timedOut, error);
+        BulkWalkTuning.recordOutcome(target, params, maxRepetitions, error);
+        recordWalkHealth(target, timedOut, error, probe);
+        return events;
+    }
+
+    /** Appends the event's rows (or its error) to {@code results}; returns {@code true} for an error event. */
+    private static boolean addTreeEvent(List<String> results, TreeEvent event, String errorCode) {
+        if (event == null) {
+            return false;
+        }
+        if (event.isError()) {
+            results.add(errorCode + " Error: " + event.getErrorMessage());
+            return true;
+        }
+        VariableBinding[] varBindings = event.getVariableBindings();
+        if (varBindings != null) {
+            for (VariableBinding varBinding : varBindings) {
+                results.add(varBinding.toString());
+            }
+        }
+        return false;
+    }
+
+    private static CompletableFuture<String[]> walkAsync(CommunityTarget target, OID startOID, String[] params) {
+        String quarantined = HostHealth.check(target, params);
+        if (quarantined != null) {
+            return CompletableFuture.completedFuture(new String[] { quarantined });
+        }
+        return RateLimits.acquire(target, params).thenCompose(granted -> granted
+                ? startWalkAsync(target, startOID, params)
+                : CompletableFuture.completedFuture(new String[] { RateLimits.exceeded(target, params) }));
+    }
+
+    private static CompletableFuture<String[]> startWalkAsync(CommunityTarget target, OID startOID, String[] params) {
+        CompletableFuture<String[]> future = new CompletableFuture<>();
+        try {
+            Snmp snmp = communitySnmp(target.getAddress());
+            int maxRepetitions = BulkWalkTuning.maxRepetitions(target, params);
+            TreeUtils treeUtils = BulkWalkTuning.treeUtils(snmp, maxRepetitions);
             ArrayList<String> results = new ArrayList<>();
-            Snmp snmp = null;
-            USM usm = null;
+            long start = SnmpStats.started(target);
+            treeUtils.walk(target, new OID[] { startOID }, null, new TreeListener() {
+                private volatile boolean finished;
+                private boolean error;
+                private boolean timedOut;
 
-            try {
-                DefaultUdpTransportMapping transport = new DefaultUdpTransportMapping();
-                snmp = new Snmp(transport);
-                usm = createAndRegisterUsm(usr, username, authProt);
-                snmp.listen();
-
-                TreeUtils treeUtils = new TreeUtils(snmp, new DefaultPDUFactory(PDU.GETNEXT));
-                List<TreeEvent> events = treeUtils.getSubtree(target, startOID);
-
-                for (TreeEvent event : events) {
-                    if (event != null) {
-                        if (event.isError()) {
-                            results.add("[WV02] Error: " + event.getErrorMessage());
-                        } else {
-                            VariableBinding[] varBindings = event.getVariableBindings();
-                            if (varBindings != null) {
-                                for (VariableBinding varBinding : varBindings) {
-                                    results.add(varBinding.toString());
-                                }
-                            }
-                        }
-                    }
+                @Override
+                public boolean next(TreeEvent event) {
+                    error |= addTreeEvent(results, event, "[W001]");
+                    timedOut |= event != null && event.getStatus() == TreeEvent.STATUS_TIMEOUT;
+                    return true;
                 }
-            } catch (Exception e) {
-                results.add("[WV03] Error: " + e.getClass().getSimpleName() + ": " + e.getMessage());
-            } finally {
-                if (snmp != null) {
-                    try {
-                        snmp.close();
-                    } catch (IOException ignored) {
-                    }
+
+                @Override
+                public void finished(TreeEvent event) {
+                    error |= addTreeEvent(results, event, "[W001]");
+                    timedOut |= event != null && event.getStatus() == TreeEvent.STATUS_TIMEOUT;
+                    SnmpStats.walkFinished(target, start, error ? results.size() - 1 : results.size(), timedOut, error);
+                    BulkWalkTuning.recordOutcome(target, params, maxRepetitions, error);
+                    recordWalkHealth(target, timedOut, error, () -> probe(target));
+                    finished = true;
+                    future.complete(results.toArray(new String[0]));
                 }
-                unregisterUsm(usm);
+
+                @Override
+                public boolean isFinished() {
+                    return finished;
+                }
+            });
+        } catch (Exception e) {
+            future.complete(new String[] { "[W002] Error: " + e.getClass().getSimpleName() + ": " + e.getMessage() });
+        }
+        return future;
+    }
+
+    private static String[] walkV3(V3Call call, OID startOID, String[] params) {
+        String refused = admit(call.target, params);
+        if (refused != null) {
+            return new String[] { refused };
+        }
+        ArrayList<String> results = new ArrayList<>();
+        V3SessionPool.Session session = null;
+
+        try {
+            session = v3Session(call);
+            for (TreeEvent event : subtree(session.snmp, call.target, startOID, params, () -> probe(call))) {
+                addTreeEvent(results, event, "[WV02]");
             }
+        } catch (Exception e) {
+            results.add("[WV03] Error: " + e.getClass().getSimpleName() + ": " + e.getMessage());
+        } finally {
+            releaseV3Session(session);
+        }
+
+        return results.toArray(new String[0]);
+    }
+
+    /**
+     * {@link HostHealth#check} followed by a blocking {@link RateLimits#await}, for calls that wait for their answer
+     * anyway; {@code null} when the call may go ahead.
+     */
+    private static String admit(Target<?> target, String[] params) {
+        String quarantined = HostHealth.check(target, params);
+        return quarantined != null ? quarantined : RateLimits.await(target, params);
+    }
 
-            return results.toArray(new String[0]);
+    /**
+     * Gets {@code bindings} on the shared community session, split and pipelined by {@link ChunkedGet}. Health is
+     * recorded once for the whole call: any chunk answering releases the agent, otherwise a timed-out result counts
+     * as one timeout however many chunks and re-sends it took.
+     */
+    private static CompletableFuture<SnmpResult> getChunked(
+            CommunityTarget target, VariableBinding[] bindings, String[] params) {
+        String quarantined = HostHealth.check(target, params);
+        if (quarantined != null) {
+            return CompletableFuture.completedFuture(SnmpResult.error(quarantined, SnmpResult.STATUS_QUARANTINED));
         }
+        AtomicBoolean answered = new AtomicBoolean();
+        return ChunkedGet.get(target, bindings, params, chunk -> {
+            PDU pdu = new PDU();
+            pdu.addAll(chunk);
+            return getAsync(pdu, target, params).thenApply(result -> {
+                if (result.status != SnmpResult.STATUS_TIMEOUT && result.status != SnmpResult.STATUS_EXCEPTION) {
+                    answered.set(true);
+                }
+                return result;
+            });
+        }).thenApply(result -> {
+            recordHealth(target, answered.get() ? 0 : result.status);
+            return result;
+        });
     }
 
-    private static String[] get(PDU pdu, CommunityTarget target) {
-        ArrayList<String> res = new ArrayList<>();
+    private static SnmpResult getResult(ResponseEvent respEvent) {
+        PDU response = respEvent.getResponse();
+
+        if (response == null) {
+            if (respEvent.getError() != null) {
+                return SnmpResult.error("[G001] Error: " + respEvent.getError().getMessage());
+            }
+            return SnmpResult.error(
+                    "[G001] Error: No response from device (timeout or unreachable)", SnmpResult.STATUS_TIMEOUT);
+        } else if (response.getErrorStatus() != PDU.noError) {
+            return SnmpResult.error(
+                    "[G003] Error: " + response.getErrorStatusText() + " at index " + response.getErrorIndex(),
+                    response.getErrorStatus());
+        }
+        VariableBinding[] bindings = new VariableBinding[response.size()];
+        for (int i = 0; i < bindings.length; i++) {
+            bindings[i] = response.get(i);
+        }
+        return SnmpResult.of(bindings);
+    }
+
+    /** Sends a get once {@link RateLimits} lets it through. */
+    private static CompletableFuture<SnmpResult> getAsync(PDU pdu, CommunityTarget target, String[] params) {
+        CompletableFuture<Boolean> admitted = RateLimits.acquire(target, params);
+        if (admitted.getNow(Boolean.FALSE)) {
+            return sendGet(pdu, target);
+        }
+        return admitted.thenCompose(granted -> granted
+                ? sendGet(pdu, target)
+                : CompletableFuture.completedFuture(SnmpResult.error(RateLimits.exceeded(target, params))));
+    }
+
+    private static CompletableFuture<SnmpResult> sendGet(PDU pdu, CommunityTarget target) {
+        CompletableFuture<SnmpResult> future = new CompletableFuture<>();
         try {
-            Snmp snmp = communitySnmp();
+            Snmp snmp = communitySnmp(target.getAddress());
             pdu.setType(PDU.GET);
-            ResponseEvent respEvent = snmp.send(pdu, target);
-            if (respEvent == null) {
-                res.add("[G001] Error: No response event from SNMP stack");
-                return res.toArray(new String[0]);
+            long start = SnmpStats.started(target);
+            try {
+                snmp.send(pdu, target, null, new ResponseListener() {
+                    @Override
+                    public <A extends Address> void onResponse(ResponseEvent<A> event) {
+                        // Always cancel, otherwise SNMP4J keeps the request pending for retries.
+                        snmp.cancel(event.getRequest(), this);
+                        SnmpResult result = getResult(event);
+                        SnmpStats.finished(target, start, result.status);
+                        AdaptiveTimeouts.sample(target, start, result.status);
+                        future.complete(result);
+                    }
+                });
+            } catch (IOException | RuntimeException e) {
+                SnmpStats.finished(target, start, SnmpResult.STATUS_EXCEPTION);
+                throw e;
             }
-            PDU response = respEvent.getResponse();
+        } catch (Exception e) {
+            future.complete(SnmpResult.error("[G002] Error: " + e.getClass().getSimpleName() + ": " + e.getMessage()));
+        }
+        return future;
+    }
 
-            if (response == null) {
-                if (respEvent.getError() != null) {
-                    res.add("[G001] Error: " + respEvent.getError().getMessage());
-                } else {
-                    res.add("[G001] Error: No response from device (timeout or unreachable)");
+    /** Discovery defaults for targets: a short timeout and no retries unless {@code params} say otherwise. */
+    private static <T extends Target<?>> T discoveryTarget(T target, String[] params) {
+        if (findParam(params, "timeout") == null) {
+            target.setTimeout(Discovery.DEFAULT_PROBE_TIMEOUT_MS);
+        }
+        if (findParam(params, "retry") == null) {
+            target.setRetries(0);
+        }
+        return target;
+    }
+
+    /**
+     * {@link #getAsync} without rate limits, statistics or adaptive timeout samples, and outside quarantine, for
+     * discovery probes to addresses that are mostly not agents.
+     */
+    private static CompletableFuture<SnmpResult> discoveryGet(PDU pdu, CommunityTarget target) {
+        CompletableFuture<SnmpResult> future = new CompletableFuture<>();
+        try {
+            Snmp snmp = communitySnmp(target.getAddress());
+            pdu.setType(PDU.GET);
+            snmp.send(pdu, target, null, new ResponseListener() {
+                @Override
+                public <A extends Address> void onResponse(ResponseEvent<A> event) {
+                    snmp.cancel(event.getRequest(), this);
+                    future.complete(getResult(event));
                 }
-            } else if (response.getErrorStatus() != PDU.noError) {
-                res.add("[G003] Error: " + response.getErrorStatusText() + " at index " + response.getErrorIndex());
-            } else {
-                for (int i = 0; i < response.size(); i++) {
-                    VariableBinding vb = response.get(i);
-                    res.add(String.valueOf(vb.getVariable()));
+            });
+        } catch (Exception e) {
+            future.complete(SnmpResult.error("[G002] Error: " + e.getClass().getSimpleName() + ": " + e.getMessage()));
+        }
+        return future;
+    }
+
+    /** Blocking v3 discovery probe; like {@link #discoveryGet}, nothing is recorded for the address. */
+    private static SnmpResult discoveryGetV3(V3Call call, VariableBinding[] bindings, String[] params) {
+        discoveryTarget(call.target, params);
+        Address address = call.target.getAddress();
+        V3SessionPool.Session session = null;
+        try {
+            session = V3_POOL.acquire(call.username, call.credFingerprint, call.usr, call.authProt);
+            if (!session.knowsEngine(address)) {
+                synchronized (v3Stripe(call.ip, call.port, call.username, call.credFingerprint)) {
+                    session.discoverEngine(address, call.target.getTimeout());
                 }
             }
-            return res.toArray(new String[0]);
+            if (!session.knowsEngine(address)) {
+                return SnmpResult.error("[GV02] Error: No engine ID discovered", SnmpResult.STATUS_TIMEOUT);
+            }
+            return sendV3(session, call, bindings);
         } catch (Exception e) {
-            res.add("[G002] Error: " + e.getClass().getSimpleName() + ": " + e.getMessage());
-            return res.toArray(new String[0]);
+            return SnmpResult.error("[GV04] Error: " + e.getClass().getSimpleName() + ": " + e.getMessage());
+        } finally {
+            releaseV3Session(session);
         }
     }
 
-    private static String[] getV3(
-            PDU pdu,
-            UserTarget target,
-            UsmUser usr,
-            String username,
-            OID authProt,
-            String ip,
-            int port,
-            String credFingerprint) {
-        synchronized (v3Stripe(ip, port, username, credFingerprint)) {
-            ArrayList<String> res = new ArrayList<>();
-            Snmp snmp = null;
-            USM usm = null;
+    private static SnmpResult getV3(V3Call call, VariableBinding[] bindings, String[] params) {
+        String limited = RateLimits.await(call.target, params);
+        if (limited != null) {
+            return SnmpResult.error(limited);
+        }
+        V3SessionPool.Session session = null;
+        boolean sending = false;
+        long start = 0;
+        SnmpResult result = null;
 
-            try {
-                DefaultUdpTransportMapping transport = new DefaultUdpTransportMapping();
-                snmp = new Snmp(transport);
-                usm = createAndRegisterUsm(usr, username, authProt);
-                snmp.listen();
-
-                StringBuilder debug = new StringBuilder();
-                debug.append("Target: ").append(target.getAddress());
-                debug.append(", Timeout: ").append(target.getTimeout());
-                debug.append(", SecLevel: ").append(target.getSecurityLevel());
-                debug.append(", User: ").append(username);
-
-                pdu.setType(PDU.GET);
-
-                ResponseEvent respEvent = snmp.send(pdu, target);
-                if (respEvent == null) {
-                    res.add("[GV05] Error: No response event from SNMP stack [" + debug + "]");
-                    return res.toArray(new String[0]);
-                }
-                PDU response = respEvent.getResponse();
+        try {
+            session = v3Session(call);
+            start = SnmpStats.started(call.target);
+            sending = true;
+            result = sendV3(session, call, bindings);
+        } catch (V3SessionPool.EngineUnreachable e) {
+            result = SnmpResult.error("[GV02] Error: " + e.getMessage(), SnmpResult.STATUS_TIMEOUT);
+            if (!e.cached) {
+                recordHealth(call, SnmpResult.STATUS_TIMEOUT);
+            }
+        } catch (Exception e) {
+            result = SnmpResult.error("[GV04] Error: " + e.getClass().getSimpleName() + ": " + e.getMessage());
+        } finally {
+            if (sending) {
+                int status = result == null ? SnmpResult.STATUS_EXCEPTION : result.status;
+                SnmpStats.finished(call.target, start, status);
+                AdaptiveTimeouts.sample(call.target, start, status);
+                recordHealth(call, status);
+            }
+            releaseV3Session(session);
+        }
+        return result;
+    }
 
-                if (response == null) {
-                    if (respEvent.getError() != null) {
-                        res.add("[GV01] Error: " + respEvent.getError().getMessage() + " [" + debug + "]");
-                    } else {
-                        res.add("[GV02] Error: No Response [" + debug + "]");
-                    }
-                } else if (response.getErrorStatus() != PDU.noError) {
-                    res.add("[GV03] Error: " + response.getErrorStatusText() + " at index " + response.getErrorIndex());
-                } else {
-                    for (int i = 0; i < response.size(); i++) {
-                        VariableBinding vb = response.get(i);
-                        res.add(String.valueOf(vb.getVariable()));
-                    }
-                }
-                return res.toArray(new String[0]);
-            } catch (Exception e) {
-                res.add("[GV04] Error: " + e.getClass().getSimpleName() + ": " + e.getMessage());
-                return res.toArray(new String[0]);
-            } finally {
-                if (snmp != null) {
-                    try {
-                        snmp.close();
-                    } catch (IOException ignored) {
-                    }
-                }
-                unregisterUsm(usm);
+    private static void recordHealth(CommunityTarget target, int status) {
+        if (status == SnmpResult.STATUS_TIMEOUT) {
+            HostHealth.timedOut(target, () -> probe(target));
+        } else if (status != SnmpResult.STATUS_EXCEPTION) {
+            HostHealth.answered(target.getAddress());
+        }
+    }
+
+    private static void recordHealth(V3Call call, int status) {
+        if (status == SnmpResult.STATUS_TIMEOUT) {
+            HostHealth.timedOut(call.target, () -> probe(call));
+        } else if (status != SnmpResult.STATUS_EXCEPTION) {
+            HostHealth.answered(call.target.getAddress());
+        }
+    }
+
+    private static void recordWalkHealth(
+            Target<?> target, boolean timedOut, boolean error, Supplier<CompletableFuture<Boolean>> probe) {
+        if (timedOut) {
+            HostHealth.timedOut(target, probe);
+        } else if (!error) {
+            HostHealth.answered(target.getAddress());
+        }
+    }
+
+    /** One {@code sysUpTime.0} get without retries that bypasses quarantine; completes {@code true} on any answer. */
+    private static CompletableFuture<Boolean> probe(CommunityTarget target) {
+        CommunityTarget probeTarget = copyTarget(target);
+        probeTarget.setRetries(0);
+        PDU pdu = new PDU();
+        pdu.add(new VariableBinding(HostHealth.SYS_UP_TIME));
+        return getAsync(pdu, probeTarget, null).thenApply(CursorSNMPDriverModule::probeAnswered);
+    }
+
+    private static CompletableFuture<Boolean> probe(V3Call call) {
+        UserTarget probeTarget = copyTarget(call.target);
+        probeTarget.setRetries(0);
+        V3Call probeCall = call.withTarget(probeTarget);
+        VariableBinding[] bindings = { new VariableBinding(HostHealth.SYS_UP_TIME) };
+        return CompletableFuture.supplyAsync(() -> getV3(probeCall, bindings, null), callbackExecutor())
+                .thenApply(CursorSNMPDriverModule::probeAnswered);
+    }
+
+    private static boolean probeAnswered(SnmpResult result) {
+        return result.status != SnmpResult.STATUS_TIMEOUT && result.status != SnmpResult.STATUS_EXCEPTION;
+    }
+
+    private static SnmpResult sendV3(V3SessionPool.Session session, V3Call call, VariableBinding[] bindings)
+            throws IOException {
+        UserTarget target = call.target;
+
+        StringBuilder debug = new StringBuilder();
+        debug.append("Target: ").append(target.getAddress());
+        debug.append(", Timeout: ").append(target.getTimeout());
+        debug.append(", SecLevel: ").append(target.getSecurityLevel());
+        debug.append(", User: ").append(call.username);
+
+        PDU pdu = new ScopedPDU();
+        pdu.addAll(bindings);
+        pdu.setType(PDU.GET);
+
+        ResponseEvent respEvent = session.snmp.send(pdu, target);
+        if (respEvent == null) {
+            return SnmpResult.error("[GV05] Error: No response event from SNMP stack [" + debug + "]");
+        }
+        PDU response = respEvent.getResponse();
+
+        if (response == null) {
+            if (respEvent.getError() != null) {
+                return SnmpResult.error("[GV01] Error: " + respEvent.getError().getMessage() + " [" + debug + "]");
+            }
+            return SnmpResult.error("[GV02] Error: No Response [" + debug + "]", SnmpResult.STATUS_TIMEOUT);
+        } else if (response.getType() == PDU.REPORT) {
+            return SnmpResult.error("[GV06] Error: Report " + reportName(response) + " [" + debug + "]",
+                    SnmpResult.STATUS_REPORT);
+        } else if (response.getErrorStatus() != PDU.noError) {
+            return SnmpResult.error(
+                    "[GV03] Error: " + response.getErrorStatusText() + " at index " + response.getErrorIndex(),
+                    response.getErrorStatus());
+        }
+        VariableBinding[] values = new VariableBinding[response.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = response.get(i);
+        }
+        return SnmpResult.of(values);
+    }
+
+    /** Names the usmStats counter a report carries, e.g. {@code usmStatsUnknownUserNames}, else its OID. */
+    private static String reportName(PDU report) {
+        if (report.size() == 0) {
+            return "without bindings";
+        }
+        OID oid = report.get(0).getOid();
+        if (oid.startsWith(USM_STATS) && oid.size() > USM_STATS.size()) {
+            int counter = oid.get(USM_STATS.size());
+            if (counter >= 1 && counter <= USM_STATS_NAMES.length) {
+                return USM_STATS_NAMES[counter - 1];
             }
         }
+        return oid.toDottedString();
     }
 }
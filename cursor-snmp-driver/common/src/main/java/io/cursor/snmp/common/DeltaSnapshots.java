@@ -0,0 +1,179 @@
+package io.cursor.snmp.common;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.snmp4j.smi.OID;
+
+/**
+ * Gateway side of delta results for remote clients.
+ * <p>
+ * The last result sent to each (client, query) is kept with a sequence number. A client that reports the sequence
+ * it holds receives only the rows that changed since then; see {@link DeltaView} for the client side. The encoding
+ * is a {@code String[]}:
+ * <ul>
+ * <li>row 0 is the header {@code #seq:base}; {@code base} is the sequence the delta applies to, or {@code 0} when
+ * the remaining rows are the complete result;</li>
+ * <li>in a get delta, every further row is {@code index value}: result row {@code index} is now {@code value};</li>
+ * <li>in a walk delta, every further row is either {@code oid = value}, a row that changed or was added, or
+ * {@code -oid}, a row that was removed. Both lists are in OID order, so the client merges them into its copy.</li>
+ * </ul>
+ * Get deltas are only sent when the result has as many values as the client's copy, and walk deltas only when both
+ * results are {@code oid = value} rows in increasing OID order. Anything else, a delta no smaller than the result,
+ * and any {@code [Xnnn] Error:} result are sent complete. Error results carry sequence {@code 0} and are not kept.
+ * Snapshots unused for {@link #IDLE_TIMEOUT_MS} are discarded.
+ */
+final class DeltaSnapshots {
+    static final long IDLE_TIMEOUT_MS = 10L * 60L * 1000L;
+
+    private static final ConcurrentHashMap<String, Snapshot> SNAPSHOTS = new ConcurrentHashMap<>();
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private DeltaSnapshots() {
+    }
+
+    private static final class Snapshot {
+        final long seq;
+        final String[] rows;
+        final long lastUsed = System.currentTimeMillis();
+
+        Snapshot(long seq, String[] rows) {
+            this.seq = seq;
+            this.rows = rows;
+        }
+    }
+
+    /**
+     * Encodes {@code rows} for {@code clientId} relative to the snapshot with sequence {@code knownSeq}.
+     *
+     * @param walk {@code true} when rows are {@code oid = value} strings, which are then matched by OID
+     */
+    static String[] encode(String clientId, String queryKey, long knownSeq, String[] rows, boolean walk) {
+        String key = clientId + '\0' + queryKey;
+        if (hasError(rows)) {
+            SNAPSHOTS.remove(key);
+            return full(0L, rows);
+        }
+        long seq = SEQUENCE.incrementAndGet();
+        Snapshot previous = SNAPSHOTS.put(key, new Snapshot(seq, rows));
+        if (previous == null) {
+            expireIdle();
+        }
+        if (knownSeq <= 0 || previous == null || previous.seq != knownSeq) {
+            return full(seq, rows);
+        }
+        List<String> delta = new ArrayList<>();
+        delta.add("#" + seq + ":" + knownSeq);
+        if (walk) {
+            if (!walkDelta(previous.rows, rows, delta)) {
+                return full(seq, rows);
+            }
+        } else {
+            if (previous.rows.length != rows.length) {
+                return full(seq, rows);
+            }
+            for (int i = 0; i < rows.length; i++) {
+                if (!rows[i].equals(previous.rows[i])) {
+                    delta.add(i + " " + rows[i]);
+                }
+            }
+        }
+        if (delta.size() > rows.length) {
+            return full(seq, rows);
+        }
+        return delta.toArray(new String[0]);
+    }
+
+    /** The OID of an {@code oid = value} row, or {@code null} when the row has another form. */
+    static OID oid(String row) {
+        int eq = row == null ? -1 : row.indexOf(" = ");
+        if (eq <= 0) {
+            return null;
+        }
+        try {
+            OID oid = new OID(row.substring(0, eq));
+            return oid.size() > 0 ? oid : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /** Parses the OIDs of walk rows; {@code null} unless every row is {@code oid = value} in increasing OID order. */
+    static OID[] oids(String[] rows) {
+        OID[] oids = new OID[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            oids[i] = oid(rows[i]);
+            if (oids[i] == null || (i > 0 && oids[i].compareTo(oids[i - 1]) <= 0)) {
+                return null;
+            }
+        }
+        return oids;
+    }
+
+    /**
+     * Appends the OID-keyed changes from {@code before} to {@code after}; {@code false} when the rows are not sorted.
+     */
+    private static boolean walkDelta(String[] before, String[] after, List<String> delta) {
+        OID[] beforeOids = oids(before);
+        OID[] afterOids = beforeOids == null ? null : oids(after);
+        if (afterOids == null) {
+            return false;
+        }
+        int i = 0;
+        int j = 0;
+        while (i < before.length || j < after.length) {
+            int cmp = i == before.length ? 1 : j == after.length ? -1 : beforeOids[i].compareTo(afterOids[j]);
+            if (cmp < 0) {
+                delta.add("-" + beforeOids[i++].toDottedString());
+            } else if (cmp > 0) {
+                delta.add(after[j++]);
+            } else {
+                if (!after[j].equals(before[i])) {
+                    delta.add(after[j]);
+                }
+                i++;
+                j++;
+            }
+        }
+        return true;
+    }
+
+    static void clear() {
+        SNAPSHOTS.clear();
+    }
+
+    private static String[] full(long seq, String[] rows) {
+        String[] out = new String[rows.length + 1];
+        out[0] = "#" + seq + ":0";
+        System.arraycopy(rows, 0, out, 1, rows.length);
+        return out;
+    }
+
+    private static boolean hasError(String[] rows) {
+        for (String row : rows) {
+            if (row == null || (row.startsWith("[") && row.contains("] Error:"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void expireIdle() {
+        expireIdle(System.currentTimeMillis());
+    }
+
+    /** Discards snapshots last used more than {@link #IDLE_TIMEOUT_MS} before {@code now}. */
+    static void expireIdle(long now) {
+        long cutoff = now - IDLE_TIMEOUT_MS;
+        Iterator<Map.Entry<String, Snapshot>> it = SNAPSHOTS.entrySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().getValue().lastUsed < cutoff) {
+                it.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package io.cursor.snmp.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.snmp4j.smi.OID;
+
+/**
+ * Client side of delta results: keeps the last full result of each query and rebuilds it from the changed rows the
+ * gateway sends (format in {@link DeltaSnapshots}), by index for gets and by OID for walks. Calls for the same query
+ * are serialized so the sequence the gateway is told always matches the rows held here; a delta that does not apply
+ * (the gateway restarted or expired the snapshot) is answered by asking again for the complete result.
+ */
+public final class DeltaView {
+
+    /** One RPC round trip reporting {@code knownSeq} for this client. */
+    public interface Fetch {
+        String[] fetch(String clientId, long knownSeq);
+    }
+
+    private static final class View {
+        long seq;
+        String[] rows = new String[0];
+    }
+
+    private final String clientId = UUID.randomUUID().toString();
+    private final ConcurrentHashMap<String, View> views = new ConcurrentHashMap<>();
+
+    public String[] walk(String ip, int port, String startOID, String[] params, Fetch fetch) {
+        return fetch(ResponseCache.key("walk", ip, port, new String[] { startOID }, params), true, fetch);
+    }
+
+    public String[] get(String ip, int port, String[] oids, String[] params, Fetch fetch) {
+        return fetch(ResponseCache.key("get", ip, port, oids, params), false, fetch);
+    }
+
+    private String[] fetch(String queryKey, boolean walk, Fetch fetch) {
+        View view = views.computeIfAbsent(queryKey, k -> new View());
+        synchronized (view) {
+            String[] rows = apply(view, fetch.fetch(clientId, view.seq), walk);
+            if (rows == null) {
+                view.seq = 0;
+                rows = apply(view, fetch.fetch(clientId, 0), walk);
+            }
+            if (rows == null) {
+                return new String[] { "[D001] Error: unreadable delta result from gateway" };
+            }
+            return rows.clone();
+        }
+    }
+
+    /** Applies one response to {@code view}; {@code null} when it is a delta against rows this view does not hold. */
+    private static String[] apply(View view, String[] response, boolean walk) {
+        if (response == null || response.length == 0 || !response[0].startsWith("#")) {
+            return null;
+        }
+        String header = response[0];
+        int colon = header.indexOf(':');
+        long seq;
+        long base;
+        try {
+            seq = Long.parseLong(header.substring(1, colon));
+            base = Long.parseLong(header.substring(colon + 1));
+        } catch (RuntimeException e) {
+            return null;
+        }
+        if (base == 0) {
+            view.rows = Arrays.copyOfRange(response, 1, response.length);
+            view.seq = seq;
+            return view.rows;
+        }
+        if (base != view.seq) {
+            return null;
+        }
+        String[] rows = walk ? mergeWalk(view.rows, response) : mergeGet(view.rows, response);
+        if (rows == null) {
+            return null;
+        }
+        view.rows = rows;
+        view.seq = seq;
+        return rows;
+    }
+
+    private static String[] mergeGet(String[] held, String[] response) {
+        String[] rows = held.clone();
+        for (int i = 1; i < response.length; i++) {
+            String change = response[i];
+            int space = change.indexOf(' ');
+            int index;
+            try {
+                index = Integer.parseInt(change.substring(0, space));
+            } catch (RuntimeException e) {
+                return null;
+            }
+            if (index < 0 || index >= rows.length) {
+                return null;
+            }
+            rows[index] = change.substring(space + 1);
+        }
+        return rows;
+    }
+
+    /** Merges OID-ordered changes ({@code oid = value} or {@code -oid}) into the OID-ordered rows held. */
+    private static String[] mergeWalk(String[] held, String[] response) {
+        OID[] heldOids = DeltaSnapshots.oids(held);
+        if (heldOids == null) {
+            return null;
+        }
+        List<String> rows = new ArrayList<>(held.length + response.length);
+        OID previous = null;
+        int i = 0;
+        for (int k = 1; k < response.length; k++) {
+            String change = response[k];
+            boolean removed = change.startsWith("-");
+            OID oid;
+            try {
+                oid = removed ? new OID(change.substring(1)) : DeltaSnapshots.oid(change);
+            } catch (RuntimeException e) {
+                return null;
+            }
+            if (oid == null || (previous != null && oid.compareTo(previous) <= 0)) {
+                return null;
+            }
+            previous = oid;
+            while (i < held.length && heldOids[i].compareTo(oid) < 0) {
+                rows.add(held[i++]);
+            }
+            boolean present = i < held.length && heldOids[i].equals(oid);
+            if (removed && !present) {
+                return null;
+            }
+            if (present) {
+                i++;
+            }
+            if (!removed) {
+                rows.add(change);
+            }
+        }
+        while (i < held.length) {
+            rows.add(held[i++]);
+        }
+        return rows.toArray(new String[0]);
+    }
+}
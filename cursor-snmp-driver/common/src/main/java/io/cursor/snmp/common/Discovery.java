@@ -0,0 +1,461 @@
+package io.cursor.snmp.common;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import com.inductiveautomation.ignition.common.BasicDataset;
+import com.inductiveautomation.ignition.common.Dataset;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.VariableBinding;
+
+/**
+ * Network discovery sweeps.
+ * <p>
+ * A sweep walks every IPv4 address of its CIDR ranges on a shared daemon thread, once per credential (community or
+ * v3 user) in order, and probes each address without retries and with a short timeout. A pass starts when every
+ * probe of the previous one has finished and skips the addresses that already answered, so an agent sees at most
+ * the credentials up to the first one it answers. Probes are paced by a per-sweep
+ * {@code pps=N} cap and by a cap shared by all sweeps ({@value #PPS_PROPERTY}, default {@value #DEFAULT_PPS}
+ * packets per second), and at most {@code concurrency=N} (default {@value #DEFAULT_CONCURRENCY}) are outstanding.
+ * Probes bypass quarantine, adaptive timeouts and the statistics: silent addresses are not agents. At most
+ * {@value #MAX_SWEEPS_PROPERTY} (default {@value #DEFAULT_MAX_SWEEPS}) sweeps run at once; further ones fail with
+ * {@code [DS02]}. Blocking v3 probes of all sweeps share {@value #V3_THREADS_PROPERTY} threads (default
+ * {@value CursorSNMPDriverModule#DEFAULT_DISCOVER_V3_THREADS}).
+ * <p>
+ * Responders are queued as they answer and read page by page with {@link #next}: one row per address with the
+ * first credential that answered, the status and the probed values. An agent that answers with a v3 report (unknown
+ * user, wrong digest) has rejected the credential, so the next one is tried; addresses that rejected every credential
+ * get a row with the last report as status once the last pass has finished. Once the sweep has finished and every row has
+ * been read, a final row with a {@code null} address carries the {@code DONE} summary and the sweep is released.
+ * Sweeps not read for {@link #IDLE_TIMEOUT_MS} are cancelled.
+ */
+final class Discovery {
+    static final String PPS_PROPERTY = "cursor.snmp.discoverPps";
+    static final int DEFAULT_PPS = 500;
+    static final int DEFAULT_CONCURRENCY = 1000;
+    static final long DEFAULT_PROBE_TIMEOUT_MS = 800L;
+    static final int MAX_ADDRESSES = 1 << 20;
+    static final long IDLE_TIMEOUT_MS = 10L * 60L * 1000L;
+    static final long NEXT_WAIT_MS = 1000L;
+    static final String UNKNOWN_SWEEP = "[DS01] Error: unknown or finished discovery sweep";
+    static final String[] DEFAULT_OIDS = { "1.3.6.1.2.1.1.2.0", "1.3.6.1.2.1.1.5.0" };
+
+    private static final int GLOBAL_PPS = Math.max(1, Integer.getInteger(PPS_PROPERTY, DEFAULT_PPS));
+    private static final Pacer GLOBAL_PACER = new Pacer(GLOBAL_PPS);
+
+    static final String MAX_SWEEPS_PROPERTY = "cursor.snmp.discoverSweeps";
+    static final int DEFAULT_MAX_SWEEPS = 4;
+    static final String V3_THREADS_PROPERTY = "cursor.snmp.discoverV3Threads";
+
+    private static final int MAX_SWEEPS = Math.max(1, Integer.getInteger(MAX_SWEEPS_PROPERTY, DEFAULT_MAX_SWEEPS));
+    private static final int V3_THREADS = Math.max(1,
+            Integer.getInteger(V3_THREADS_PROPERTY, CursorSNMPDriverModule.DEFAULT_DISCOVER_V3_THREADS));
+    private static final Semaphore RUNNING = new Semaphore(MAX_SWEEPS);
+
+    private static final ConcurrentHashMap<String, Sweep> SWEEPS = new ConcurrentHashMap<>();
+    private static final AtomicInteger THREADS = new AtomicInteger();
+    private static final Object EXECUTOR_LOCK = new Object();
+    private static volatile ExecutorService sweepExecutor;
+    private static volatile ExecutorService v3Executor;
+
+    private Discovery() {
+    }
+
+    /** Sends one probe to {@code ip} with {@code credential}; must not block for the answer unless it is v3. */
+    interface Prober {
+        CompletableFuture<SnmpResult> probe(String ip, String credential, VariableBinding[] bindings);
+    }
+
+    /** Spaces sends at least {@code 1/pps} seconds apart. */
+    private static final class Pacer {
+        private final long intervalNanos;
+        private long nextSlot;
+
+        Pacer(int pps) {
+            this.intervalNanos = 1_000_000_000L / Math.max(1, pps);
+        }
+
+        void pace() {
+            long wait;
+            synchronized (this) {
+                long now = System.nanoTime();
+                long slot = Math.max(now, nextSlot);
+                nextSlot = slot + intervalNanos;
+                wait = slot - now;
+            }
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+        }
+    }
+
+    private static final class Sweep implements Runnable {
+        final long[][] ranges;
+        final long addressCount;
+        final String[] credentials;
+        final String[] oids;
+        final VariableBinding[] bindings;
+        final Prober prober;
+        final Pacer pacer;
+        final int concurrency;
+        final Semaphore permits;
+        final ConcurrentLinkedQueue<Object[]> rows = new ConcurrentLinkedQueue<>();
+        final Set<String> answered = ConcurrentHashMap.newKeySet();
+        /** Address to the credential and error of its latest v3 report. */
+        final ConcurrentHashMap<String, String[]> reports = new ConcurrentHashMap<>();
+        final long started = System.currentTimeMillis();
+        volatile boolean cancelled;
+        volatile boolean finished;
+        volatile long sent;
+        volatile int rejected;
+        volatile long lastUsed = System.currentTimeMillis();
+
+        Sweep(long[][] ranges, long addressCount, String[] credentials, String[] oids, Prober prober, int pps,
+                int concurrency) {
+            this.ranges = ranges;
+            this.addressCount = addressCount;
+            this.credentials = credentials;
+            this.oids = oids;
+            this.bindings = new VariableBinding[oids.length];
+            for (int i = 0; i < oids.length; i++) {
+                bindings[i] = new VariableBinding(new OID(oids[i]));
+            }
+            this.prober = prober;
+            this.pacer = new Pacer(pps);
+            this.concurrency = concurrency;
+            this.permits = new Semaphore(concurrency);
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (int c = 0; c < credentials.length && !cancelled; c++) {
+                    if (c > 0) {
+                        // Let the previous pass finish so addresses that answered it are not probed again.
+                        permits.acquire(concurrency);
+                        permits.release(concurrency);
+                    }
+                    String credential = credentials[c];
+                    for (long[] range : ranges) {
+                        for (long a = range[0]; a <= range[1] && !cancelled; a++) {
+                            String ip = ip(a);
+                            if (answered.contains(ip)) {
+                                continue;
+                            }
+                            permits.acquire();
+                            pacer.pace();
+                            GLOBAL_PACER.pace();
+                            sent++;
+                            CompletableFuture<SnmpResult> probe;
+                            try {
+                                probe = prober.probe(ip, credential, bindings);
+                            } catch (RuntimeException e) {
+                                probe = CompletableFuture.completedFuture(SnmpResult.error(e.toString()));
+                            }
+                            probe.whenComplete((result, error) -> {
+                                permits.release();
+                                if (result != null) {
+                                    record(ip, credential, result);
+                                }
+                            });
+                        }
+                    }
+                }
+                permits.acquire(concurrency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                recordRejected();
+                finished = true;
+                RUNNING.release();
+            }
+        }
+
+        /** Any PDU but a v3 report, even with an error status, means an agent answered. */
+        private void record(String ip, String credential, SnmpResult result) {
+            if (result.status == SnmpResult.STATUS_TIMEOUT || result.status == SnmpResult.STATUS_EXCEPTION) {
+                return;
+            }
+            if (result.status == SnmpResult.STATUS_REPORT) {
+                reports.put(ip, new String[] { credential, result.error });
+                return;
+            }
+            if (!answered.add(ip)) {
+                return;
+            }
+            Object[] row = new Object[3 + oids.length];
+            row[0] = ip;
+            row[1] = credential;
+            row[2] = result.isError() ? result.error : "OK";
+            for (int i = 0; i < oids.length && i < result.bindings.length; i++) {
+                VariableBinding vb = result.bindings[i];
+                row[3 + i] = vb == null || vb.getVariable().isException() ? null : String.valueOf(vb.getVariable());
+            }
+            rows.add(row);
+        }
+
+        /** One row per address that sent a report for every credential it was probed with. */
+        private void recordRejected() {
+            int count = 0;
+            for (Map.Entry<String, String[]> e : reports.entrySet()) {
+                if (answered.contains(e.getKey())) {
+                    continue;
+                }
+                Object[] row = new Object[3 + oids.length];
+                row[0] = e.getKey();
+                row[1] = e.getValue()[0];
+                row[2] = e.getValue()[1];
+                rows.add(row);
+                count++;
+            }
+            rejected = count;
+        }
+
+        String summary() {
+            return "DONE: " + answered.size() + " of " + addressCount + " addresses answered"
+                    + (rejected > 0 ? ", " + rejected + " rejected every credential," : "") + " " + sent
+                    + " probes in " + (System.currentTimeMillis() - started + 500) / 1000 + " s"
+                    + (cancelled ? " (cancelled)" : "");
+        }
+    }
+
+    /**
+     * Starts a sweep over {@code cidrs} ({@code a.b.c.d/n} or single addresses) and returns its id;
+     * {@code defaultConcurrency} applies when {@code params} has no {@code concurrency=N}.
+     */
+    static String open(String[] cidrs, String[] credentials, String[] oids, String[] params, Prober prober,
+            int defaultConcurrency) {
+        expireIdle();
+        String[] probeOids = oids == null || oids.length == 0 ? DEFAULT_OIDS : oids.clone();
+        List<long[]> ranges = new ArrayList<>();
+        long count = 0;
+        String error = null;
+        try {
+            for (String cidr : cidrs) {
+                long[] range = range(cidr);
+                ranges.add(range);
+                count += range[1] - range[0] + 1;
+            }
+            if (count > MAX_ADDRESSES) {
+                error = "[DS02] Error: " + count + " addresses exceed the limit of " + MAX_ADDRESSES;
+            } else if (credentials == null || credentials.length == 0) {
+                error = "[DS02] Error: at least one community or user is required";
+            }
+        } catch (RuntimeException e) {
+            error = "[DS02] Error: " + e.getMessage();
+        }
+        if (error == null && !RUNNING.tryAcquire()) {
+            error = "[DS02] Error: " + MAX_SWEEPS + " discovery sweeps are already running";
+        }
+        if (error != null) {
+            return failed(error, probeOids);
+        }
+        int pps = Math.max(1, CursorSNMPDriverModule.intParam(params, "pps", GLOBAL_PPS));
+        int concurrency = Math.max(1, CursorSNMPDriverModule.intParam(params, "concurrency", defaultConcurrency));
+        Sweep sweep = new Sweep(ranges.toArray(new long[0][]), count, credentials.clone(), probeOids, prober, pps,
+                concurrency);
+        try {
+            sweepExecutor().execute(sweep);
+        } catch (RejectedExecutionException e) {
+            RUNNING.release();
+            return failed("[DS02] Error: discovery is shutting down", probeOids);
+        }
+        String id = UUID.randomUUID().toString();
+        SWEEPS.put(id, sweep);
+        return id;
+    }
+
+    /** Registers a finished sweep whose only row is {@code error}. */
+    private static String failed(String error, String[] oids) {
+        Sweep failed = new Sweep(new long[0][], 0, new String[0], oids, null, 1, 1);
+        failed.rows.add(statusRow(error, oids.length));
+        failed.finished = true;
+        String id = UUID.randomUUID().toString();
+        SWEEPS.put(id, failed);
+        return id;
+    }
+
+    /** Shared pool for probes that block for their answer, such as v3 engine discovery. */
+    static ExecutorService v3Executor() {
+        ExecutorService e = v3Executor;
+        if (e != null) {
+            return e;
+        }
+        synchronized (EXECUTOR_LOCK) {
+            if (v3Executor == null) {
+                v3Executor = Executors.newFixedThreadPool(V3_THREADS, r -> {
+                    Thread t = new Thread(r, "cursorSNMP-discoverV3");
+                    t.setDaemon(true);
+                    return t;
+                });
+            }
+            return v3Executor;
+        }
+    }
+
+    private static ExecutorService sweepExecutor() {
+        ExecutorService e = sweepExecutor;
+        if (e != null) {
+            return e;
+        }
+        synchronized (EXECUTOR_LOCK) {
+            if (sweepExecutor == null) {
+                sweepExecutor = Executors.newFixedThreadPool(MAX_SWEEPS, r -> {
+                    Thread t = new Thread(r, "cursorSNMP-discover-" + THREADS.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+            }
+            return sweepExecutor;
+        }
+    }
+
+    /**
+     * Up to {@code maxRows} responders, waiting up to {@value #NEXT_WAIT_MS} ms for the first one while the sweep is
+     * running; see the class comment for the final row.
+     */
+    static Dataset next(String id, int maxRows) {
+        Sweep sweep = id == null ? null : SWEEPS.get(id);
+        if (sweep == null) {
+            return dataset(null, List.<Object[]>of(statusRow(UNKNOWN_SWEEP, 0)));
+        }
+        sweep.lastUsed = System.currentTimeMillis();
+        int limit = maxRows > 0 ? maxRows : 500;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(NEXT_WAIT_MS);
+        while (sweep.rows.isEmpty() && !sweep.finished && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(20));
+        }
+        List<Object[]> page = new ArrayList<>();
+        boolean finished = sweep.finished;
+        Object[] row;
+        while (page.size() < limit && (row = sweep.rows.poll()) != null) {
+            page.add(row);
+        }
+        if (finished && sweep.rows.isEmpty() && page.size() < limit) {
+            page.add(statusRow(sweep.summary(), sweep.oids.length));
+            SWEEPS.remove(id);
+        }
+        return dataset(sweep.oids, page);
+    }
+
+    static boolean close(String id) {
+        Sweep sweep = id == null ? null : SWEEPS.remove(id);
+        if (sweep == null) {
+            return false;
+        }
+        sweep.cancelled = true;
+        return true;
+    }
+
+    static void clear() {
+        for (Sweep sweep : SWEEPS.values()) {
+            sweep.cancelled = true;
+        }
+        SWEEPS.clear();
+        synchronized (EXECUTOR_LOCK) {
+            // Interrupts sweeps waiting for v3 probes that will never complete once their pool is gone.
+            if (sweepExecutor != null) {
+                sweepExecutor.shutdownNow();
+                sweepExecutor = null;
+            }
+            if (v3Executor != null) {
+                v3Executor.shutdownNow();
+                v3Executor = null;
+            }
+        }
+    }
+
+    /** First and last address of {@code cidr}; network and broadcast addresses are skipped below /31. */
+    static long[] range(String cidr) {
+        String s = cidr.trim();
+        int slash = s.indexOf('/');
+        long base = parseIpv4(slash < 0 ? s : s.substring(0, slash));
+        int prefix = slash < 0 ? 32 : Integer.parseInt(s.substring(slash + 1).trim());
+        if (prefix < 0 || prefix > 32) {
+            throw new IllegalArgumentException("invalid prefix in " + cidr);
+        }
+        long mask = prefix == 0 ? 0 : (0xFFFFFFFFL << (32 - prefix)) & 0xFFFFFFFFL;
+        long first = base & mask;
+        long last = first | (~mask & 0xFFFFFFFFL);
+        if (prefix < 31) {
+            first++;
+            last--;
+        }
+        return new long[] { first, last };
+    }
+
+    private static long parseIpv4(String s) {
+        String[] parts = s.split("\\.");
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("not an IPv4 address: " + s);
+        }
+        long value = 0;
+        for (String part : parts) {
+            int octet = Integer.parseInt(part);
+            if (octet < 0 || octet > 255) {
+                throw new IllegalArgumentException("not an IPv4 address: " + s);
+            }
+            value = (value << 8) | octet;
+        }
+        return value;
+    }
+
+    private static String ip(long a) {
+        return ((a >> 24) & 0xFF) + "." + ((a >> 16) & 0xFF) + "." + ((a >> 8) & 0xFF) + "." + (a & 0xFF);
+    }
+
+    private static Object[] statusRow(String status, int oidCount) {
+        Object[] row = new Object[3 + oidCount];
+        row[2] = status;
+        return row;
+    }
+
+    private static Dataset dataset(String[] oids, List<Object[]> rows) {
+        int oidCount = oids == null ? 0 : oids.length;
+        List<String> names = new ArrayList<>(3 + oidCount);
+        List<Class<?>> types = new ArrayList<>(3 + oidCount);
+        names.add("address");
+        names.add("credential");
+        names.add("status");
+        for (int i = 0; i < 3 + oidCount; i++) {
+            types.add(String.class);
+        }
+        for (int i = 0; i < oidCount; i++) {
+            names.add(oids[i]);
+        }
+        Object[][] data = new Object[3 + oidCount][rows.size()];
+        for (int r = 0; r < rows.size(); r++) {
+            Object[] row = rows.get(r);
+            for (int c = 0; c < data.length; c++) {
+                data[c][r] = c < row.length ? row[c] : null;
+            }
+        }
+        return new BasicDataset(names, types, data);
+    }
+
+    private static void expireIdle() {
+        long cutoff = System.currentTimeMillis() - IDLE_TIMEOUT_MS;
+        Iterator<Map.Entry<String, Sweep>> it = SWEEPS.entrySet().iterator();
+        while (it.hasNext()) {
+            Sweep sweep = it.next().getValue();
+            if (sweep.lastUsed < cutoff) {
+                sweep.cancelled = true;
+                it.remove();
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package io.cursor.snmp.common;
 
+import com.inductiveautomation.ignition.common.Dataset;
 import com.inductiveautomation.ignition.common.rpc.RpcInterface;
 import com.inductiveautomation.ignition.common.rpc.RpcSerializer;
 import com.inductiveautomation.ignition.common.rpc.proto.ProtoRpcSerializer;
@@ -10,6 +11,39 @@ public interface FunctionInterface {
     String[] getV3(String addr, int port, String[] OIDS, int authLevel, String user, String pass, int authProt, int privProt, String... params );
     String[] walk(String ip, int port, String startOID, String[] params);
     String[] walkV3(String ip, int port, String startOID, int authLevel, String user, String pass, int authProt, int privProt, String[] params);
+    Dataset getMany(String[] targets, String[] OIDS, String... params);
+    Dataset getTyped(String addr, int port, String[] OIDS, String... params);
+    Dataset getTypedV3(String addr, int port, String[] OIDS, int authLevel, String user, String pass, int authProt, int privProt, String... params);
+    Dataset walkTyped(String addr, int port, String startOID, String... params);
+    Dataset walkTypedV3(String addr, int port, String startOID, int authLevel, String user, String pass, int authProt, int privProt, String... params);
+    String walkOpen(String addr, int port, String startOID, String... params);
+    String walkOpenV3(String addr, int port, String startOID, int authLevel, String user, String pass, int authProt, int privProt, String... params);
+    String[] walkNext(String cursorId, int maxRows);
+    boolean walkClose(String cursorId);
+    Dataset getTable(String addr, int port, String[] columnOIDs, String... params);
+    Dataset getTableV3(String addr, int port, String[] columnOIDs, int authLevel, String user, String pass, int authProt, int privProt, String... params);
+    Dataset getStats();
+    String prepare(String addr, int port, String[] OIDS, String... params);
+    String prepareV3(String addr, int port, String[] OIDS, int authLevel, String user, String pass, int authProt, int privProt, String... params);
+    String[] execute(String handle);
+    boolean releasePrepared(String handle);
+    String[] walkDelta(String clientId, long knownSeq, String addr, int port, String startOID, String... params);
+    String[] getDelta(String clientId, long knownSeq, String addr, int port, String[] OIDS, String... params);
+    byte[] walkPacked(String ip, int port, String startOID, String[] params);
+    byte[] walkV3Packed(String ip, int port, String startOID, int authLevel, String user, String pass, int authProt, int privProt, String[] params);
+    byte[] getManyPacked(String[] targets, String[] OIDS, String... params);
+    String[] subscribe(String clientId, String addr, int port, String[] OIDS, long rateMs, double deadband, String... params);
+    String[] renewSubscriptions(String clientId, String[] subscriptionIds);
+    boolean unsubscribe(String clientId, String subscriptionId);
+
+    /** Message type of the push notifications carrying subscription changes. */
+    String SUBSCRIPTION_NOTIFICATION = "subscription";
+    Dataset getRates(String addr, int port, String[] OIDS, String... params);
+    String discover(String[] cidrs, String[] communities, String[] oids, String... params);
+    String discoverV3(String[] cidrs, String[] oids, int authLevel, String user, String pass, int authProt, int privProt, String... params);
+    Dataset discoverNext(String sweepId, int maxRows);
+    boolean discoverClose(String sweepId);
+    Dataset queryJournal(String addr, int port, String[] OIDS, long startMillis, long endMillis, int maxRows);
 
     RpcSerializer SERIALIZER = ProtoRpcSerializer.newBuilder().build();
 }
@@ -0,0 +1,196 @@
+package io.cursor.snmp.common;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.snmp4j.Target;
+import org.snmp4j.smi.Address;
+import org.snmp4j.smi.OID;
+
+/**
+ * Quarantine for agents that stop answering.
+ * <p>
+ * After {@value #THRESHOLD_PROPERTY} (default {@value #DEFAULT_THRESHOLD}; {@code 0} disables quarantine) consecutive
+ * timed-out gets or walks, an agent address is quarantined: calls to it fail at once with {@code [Q001]} instead of
+ * waiting out timeout and retries. A background probe then gets {@code sysUpTime.0} without retries, first after
+ * {@value #FIRST_PROBE_MS} ms and then with the delay doubled after each failed probe, up to
+ * {@value #MAX_PROBE_MS} ms. Any answer, whether from a probe or a call with {@code quarantine=false}, releases the
+ * agent. Answers with an SNMP error status count as answers: the host is alive. Agents that are not quarantined and
+ * have not timed out for {@link #IDLE_TIMEOUT_MS} are forgotten.
+ */
+final class HostHealth {
+    static final String THRESHOLD_PROPERTY = "cursor.snmp.quarantineAfter";
+    static final int DEFAULT_THRESHOLD = 3;
+    static final long FIRST_PROBE_MS = 5000L;
+    static final long MAX_PROBE_MS = 300000L;
+    static final OID SYS_UP_TIME = new OID("1.3.6.1.2.1.1.3.0");
+    static final long IDLE_TIMEOUT_MS = 60L * 60L * 1000L;
+
+    private static final int THRESHOLD = Math.max(0, Integer.getInteger(THRESHOLD_PROPERTY, DEFAULT_THRESHOLD));
+
+    private static final ConcurrentHashMap<Address, Health> HOSTS = new ConcurrentHashMap<>();
+    private static final Object SCHEDULER_LOCK = new Object();
+    private static volatile ScheduledExecutorService scheduler;
+
+    private HostHealth() {
+    }
+
+    private static final class Health {
+        final Address address;
+        volatile boolean quarantined;
+        private int failures;
+        private long probeDelayMs;
+        private long nextProbeAt;
+        private Supplier<CompletableFuture<Boolean>> probe;
+        private ScheduledFuture<?> task;
+        volatile long lastUsed = System.currentTimeMillis();
+
+        Health(Address address) {
+            this.address = address;
+        }
+
+        synchronized String describe() {
+            long wait = Math.max(0, nextProbeAt - System.currentTimeMillis());
+            return "[Q001] Error: " + address + " quarantined after " + failures
+                    + " consecutive timeouts; next probe in " + (wait + 999) / 1000 + " s";
+        }
+    }
+
+    /**
+     * {@code null} when calls to the target may proceed, otherwise the {@code [Q001]} message to return.
+     * {@code quarantine=false} in {@code params} lets a call through regardless.
+     */
+    static String check(Target<?> target, String[] params) {
+        Health health = HOSTS.get(target.getAddress());
+        if (health == null || !health.quarantined) {
+            return null;
+        }
+        String bypass = CursorSNMPDriverModule.findParam(params, "quarantine");
+        if (bypass != null && bypass.equalsIgnoreCase("false")) {
+            return null;
+        }
+        return health.describe();
+    }
+
+    static void answered(Address address) {
+        Health health = HOSTS.get(address);
+        if (health == null) {
+            return;
+        }
+        synchronized (health) {
+            health.failures = 0;
+            health.quarantined = false;
+            health.probe = null;
+            if (health.task != null) {
+                health.task.cancel(false);
+                health.task = null;
+            }
+        }
+    }
+
+    /**
+     * Counts a timeout. {@code probe} is kept when this timeout puts the agent into quarantine; each call must send
+     * one request and complete {@code true} if the agent answered.
+     */
+    static void timedOut(Target<?> target, Supplier<CompletableFuture<Boolean>> probe) {
+        if (THRESHOLD == 0) {
+            return;
+        }
+        Health health = HOSTS.get(target.getAddress());
+        if (health == null) {
+            expireIdle();
+            health = HOSTS.computeIfAbsent(target.getAddress(), Health::new);
+        }
+        synchronized (health) {
+            health.lastUsed = System.currentTimeMillis();
+            health.failures++;
+            if (health.quarantined || health.failures < THRESHOLD) {
+                return;
+            }
+            health.quarantined = true;
+            health.probe = probe;
+            health.probeDelayMs = FIRST_PROBE_MS;
+            schedule(health);
+        }
+    }
+
+    private static void expireIdle() {
+        long cutoff = System.currentTimeMillis() - IDLE_TIMEOUT_MS;
+        Iterator<Map.Entry<Address, Health>> it = HOSTS.entrySet().iterator();
+        while (it.hasNext()) {
+            Health health = it.next().getValue();
+            if (!health.quarantined && health.lastUsed < cutoff) {
+                it.remove();
+            }
+        }
+    }
+
+    /** Caller holds the lock on {@code health}. */
+    private static void schedule(Health health) {
+        health.nextProbeAt = System.currentTimeMillis() + health.probeDelayMs;
+        health.task = scheduler().schedule(() -> runProbe(health), health.probeDelayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private static void runProbe(Health health) {
+        Supplier<CompletableFuture<Boolean>> probe;
+        synchronized (health) {
+            if (!health.quarantined || health.probe == null) {
+                return;
+            }
+            probe = health.probe;
+        }
+        CompletableFuture<Boolean> request;
+        try {
+            request = probe.get();
+        } catch (RuntimeException e) {
+            request = CompletableFuture.completedFuture(false);
+        }
+        request.whenComplete((ok, error) -> {
+            if (error == null && Boolean.TRUE.equals(ok)) {
+                answered(health.address);
+                return;
+            }
+            synchronized (health) {
+                if (health.quarantined && health.probe == probe && HOSTS.get(health.address) == health) {
+                    health.probeDelayMs = Math.min(MAX_PROBE_MS, health.probeDelayMs * 2);
+                    schedule(health);
+                }
+            }
+        });
+    }
+
+    private static ScheduledExecutorService scheduler() {
+        ScheduledExecutorService s = scheduler;
+        if (s != null) {
+            return s;
+        }
+        synchronized (SCHEDULER_LOCK) {
+            if (scheduler == null) {
+                scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread t = new Thread(r, "cursorSNMP-health");
+                    t.setDaemon(true);
+                    return t;
+                });
+            }
+            return scheduler;
+        }
+    }
+
+    /** Forgets all agents and stops probing; called from module shutdown. */
+    static void clear() {
+        HOSTS.clear();
+        synchronized (SCHEDULER_LOCK) {
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+                scheduler = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,378 @@
+package io.cursor.snmp.common;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.inductiveautomation.ignition.common.BasicDataset;
+import com.inductiveautomation.ignition.common.Dataset;
+
+/**
+ * Compact columnar encoding of large results for the gateway-to-client RPC path.
+ * <p>
+ * A {@code String[]} result is cut into columns: a kind byte per row, the OIDs of {@code oid = value} rows, their
+ * integer values and every other string. OIDs are stored as the number of leading characters shared with the
+ * previous OID plus the remaining suffix, so a walk pays for its long common prefix once. Canonical decimal values
+ * (integers, counters, gauges, timeticks) become zig-zag varints of the difference to the previous integer. Strings
+ * are length-prefixed UTF-8. Decoding rebuilds exactly the strings that were encoded.
+ * <p>
+ * Layout: a version byte, a flags byte (bit 0: deflated) and the body, deflated when it reaches
+ * {@value #COMPRESS_MIN_PROPERTY} bytes (default {@value #DEFAULT_COMPRESS_MIN}, {@code 0} never). The body is the
+ * row count followed by the kind, OID, integer and string columns, each prefixed with its byte length.
+ */
+public final class PackedResults {
+    static final String COMPRESS_MIN_PROPERTY = "cursor.snmp.rpcCompressMin";
+    static final int DEFAULT_COMPRESS_MIN = 16 * 1024;
+    static final String UNREADABLE = "[PK01] Error: unreadable packed result from gateway";
+
+    private static final int VERSION = 1;
+    private static final int FLAG_DEFLATED = 1;
+    private static final int COMPRESS_MIN = Integer.getInteger(COMPRESS_MIN_PROPERTY, DEFAULT_COMPRESS_MIN);
+
+    private static final byte KIND_NULL = 0;
+    private static final byte KIND_STRING = 1;
+    private static final byte KIND_OID_STRING = 2;
+    private static final byte KIND_OID_INTEGER = 3;
+    private static final byte KIND_INTEGER = 4;
+
+    private static final String SEPARATOR = " = ";
+
+    private PackedResults() {
+    }
+
+    static byte[] pack(String[] rows) {
+        Columns columns = new Columns();
+        for (String row : rows) {
+            columns.add(row);
+        }
+        return columns.toBytes(rows.length);
+    }
+
+    /**
+     * Packs a Dataset whose columns are all {@code String} (as {@link CursorSNMPDriverModule#snmpGetMany} returns):
+     * the column names, then every cell column by column.
+     */
+    static byte[] packDataset(Dataset dataset) {
+        int cols = dataset.getColumnCount();
+        int rows = dataset.getRowCount();
+        String[] cells = new String[2 + cols + cols * rows];
+        int i = 0;
+        cells[i++] = String.valueOf(cols);
+        cells[i++] = String.valueOf(rows);
+        for (int c = 0; c < cols; c++) {
+            cells[i++] = dataset.getColumnName(c);
+        }
+        for (int c = 0; c < cols; c++) {
+            for (int r = 0; r < rows; r++) {
+                Object value = dataset.getValueAt(r, c);
+                cells[i++] = value == null ? null : value.toString();
+            }
+        }
+        return pack(cells);
+    }
+
+    /** Decodes {@link #pack}; an unreadable payload yields a single {@code [PK01]} error row. */
+    public static String[] unpack(byte[] packed) {
+        try {
+            return decode(packed);
+        } catch (RuntimeException | DataFormatException e) {
+            return new String[] { UNREADABLE };
+        }
+    }
+
+    /** Decodes {@link #packDataset}; an unreadable payload yields a one-cell {@code error} Dataset. */
+    public static Dataset unpackDataset(byte[] packed) {
+        try {
+            String[] cells = decode(packed);
+            int cols = Integer.parseInt(cells[0]);
+            int rows = Integer.parseInt(cells[1]);
+            if (cols < 0 || rows < 0 || 2L + cols + (long) cols * rows != cells.length) {
+                throw new IllegalArgumentException("dataset shape does not match cell count");
+            }
+            List<String> names = new ArrayList<>(cols);
+            List<Class<?>> types = new ArrayList<>(cols);
+            for (int c = 0; c < cols; c++) {
+                names.add(cells[2 + c]);
+                types.add(String.class);
+            }
+            Object[][] data = new Object[cols][rows];
+            int i = 2 + cols;
+            for (int c = 0; c < cols; c++) {
+                for (int r = 0; r < rows; r++) {
+                    data[c][r] = cells[i++];
+                }
+            }
+            return new BasicDataset(names, types, data);
+        } catch (RuntimeException | DataFormatException e) {
+            return new BasicDataset(List.of("error"), List.of(String.class), new Object[][] { { UNREADABLE } });
+        }
+    }
+
+    private static final class Columns {
+        final ByteArrayOutputStream kinds = new ByteArrayOutputStream();
+        final ByteArrayOutputStream oids = new ByteArrayOutputStream();
+        final ByteArrayOutputStream integers = new ByteArrayOutputStream();
+        final ByteArrayOutputStream strings = new ByteArrayOutputStream();
+        String previousOid = "";
+        long previousInteger;
+
+        void add(String row) {
+            if (row == null) {
+                kinds.write(KIND_NULL);
+                return;
+            }
+            int eq = row.indexOf(SEPARATOR);
+            if (eq > 0 && Character.isDigit(row.charAt(0))) {
+                String oid = row.substring(0, eq);
+                String value = row.substring(eq + SEPARATOR.length());
+                int shared = sharedPrefix(previousOid, oid);
+                writeVarint(oids, shared);
+                writeString(oids, oid.substring(shared));
+                previousOid = oid;
+                if (isCanonicalLong(value)) {
+                    kinds.write(KIND_OID_INTEGER);
+                    writeInteger(Long.parseLong(value));
+                } else {
+                    kinds.write(KIND_OID_STRING);
+                    writeString(strings, value);
+                }
+            } else if (isCanonicalLong(row)) {
+                kinds.write(KIND_INTEGER);
+                writeInteger(Long.parseLong(row));
+            } else {
+                kinds.write(KIND_STRING);
+                writeString(strings, row);
+            }
+        }
+
+        void writeInteger(long value) {
+            long delta = value - previousInteger;
+            writeVarint(integers, (delta << 1) ^ (delta >> 63));
+            previousInteger = value;
+        }
+
+        byte[] toBytes(int rowCount) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream(
+                    16 + kinds.size() + oids.size() + integers.size() + strings.size());
+            writeVarint(body, rowCount);
+            for (ByteArrayOutputStream column : new ByteArrayOutputStream[] { kinds, oids, integers, strings }) {
+                writeVarint(body, column.size());
+                body.writeBytes(column.toByteArray());
+            }
+            byte[] raw = body.toByteArray();
+            boolean deflate = COMPRESS_MIN > 0 && raw.length >= COMPRESS_MIN;
+            byte[] payload = deflate ? deflate(raw) : raw;
+            byte[] out = new byte[payload.length + 2];
+            out[0] = VERSION;
+            out[1] = (byte) (deflate ? FLAG_DEFLATED : 0);
+            System.arraycopy(payload, 0, out, 2, payload.length);
+            return out;
+        }
+    }
+
+    private static String[] decode(byte[] packed) throws DataFormatException {
+        if (packed == null || packed.length < 2 || packed[0] != VERSION) {
+            throw new IllegalArgumentException("unsupported packed result");
+        }
+        byte[] body = (packed[1] & FLAG_DEFLATED) != 0
+                ? inflate(packed, 2)
+                : Arrays.copyOfRange(packed, 2, packed.length);
+        Reader in = new Reader(body, 0);
+        long rowCount = in.varint();
+        Reader kinds = in.column();
+        Reader oids = in.column();
+        Reader integers = in.column();
+        Reader strings = in.column();
+        // one kind byte per row, so a row count the kind column cannot hold is corrupt
+        if (rowCount < 0 || rowCount > kinds.end - kinds.pos) {
+            throw new IllegalArgumentException("row count " + rowCount + " exceeds kind column");
+        }
+
+        String[] rows = new String[(int) rowCount];
+        String previousOid = "";
+        long previousInteger = 0;
+        for (int i = 0; i < rows.length; i++) {
+            byte kind = kinds.next();
+            String oid = null;
+            if (kind == KIND_OID_STRING || kind == KIND_OID_INTEGER) {
+                long shared = oids.varint();
+                if (shared < 0 || shared > previousOid.length()) {
+                    throw new IllegalArgumentException("shared OID prefix out of range");
+                }
+                oid = previousOid.substring(0, (int) shared) + oids.string();
+                previousOid = oid;
+            }
+            String value;
+            switch (kind) {
+                case KIND_NULL:
+                    value = null;
+                    break;
+                case KIND_STRING:
+                case KIND_OID_STRING:
+                    value = strings.string();
+                    break;
+                case KIND_INTEGER:
+                case KIND_OID_INTEGER: {
+                    long zigzag = integers.varint();
+                    previousInteger += (zigzag >>> 1) ^ -(zigzag & 1);
+                    value = Long.toString(previousInteger);
+                    break;
+                }
+                default:
+                    throw new IllegalArgumentException("unknown row kind " + kind);
+            }
+            rows[i] = oid == null ? value : oid + SEPARATOR + value;
+        }
+        return rows;
+    }
+
+    /** Sequential reader over a slice of the body. */
+    private static final class Reader {
+        final byte[] bytes;
+        int pos;
+        final int end;
+
+        Reader(byte[] bytes, int pos) {
+            this(bytes, pos, bytes.length);
+        }
+
+        Reader(byte[] bytes, int pos, int end) {
+            this.bytes = bytes;
+            this.pos = pos;
+            this.end = end;
+        }
+
+        byte next() {
+            if (pos >= end) {
+                throw new IllegalArgumentException("truncated packed result");
+            }
+            return bytes[pos++];
+        }
+
+        long varint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (pos >= end) {
+                    throw new IllegalArgumentException("truncated packed result");
+                }
+                byte b = bytes[pos++];
+                value |= (long) (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("malformed varint");
+        }
+
+        String string() {
+            long length = varint();
+            if (length < 0 || length > end - pos) {
+                throw new IllegalArgumentException("truncated packed result");
+            }
+            String s = new String(bytes, pos, (int) length, StandardCharsets.UTF_8);
+            pos += (int) length;
+            return s;
+        }
+
+        /** The next length-prefixed column as its own reader. */
+        Reader column() {
+            long length = varint();
+            if (length < 0 || length > end - pos) {
+                throw new IllegalArgumentException("truncated packed result");
+            }
+            Reader column = new Reader(bytes, pos, pos + (int) length);
+            pos += (int) length;
+            return column;
+        }
+    }
+
+    private static int sharedPrefix(String a, String b) {
+        int max = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < max && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /** {@code true} when {@code s} is exactly what {@link Long#toString(long)} prints for some value. */
+    private static boolean isCanonicalLong(String s) {
+        int n = s.length();
+        if (n == 0 || n > 20) {
+            return false;
+        }
+        int i = s.charAt(0) == '-' ? 1 : 0;
+        if (i == n || (s.charAt(i) == '0' && (n > i + 1 || i == 1))) {
+            return false;
+        }
+        for (int j = i; j < n; j++) {
+            char c = s.charAt(j);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        if (n - i < 19) {
+            return true;
+        }
+        try {
+            Long.parseLong(s);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] packed, int offset) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(packed, offset, packed.length - offset);
+            ByteArrayOutputStream out = new ByteArrayOutputStream((packed.length - offset) * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("truncated deflate stream");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            inflater.end();
+        }
+    }
+}
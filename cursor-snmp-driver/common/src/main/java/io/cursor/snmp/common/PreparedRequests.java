@@ -0,0 +1,97 @@
+package io.cursor.snmp.common;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.snmp4j.CommunityTarget;
+import org.snmp4j.smi.VariableBinding;
+
+/**
+ * Prepared get handles. Preparing parses the address, builds the target, scans {@code params} and parses the OIDs
+ * once; executing a handle reuses all of it, so a fast poll pays only for the request itself. Targets and bindings
+ * are shared by concurrent executions and are never modified; with adaptive timeouts on, each execution works on a
+ * copy of the target so the learned timeout still applies. Handles unused for {@link #IDLE_TIMEOUT_MS} are
+ * discarded.
+ */
+final class PreparedRequests {
+    static final long IDLE_TIMEOUT_MS = 60L * 60L * 1000L;
+    static final String UNKNOWN_HANDLE = "[PR01] Error: unknown or expired prepared request";
+
+    private static final ConcurrentHashMap<String, Prepared> HANDLES = new ConcurrentHashMap<>();
+
+    private PreparedRequests() {
+    }
+
+    static final class Prepared {
+        /** v1/v2c template, or {@code null} for v3. */
+        final CommunityTarget target;
+        /** v3 call, or {@code null} for v1/v2c. */
+        final CursorSNMPDriverModule.V3Call v3Call;
+        final VariableBinding[] bindings;
+        final String[] params;
+        final String cacheKey;
+        final long cacheTtl;
+        final boolean adaptive;
+        /** Set instead of everything else when preparing failed; returned by every execution. */
+        final String error;
+        volatile long lastUsed = System.currentTimeMillis();
+
+        Prepared(
+                CommunityTarget target,
+                CursorSNMPDriverModule.V3Call v3Call,
+                VariableBinding[] bindings,
+                String[] params,
+                String cacheKey,
+                String error) {
+            this.target = target;
+            this.v3Call = v3Call;
+            this.bindings = bindings;
+            this.params = params == null ? null : params.clone();
+            this.cacheKey = cacheKey;
+            this.cacheTtl = cacheKey == null ? 0L : ResponseCache.ttl(params);
+            this.adaptive = AdaptiveTimeouts.enabled(params);
+            this.error = error;
+        }
+    }
+
+    static String add(Prepared prepared) {
+        expireIdle();
+        String id = UUID.randomUUID().toString();
+        HANDLES.put(id, prepared);
+        return id;
+    }
+
+    /** Adds a handle whose every execution returns {@code error}. */
+    static String addFailed(String error) {
+        return add(new Prepared(null, null, null, null, null, error));
+    }
+
+    /** The handle, or {@code null} when it is unknown or expired. */
+    static Prepared get(String id) {
+        Prepared prepared = id == null ? null : HANDLES.get(id);
+        if (prepared != null) {
+            prepared.lastUsed = System.currentTimeMillis();
+        }
+        return prepared;
+    }
+
+    static boolean release(String id) {
+        return id != null && HANDLES.remove(id) != null;
+    }
+
+    static void clear() {
+        HANDLES.clear();
+    }
+
+    private static void expireIdle() {
+        long cutoff = System.currentTimeMillis() - IDLE_TIMEOUT_MS;
+        Iterator<Map.Entry<String, Prepared>> it = HANDLES.entrySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().getValue().lastUsed < cutoff) {
+                it.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,426 @@
+package io.cursor.snmp.common;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.snmp4j.PDU;
+import org.snmp4j.Target;
+import org.snmp4j.smi.Address;
+import org.snmp4j.util.DefaultPDUFactory;
+
+/**
+ * Token buckets for outgoing requests, one per agent address and one for the whole gateway, with fair queueing
+ * across agents.
+ * <p>
+ * Every request PDU takes a token from its agent's bucket and from the global bucket. An agent's bucket refills at
+ * {@code rateLimit} tokens per second and holds up to {@code rateBurst}: {@code rateLimit=N} and {@code rateBurst=N}
+ * in {@code params}, else the values set with {@link #configure} for the address, else {@value #RATE_PROPERTY} and
+ * {@value #BURST_PROPERTY}. The global bucket uses {@value #GLOBAL_RATE_PROPERTY} and {@value #GLOBAL_BURST_PROPERTY}
+ * or {@link #configureGlobal}. A rate of {@code 0} (the default) means no limit; the burst defaults to the rate.
+ * <p>
+ * A request that finds a bucket empty waits in its agent's queue. One thread hands out tokens round-robin over the
+ * agents with waiting requests, one request per agent per turn, so a burst to one agent delays only that agent and
+ * gets no more than its share of the global rate. A request that waits longer than {@code rateWait=N} ms (default
+ * {@value #DEFAULT_WAIT_MS}) fails with {@code [RL01]} and nothing is sent. Walks and tables wait for their first
+ * request only; later pages follow the agent's answers and are charged without waiting, which delays the agent's
+ * other requests instead. Retries sent by SNMP4J are not counted.
+ */
+final class RateLimits {
+    static final String RATE_PROPERTY = "cursor.snmp.rateLimit";
+    static final String BURST_PROPERTY = "cursor.snmp.rateBurst";
+    static final String GLOBAL_RATE_PROPERTY = "cursor.snmp.globalRateLimit";
+    static final String GLOBAL_BURST_PROPERTY = "cursor.snmp.globalRateBurst";
+    static final long DEFAULT_WAIT_MS = 30_000L;
+    static final long IDLE_TIMEOUT_MS = 60L * 60L * 1000L;
+
+    private static final int DEFAULT_RATE = Math.max(0, Integer.getInteger(RATE_PROPERTY, 0));
+    private static final int DEFAULT_BURST = Math.max(0, Integer.getInteger(BURST_PROPERTY, 0));
+    private static final CompletableFuture<Boolean> GRANTED = CompletableFuture.completedFuture(Boolean.TRUE);
+
+    private static final ReentrantLock LOCK = new ReentrantLock();
+    private static final Condition CHANGED = LOCK.newCondition();
+    /** Guarded by {@link #LOCK}. */
+    private static final Bucket GLOBAL_BUCKET = new Bucket();
+    /** Agents with waiting requests, in turn order; guarded by {@link #LOCK}. */
+    private static final ArrayDeque<Agent> READY = new ArrayDeque<>();
+    /** Written under {@link #LOCK}; read without it only to skip the lock when nothing is limited. */
+    private static final ConcurrentHashMap<Address, Agent> AGENTS = new ConcurrentHashMap<>();
+    /** Per-address {rate, burst} set with {@link #configure}. */
+    private static final ConcurrentHashMap<Address, int[]> CONFIGURED = new ConcurrentHashMap<>();
+    private static volatile boolean globalLimited;
+    /** Guarded by {@link #LOCK}. */
+    private static Thread scheduler;
+
+    static {
+        configureGlobal(Integer.getInteger(GLOBAL_RATE_PROPERTY, 0), Integer.getInteger(GLOBAL_BURST_PROPERTY, 0));
+    }
+
+    private RateLimits() {
+    }
+
+    /** Thrown by blocking senders that got no token in time; the message is the {@code [RL01]} error. */
+    static final class WaitExceeded extends IOException {
+        WaitExceeded(String message) {
+            super(message);
+        }
+    }
+
+    /** Guarded by {@link #LOCK}. */
+    private static final class Bucket {
+        int rate;
+        int burst;
+        double tokens;
+        long refilled = System.nanoTime();
+
+        void set(int newRate, int newBurst, long now) {
+            if (newRate == rate && newBurst == burst) {
+                return;
+            }
+            refill(now);
+            tokens = rate <= 0 ? newBurst : Math.min(tokens, newBurst);
+            rate = newRate;
+            burst = newBurst;
+        }
+
+        void refill(long now) {
+            if (rate > 0) {
+                tokens = Math.min(burst, tokens + (now - refilled) * (double) rate / 1e9);
+            }
+            refilled = now;
+        }
+
+        boolean ready() {
+            return rate <= 0 || tokens >= 1;
+        }
+
+        /** Takes a token; a charged page may leave the bucket in debt. */
+        void take() {
+            if (rate > 0) {
+                tokens -= 1;
+            }
+        }
+
+        long nanosUntilReady() {
+            return ready() ? 0 : (long) Math.ceil((1 - tokens) * 1e9 / rate);
+        }
+    }
+
+    private static final class Waiter {
+        final CompletableFuture<Boolean> future = new CompletableFuture<>();
+        final long deadline;
+
+        Waiter(long deadline) {
+            this.deadline = deadline;
+        }
+    }
+
+    /** Guarded by {@link #LOCK}. */
+    private static final class Agent {
+        final Bucket bucket = new Bucket();
+        final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+        long lastUsed;
+    }
+
+    /**
+     * Completes {@code true} once the request may be sent, or {@code false} after {@code rateWait}; already complete
+     * when no limit applies or tokens are at hand and nobody is waiting.
+     */
+    static CompletableFuture<Boolean> acquire(Target<?> target, String[] params) {
+        Address address = target.getAddress();
+        int rate = rate(address, params);
+        if (rate <= 0 && !globalLimited) {
+            return GRANTED;
+        }
+        int burst = burst(address, params, rate);
+        long waitNanos = TimeUnit.MILLISECONDS.toNanos(
+                Math.max(0, CursorSNMPDriverModule.intParam(params, "rateWait", (int) DEFAULT_WAIT_MS)));
+        LOCK.lock();
+        try {
+            long now = System.nanoTime();
+            Agent agent = agent(address, now);
+            agent.bucket.set(rate, burst, now);
+            agent.bucket.refill(now);
+            GLOBAL_BUCKET.refill(now);
+            if (agent.waiters.isEmpty() && (READY.isEmpty() || !globalLimited)
+                    && agent.bucket.ready() && GLOBAL_BUCKET.ready()) {
+                agent.bucket.take();
+                GLOBAL_BUCKET.take();
+                return GRANTED;
+            }
+            Waiter waiter = new Waiter(now + waitNanos);
+            if (agent.waiters.isEmpty()) {
+                READY.addLast(agent);
+            }
+            agent.waiters.addLast(waiter);
+            startScheduler();
+            CHANGED.signal();
+            return waiter.future;
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    /** Blocking {@link #acquire}: {@code null} once the request may be sent, else the {@code [RL01]} error. */
+    static String await(Target<?> target, String[] params) {
+        CompletableFuture<Boolean> granted = acquire(target, params);
+        try {
+            if (granted.get()) {
+                return null;
+            }
+        } catch (InterruptedException e) {
+            granted.complete(Boolean.FALSE);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Not completed exceptionally; treated as not granted.
+        }
+        return exceeded(target, params);
+    }
+
+    /** {@link #await} for senders that report failures by throwing. */
+    static void awaitOrThrow(Target<?> target, String[] params) throws WaitExceeded {
+        String error = await(target, params);
+        if (error != null) {
+            throw new WaitExceeded(error);
+        }
+    }
+
+    static String exceeded(Target<?> target, String[] params) {
+        return "[RL01] Error: " + target.getAddress() + " rate limit: no request slot within "
+                + Math.max(0, CursorSNMPDriverModule.intParam(params, "rateWait", (int) DEFAULT_WAIT_MS))
+                + " ms; nothing was sent";
+    }
+
+    /** Takes a token for a request that is sent without waiting; the buckets may go into debt. */
+    static void charge(Target<?> target) {
+        if (!globalLimited && AGENTS.isEmpty()) {
+            return;
+        }
+        LOCK.lock();
+        try {
+            long now = System.nanoTime();
+            GLOBAL_BUCKET.refill(now);
+            GLOBAL_BUCKET.take();
+            Agent agent = AGENTS.get(target.getAddress());
+            if (agent != null) {
+                agent.lastUsed = now;
+                agent.bucket.refill(now);
+                agent.bucket.take();
+            }
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    /**
+     * PDU factory for {@code TreeUtils} and {@code TableUtils} that charges every request after the first, which the
+     * caller awaited before starting.
+     */
+    static DefaultPDUFactory pduFactory(int pduType) {
+        return new DefaultPDUFactory(pduType) {
+            private final AtomicBoolean first = new AtomicBoolean(true);
+
+            @Override
+            public PDU createPDU(Target<?> target) {
+                if (!first.compareAndSet(true, false)) {
+                    charge(target);
+                }
+                return super.createPDU(target);
+            }
+        };
+    }
+
+    /** Sets the limit for one agent address; a rate of {@code 0} falls back to the defaults. */
+    static void configure(Address address, int rate, int burst) {
+        if (rate <= 0) {
+            CONFIGURED.remove(address);
+        } else {
+            CONFIGURED.put(address, new int[] { rate, burst > 0 ? burst : rate });
+        }
+    }
+
+    /** Sets the limit shared by all agents; a rate of {@code 0} removes it. */
+    static void configureGlobal(int rate, int burst) {
+        LOCK.lock();
+        try {
+            int r = Math.max(0, rate);
+            GLOBAL_BUCKET.set(r, burst > 0 ? burst : r, System.nanoTime());
+            globalLimited = r > 0;
+            CHANGED.signal();
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    static void clear() {
+        List<CompletableFuture<Boolean>> dropped = new ArrayList<>();
+        LOCK.lock();
+        try {
+            for (Agent agent : READY) {
+                for (Waiter waiter : agent.waiters) {
+                    dropped.add(waiter.future);
+                }
+                agent.waiters.clear();
+            }
+            READY.clear();
+            AGENTS.clear();
+            CONFIGURED.clear();
+            if (scheduler != null) {
+                scheduler.interrupt();
+                scheduler = null;
+            }
+        } finally {
+            LOCK.unlock();
+        }
+        configureGlobal(Integer.getInteger(GLOBAL_RATE_PROPERTY, 0), Integer.getInteger(GLOBAL_BURST_PROPERTY, 0));
+        for (CompletableFuture<Boolean> future : dropped) {
+            future.complete(Boolean.FALSE);
+        }
+    }
+
+    private static int rate(Address address, String[] params) {
+        int[] configured = CONFIGURED.get(address);
+        return Math.max(0, CursorSNMPDriverModule.intParam(
+                params, "rateLimit", configured != null ? configured[0] : DEFAULT_RATE));
+    }
+
+    private static int burst(Address address, String[] params, int rate) {
+        int[] configured = CONFIGURED.get(address);
+        int burst = CursorSNMPDriverModule.intParam(params, "rateBurst",
+                configured != null && configured[0] == rate ? configured[1] : DEFAULT_BURST);
+        return burst > 0 ? burst : rate;
+    }
+
+    /** Callers hold {@link #LOCK}. */
+    private static Agent agent(Address address, long now) {
+        Agent agent = AGENTS.get(address);
+        if (agent == null) {
+            expireIdle(now);
+            agent = new Agent();
+            AGENTS.put(address, agent);
+        }
+        agent.lastUsed = now;
+        return agent;
+    }
+
+    /** Callers hold {@link #LOCK}. */
+    private static void expireIdle(long now) {
+        long cutoff = now - TimeUnit.MILLISECONDS.toNanos(IDLE_TIMEOUT_MS);
+        Iterator<Map.Entry<Address, Agent>> it = AGENTS.entrySet().iterator();
+        while (it.hasNext()) {
+            Agent agent = it.next().getValue();
+            if (agent.waiters.isEmpty() && agent.lastUsed - cutoff < 0) {
+                it.remove();
+            }
+        }
+    }
+
+    /** Callers hold {@link #LOCK}. */
+    private static void startScheduler() {
+        if (scheduler != null) {
+            return;
+        }
+        Thread t = new Thread(RateLimits::schedule, "cursorSNMP-rateLimit");
+        t.setDaemon(true);
+        scheduler = t;
+        t.start();
+    }
+
+    private static void schedule() {
+        List<CompletableFuture<Boolean>> granted = new ArrayList<>();
+        List<CompletableFuture<Boolean>> expired = new ArrayList<>();
+        while (!Thread.currentThread().isInterrupted()) {
+            LOCK.lock();
+            try {
+                long wait;
+                while ((wait = dispatch(System.nanoTime(), granted, expired)) > 0) {
+                    CHANGED.awaitNanos(wait);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                LOCK.unlock();
+            }
+            // Outside the lock: granted requests are sent by whatever depends on these futures.
+            for (CompletableFuture<Boolean> future : granted) {
+                future.complete(Boolean.TRUE);
+            }
+            for (CompletableFuture<Boolean> future : expired) {
+                future.complete(Boolean.FALSE);
+            }
+            granted.clear();
+            expired.clear();
+        }
+    }
+
+    /**
+     * Hands out tokens round-robin, one request per agent per turn, and drops requests past their deadline. When the
+     * global bucket runs dry the agent whose turn it is stays first. Returns {@code 0} when there is something to
+     * complete, else how long to wait before trying again. Callers hold {@link #LOCK}.
+     */
+    private static long dispatch(long now, List<CompletableFuture<Boolean>> granted,
+            List<CompletableFuture<Boolean>> expired) {
+        GLOBAL_BUCKET.refill(now);
+        boolean progress = true;
+        while (progress && !READY.isEmpty() && GLOBAL_BUCKET.ready()) {
+            progress = false;
+            for (int i = READY.size(); i > 0 && GLOBAL_BUCKET.ready(); i--) {
+                Agent agent = READY.pollFirst();
+                Waiter head = nextWaiter(agent, now, expired);
+                if (head == null) {
+                    continue;
+                }
+                agent.bucket.refill(now);
+                if (agent.bucket.ready()) {
+                    agent.waiters.pollFirst();
+                    agent.bucket.take();
+                    GLOBAL_BUCKET.take();
+                    granted.add(head.future);
+                    progress = true;
+                    if (nextWaiter(agent, now, expired) == null) {
+                        continue;
+                    }
+                }
+                READY.addLast(agent);
+            }
+        }
+        if (!granted.isEmpty() || !expired.isEmpty()) {
+            return 0;
+        }
+        long wait = Long.MAX_VALUE;
+        Iterator<Agent> it = READY.iterator();
+        while (it.hasNext()) {
+            Agent agent = it.next();
+            Waiter head = nextWaiter(agent, now, expired);
+            if (head == null) {
+                it.remove();
+                continue;
+            }
+            wait = Math.min(wait, head.deadline - now);
+            wait = Math.min(wait, Math.max(agent.bucket.nanosUntilReady(), GLOBAL_BUCKET.nanosUntilReady()));
+        }
+        return expired.isEmpty() ? Math.max(1, wait) : 0;
+    }
+
+    /** Drops finished and expired requests from the head of the agent's queue; callers hold {@link #LOCK}. */
+    private static Waiter nextWaiter(Agent agent, long now, List<CompletableFuture<Boolean>> expired) {
+        Waiter head;
+        while ((head = agent.waiters.peekFirst()) != null && (head.future.isDone() || head.deadline - now <= 0)) {
+            agent.waiters.pollFirst();
+            if (!head.future.isDone()) {
+                expired.add(head.future);
+            }
+        }
+        return head;
+    }
+}
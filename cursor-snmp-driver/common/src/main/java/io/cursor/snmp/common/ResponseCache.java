@@ -0,0 +1,189 @@
+package io.cursor.snmp.common;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Short-lived cache for identical get/walk calls, with single-flight coalescing.
+ * <p>
+ * Caching is off unless a TTL is set, either per call with {@code cacheTtl=ms} in {@code params} or globally
+ * with the {@value #TTL_PROPERTY} system property (the call value wins, and {@code cacheTtl=0} opts a call out).
+ * While a TTL applies, requests with the same kind, target, OIDs and params (other than {@code cacheTtl}) share
+ * one in-flight request and then reuse its answer until it expires. Results containing an {@code [Xnnn] Error:}
+ * row are handed to the callers that were waiting for them but are never stored. At most
+ * {@value #MAX_ENTRIES_PROPERTY} (default {@value #DEFAULT_MAX_ENTRIES}) answers are kept; the least recently
+ * used is evicted first.
+ */
+final class ResponseCache {
+    static final String TTL_PROPERTY = "cursor.snmp.cacheTtl";
+    static final String MAX_ENTRIES_PROPERTY = "cursor.snmp.cacheMaxEntries";
+    static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    private static final String TTL_PARAM = "cacheTtl";
+    private static final long GLOBAL_TTL_MS = Long.getLong(TTL_PROPERTY, 0L);
+    private static final int MAX_ENTRIES = Math.max(1, Integer.getInteger(MAX_ENTRIES_PROPERTY, DEFAULT_MAX_ENTRIES));
+
+    private static final class Entry {
+        final String[] value;
+        final long expires;
+
+        Entry(String[] value, long expires) {
+            this.value = value;
+            this.expires = expires;
+        }
+    }
+
+    private static final Map<String, Entry> ENTRIES = new LinkedHashMap<String, Entry>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private static final ConcurrentHashMap<String, CompletableFuture<String[]>> IN_FLIGHT = new ConcurrentHashMap<>();
+
+    private ResponseCache() {
+    }
+
+    /** TTL in milliseconds for a call; 0 means the call bypasses the cache. */
+    static long ttl(String[] params) {
+        String val = CursorSNMPDriverModule.findParam(params, TTL_PARAM);
+        if (val != null && !val.isEmpty()) {
+            try {
+                return Math.max(0L, Long.parseLong(val));
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return GLOBAL_TTL_MS;
+    }
+
+    static String key(String kind, String ip, int port, String[] oids, String[] params) {
+        StringBuilder sb = new StringBuilder(kind).append('|').append(ip).append(':').append(port).append('|');
+        for (String oid : oids) {
+            sb.append(oid).append(',');
+        }
+        sb.append('|');
+        if (params != null) {
+            for (String param : params) {
+                if (param != null && isTtlParam(param)) {
+                    continue;
+                }
+                sb.append(param).append('\0');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Blocking lookup: a cached answer, the answer of an identical request already in flight, or the result of
+     * running {@code loader} on the calling thread.
+     */
+    static String[] get(String key, long ttlMs, Supplier<String[]> loader) {
+        if (ttlMs <= 0) {
+            return loader.get();
+        }
+        String[] cached = cached(key);
+        if (cached != null) {
+            return cached;
+        }
+        CompletableFuture<String[]> mine = new CompletableFuture<>();
+        CompletableFuture<String[]> leader = IN_FLIGHT.putIfAbsent(key, mine);
+        if (leader != null) {
+            return leader.join().clone();
+        }
+        try {
+            String[] value = loader.get();
+            store(key, ttlMs, value);
+            mine.complete(value);
+            return value.clone();
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            IN_FLIGHT.remove(key, mine);
+        }
+    }
+
+    /** Non-blocking {@link #get}: {@code loader} is only invoked when no answer is cached or in flight. */
+    static CompletableFuture<String[]> getAsync(String key, long ttlMs, Supplier<CompletableFuture<String[]>> loader) {
+        if (ttlMs <= 0) {
+            return loader.get();
+        }
+        String[] cached = cached(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<String[]> mine = new CompletableFuture<>();
+        CompletableFuture<String[]> leader = IN_FLIGHT.putIfAbsent(key, mine);
+        if (leader != null) {
+            return leader.thenApply(String[]::clone);
+        }
+        CompletableFuture<String[]> request;
+        try {
+            request = loader.get();
+        } catch (RuntimeException e) {
+            IN_FLIGHT.remove(key, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+        request.whenComplete((value, error) -> {
+            if (error == null) {
+                store(key, ttlMs, value);
+            }
+            IN_FLIGHT.remove(key, mine);
+            if (error != null) {
+                mine.completeExceptionally(error);
+            } else {
+                mine.complete(value);
+            }
+        });
+        return mine.thenApply(String[]::clone);
+    }
+
+    static void clear() {
+        synchronized (ENTRIES) {
+            ENTRIES.clear();
+        }
+    }
+
+    private static String[] cached(String key) {
+        synchronized (ENTRIES) {
+            Entry entry = ENTRIES.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expires <= System.currentTimeMillis()) {
+                ENTRIES.remove(key);
+                return null;
+            }
+            return entry.value.clone();
+        }
+    }
+
+    private static void store(String key, long ttlMs, String[] value) {
+        if (value == null || hasError(value)) {
+            return;
+        }
+        Entry entry = new Entry(Arrays.copyOf(value, value.length), System.currentTimeMillis() + ttlMs);
+        synchronized (ENTRIES) {
+            ENTRIES.put(key, entry);
+        }
+    }
+
+    private static boolean hasError(String[] value) {
+        for (String row : value) {
+            if (row != null && row.startsWith("[") && row.contains("] Error:")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isTtlParam(String param) {
+        int eq = param.indexOf('=');
+        return eq > 0 && param.substring(0, eq).trim().equalsIgnoreCase(TTL_PARAM);
+    }
+}
@@ -0,0 +1,60 @@
+package io.cursor.snmp.common;
+
+import org.snmp4j.PDU;
+import org.snmp4j.smi.VariableBinding;
+
+/**
+ * Outcome of one get: either the response bindings or a single {@code [Xnnn] Error: ...} message. Formatting to
+ * strings is left to the edge so callers such as the gateway poll engine can work with the bindings directly.
+ */
+public final class SnmpResult {
+    /** {@link #status} when the agent did not answer. */
+    public static final int STATUS_TIMEOUT = -1;
+    /** {@link #status} when the request failed locally before or while sending. */
+    public static final int STATUS_EXCEPTION = -2;
+    /** {@link #status} when nothing was sent because the agent is quarantined; see {@link HostHealth}. */
+    public static final int STATUS_QUARANTINED = -3;
+    /** {@link #status} when a v3 agent answered with a report, such as unknown user or wrong digest. */
+    public static final int STATUS_REPORT = -4;
+
+    private static final VariableBinding[] NO_BINDINGS = new VariableBinding[0];
+
+    public final VariableBinding[] bindings;
+    public final String error;
+    /** PDU error status ({@code PDU.noError} on success) or one of the negative {@code STATUS_} codes. */
+    public final int status;
+
+    private SnmpResult(VariableBinding[] bindings, String error, int status) {
+        this.bindings = bindings;
+        this.error = error;
+        this.status = status;
+    }
+
+    public static SnmpResult of(VariableBinding[] bindings) {
+        return new SnmpResult(bindings, null, PDU.noError);
+    }
+
+    public static SnmpResult error(String error) {
+        return new SnmpResult(NO_BINDINGS, error, STATUS_EXCEPTION);
+    }
+
+    public static SnmpResult error(String error, int status) {
+        return new SnmpResult(NO_BINDINGS, error, status);
+    }
+
+    public boolean isError() {
+        return error != null;
+    }
+
+    /** The historical script result: one value string per binding, or the error message alone. */
+    public String[] toStrings() {
+        if (error != null) {
+            return new String[] { error };
+        }
+        String[] res = new String[bindings.length];
+        for (int i = 0; i < bindings.length; i++) {
+            res[i] = String.valueOf(bindings[i].getVariable());
+        }
+        return res;
+    }
+}
@@ -0,0 +1,284 @@
+package io.cursor.snmp.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.inductiveautomation.ignition.common.BasicDataset;
+import com.inductiveautomation.ignition.common.Dataset;
+import org.snmp4j.Target;
+import org.snmp4j.smi.Address;
+
+/**
+ * Per-target request instrumentation for get, getV3, walk and walkV3.
+ * <p>
+ * Each target ({@code udp:host/port}) keeps a latency histogram of answered requests over fixed millisecond
+ * buckets, counters for requests, timeouts, error responses and retries, the number of requests in flight, the time
+ * spent waiting on the v3 first-contact discovery locks, and walk counts with their varbind totals. SNMP4J
+ * retransmits internally, so retries are inferred: an answered request that took longer than the target timeout was
+ * retransmitted {@code elapsed / timeout} times, and a timed-out request used all of its retries. Re-sends made by
+ * the module itself (split gets after {@code tooBig} or silence) are counted too. All updates are lock-free adders.
+ * Targets with nothing in flight and no requests for {@link #IDLE_TIMEOUT_MS} are dropped, so totals cover the
+ * targets still in use.
+ */
+public final class SnmpStats {
+    static final long[] BUCKET_BOUNDS_MS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000 };
+    static final long IDLE_TIMEOUT_MS = 60L * 60L * 1000L;
+
+    private static final ConcurrentHashMap<String, TargetStats> TARGETS = new ConcurrentHashMap<>();
+
+    private SnmpStats() {
+    }
+
+    private static final class TargetStats {
+        final LongAdder requests = new LongAdder();
+        final LongAdder timeouts = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder retries = new LongAdder();
+        final LongAdder answered = new LongAdder();
+        final LongAdder latencyMicros = new LongAdder();
+        final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0L);
+        final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS_MS.length + 1];
+        final AtomicInteger inFlight = new AtomicInteger();
+        final LongAdder stripeWaits = new LongAdder();
+        final LongAdder stripeWaitMicros = new LongAdder();
+        final LongAdder walks = new LongAdder();
+        final LongAdder walkVarbinds = new LongAdder();
+        volatile long lastUsed = System.currentTimeMillis();
+
+        TargetStats() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long micros) {
+            answered.increment();
+            latencyMicros.add(micros);
+            maxMicros.accumulate(micros);
+            long ms = micros / 1000L;
+            int i = 0;
+            while (i < BUCKET_BOUNDS_MS.length && ms >= BUCKET_BOUNDS_MS[i]) {
+                i++;
+            }
+            buckets[i].increment();
+        }
+
+        /** Upper bound (ms) of the bucket holding the {@code q} quantile; the maximum for the overflow bucket. */
+        double quantileMs(double q) {
+            long[] counts = new long[buckets.length];
+            long total = 0;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = buckets[i].sum();
+                total += counts[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(q * total);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return i < BUCKET_BOUNDS_MS.length ? BUCKET_BOUNDS_MS[i] : maxMicros.get() / 1000.0;
+                }
+            }
+            return maxMicros.get() / 1000.0;
+        }
+    }
+
+    private static TargetStats stats(Address address) {
+        String key = String.valueOf(address);
+        TargetStats s = TARGETS.get(key);
+        if (s == null) {
+            expireIdle();
+            s = TARGETS.computeIfAbsent(key, a -> new TargetStats());
+        }
+        s.lastUsed = System.currentTimeMillis();
+        return s;
+    }
+
+    private static void expireIdle() {
+        long cutoff = System.currentTimeMillis() - IDLE_TIMEOUT_MS;
+        Iterator<Map.Entry<String, TargetStats>> it = TARGETS.entrySet().iterator();
+        while (it.hasNext()) {
+            TargetStats s = it.next().getValue();
+            if (s.lastUsed < cutoff && s.inFlight.get() == 0) {
+                it.remove();
+            }
+        }
+    }
+
+    /** Marks a request (one PDU exchange or one whole walk) as in flight; returns the start time for the finish call. */
+    static long started(Target<?> target) {
+        TargetStats s = stats(target.getAddress());
+        s.requests.increment();
+        s.inFlight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the outcome of a PDU exchange begun with {@link #started}; {@code status} is an {@link SnmpResult}
+     * status.
+     */
+    static void finished(Target<?> target, long startNanos, int status) {
+        TargetStats s = stats(target.getAddress());
+        s.inFlight.decrementAndGet();
+        long micros = (System.nanoTime() - startNanos) / 1000L;
+        if (status == SnmpResult.STATUS_TIMEOUT) {
+            s.timeouts.increment();
+            s.retries.add(Math.max(0, target.getRetries()));
+            return;
+        }
+        if (status != 0) {
+            s.errors.increment();
+        }
+        if (status != SnmpResult.STATUS_EXCEPTION) {
+            s.record(micros);
+            long timeoutMicros = target.getTimeout() * 1000L;
+            if (timeoutMicros > 0 && micros > timeoutMicros) {
+                s.retries.add(Math.min(Math.max(0, target.getRetries()), micros / timeoutMicros));
+            }
+        }
+    }
+
+    /** Records a finished walk begun with {@link #started}. */
+    static void walkFinished(Target<?> target, long startNanos, int varbinds, boolean timedOut, boolean error) {
+        TargetStats s = stats(target.getAddress());
+        s.inFlight.decrementAndGet();
+        s.walks.increment();
+        s.walkVarbinds.add(varbinds);
+        if (timedOut) {
+            s.timeouts.increment();
+        } else if (error) {
+            s.errors.increment();
+        }
+        if (!timedOut) {
+            s.record((System.nanoTime() - startNanos) / 1000L);
+        }
+    }
+
+    /** A re-send issued by the module itself (split get after {@code tooBig} or silence). */
+    static void retried(Address address) {
+        stats(address).retries.increment();
+    }
+
+    static void stripeWait(Address address, long nanos) {
+        TargetStats s = stats(address);
+        s.stripeWaits.increment();
+        s.stripeWaitMicros.add(nanos / 1000L);
+    }
+
+    public static void reset() {
+        TARGETS.clear();
+    }
+
+    public static long totalRequests() {
+        long total = 0;
+        for (TargetStats s : TARGETS.values()) {
+            total += s.requests.sum();
+        }
+        return total;
+    }
+
+    public static long totalTimeouts() {
+        long total = 0;
+        for (TargetStats s : TARGETS.values()) {
+            total += s.timeouts.sum();
+        }
+        return total;
+    }
+
+    public static long totalErrors() {
+        long total = 0;
+        for (TargetStats s : TARGETS.values()) {
+            total += s.errors.sum();
+        }
+        return total;
+    }
+
+    public static long totalRetries() {
+        long total = 0;
+        for (TargetStats s : TARGETS.values()) {
+            total += s.retries.sum();
+        }
+        return total;
+    }
+
+    public static long inFlight() {
+        long total = 0;
+        for (TargetStats s : TARGETS.values()) {
+            total += s.inFlight.get();
+        }
+        return total;
+    }
+
+    public static long totalStripeWaitMs() {
+        long total = 0;
+        for (TargetStats s : TARGETS.values()) {
+            total += s.stripeWaitMicros.sum();
+        }
+        return total / 1000L;
+    }
+
+    public static long totalWalkVarbinds() {
+        long total = 0;
+        for (TargetStats s : TARGETS.values()) {
+            total += s.walkVarbinds.sum();
+        }
+        return total;
+    }
+
+    /**
+     * One row per target: requests, timeouts, errors, retries, inFlight, avgMs, p50Ms, p95Ms, p99Ms, maxMs,
+     * stripeWaits, stripeWaitMs, walks and walkVarbinds. Sort by p95Ms or timeouts to find the agents that stretch a
+     * polling cycle.
+     */
+    public static Dataset snapshot() {
+        List<String> targets = new ArrayList<>(TARGETS.keySet());
+        targets.sort(null);
+        Object[][] data = new Object[15][targets.size()];
+        int row = 0;
+        for (String target : targets) {
+            TargetStats s = TARGETS.get(target);
+            if (s == null) {
+                continue;
+            }
+            long answered = s.answered.sum();
+            data[0][row] = target;
+            data[1][row] = s.requests.sum();
+            data[2][row] = s.timeouts.sum();
+            data[3][row] = s.errors.sum();
+            data[4][row] = s.retries.sum();
+            data[5][row] = s.inFlight.get();
+            data[6][row] = answered == 0 ? 0.0 : s.latencyMicros.sum() / 1000.0 / answered;
+            data[7][row] = s.quantileMs(0.50);
+            data[8][row] = s.quantileMs(0.95);
+            data[9][row] = s.quantileMs(0.99);
+            data[10][row] = s.maxMicros.get() / 1000.0;
+            data[11][row] = s.stripeWaits.sum();
+            data[12][row] = s.stripeWaitMicros.sum() / 1000.0;
+            data[13][row] = s.walks.sum();
+            data[14][row] = s.walkVarbinds.sum();
+            row++;
+        }
+        if (row < targets.size()) {
+            for (int c = 0; c < data.length; c++) {
+                data[c] = Arrays.copyOf(data[c], row);
+            }
+        }
+        return new BasicDataset(
+                Arrays.asList("target", "requests", "timeouts", "errors", "retries", "inFlight", "avgMs", "p50Ms",
+                        "p95Ms", "p99Ms", "maxMs", "stripeWaits", "stripeWaitMs", "walks", "walkVarbinds"),
+                Arrays.asList(String.class, Long.class, Long.class, Long.class, Long.class, Integer.class,
+                        Double.class, Double.class, Double.class, Double.class, Double.class, Long.class,
+                        Double.class, Long.class, Long.class),
+                data);
+    }
+}
@@ -0,0 +1,105 @@
+package io.cursor.snmp.common;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.inductiveautomation.ignition.common.BasicDataset;
+import com.inductiveautomation.ignition.common.Dataset;
+import org.snmp4j.PDU;
+import org.snmp4j.Session;
+import org.snmp4j.Target;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.VariableBinding;
+import org.snmp4j.util.TableEvent;
+import org.snmp4j.util.TableUtils;
+
+/**
+ * Table retrieval with {@link TableUtils}: columns are fetched with GETBULK and aligned by row index. The result has
+ * an {@code index} column (the row index suffix as a dotted string) and one column per requested column OID holding
+ * the native value (see {@link TypedResults#nativeValue}), or {@code null} where the agent has no instance. Failures
+ * return a single-column {@code error} Dataset holding the {@code [Xnnn]} message.
+ */
+final class TableResults {
+
+    private TableResults() {
+    }
+
+    static Dataset getTable(Session snmp, Target<?> target, String[] columnOIDs, String[] params, String errorCode) {
+        OID[] columns = new OID[columnOIDs.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new OID(columnOIDs[i]);
+        }
+        int rowsPerPdu = BulkWalkTuning.maxRepetitions(target, params);
+        int maxVarbinds = CursorSNMPDriverModule.intParam(params, "maxVarbinds", 0);
+        int columnsPerPdu = columns.length;
+        if (maxVarbinds > 0) {
+            columnsPerPdu = Math.max(1, Math.min(columnsPerPdu, maxVarbinds));
+            rowsPerPdu = Math.min(rowsPerPdu, Math.max(1, maxVarbinds / columnsPerPdu));
+        }
+
+        TableUtils tableUtils = new TableUtils(snmp, RateLimits.pduFactory(rowsPerPdu > 0 ? PDU.GETBULK : PDU.GETNEXT));
+        tableUtils.setMaxNumColumnsPerPDU(Math.max(1, columnsPerPdu));
+        tableUtils.setMaxNumRowsPerPDU(Math.max(1, rowsPerPdu));
+
+        String lower = CursorSNMPDriverModule.findParam(params, "lowerBound");
+        String upper = CursorSNMPDriverModule.findParam(params, "upperBound");
+        long start = SnmpStats.started(target);
+        List<TableEvent> events;
+        try {
+            events = tableUtils.getTable(
+                    target,
+                    columns,
+                    lower == null || lower.isEmpty() ? null : new OID(lower),
+                    upper == null || upper.isEmpty() ? null : new OID(upper));
+        } catch (RuntimeException e) {
+            SnmpStats.walkFinished(target, start, 0, false, true);
+            throw e;
+        }
+
+        List<TableEvent> rows = new ArrayList<>(events.size());
+        for (TableEvent event : events) {
+            if (event == null) {
+                continue;
+            }
+            if (event.isError()) {
+                SnmpStats.walkFinished(target, start, rows.size() * columns.length,
+                        event.getStatus() == TableEvent.STATUS_TIMEOUT, true);
+                BulkWalkTuning.recordOutcome(target, params, rowsPerPdu, true);
+                return error(errorCode + " Error: " + event.getErrorMessage());
+            }
+            if (event.getIndex() != null) {
+                rows.add(event);
+            }
+        }
+        SnmpStats.walkFinished(target, start, rows.size() * columns.length, false, false);
+        BulkWalkTuning.recordOutcome(target, params, rowsPerPdu, false);
+
+        List<String> names = new ArrayList<>(columns.length + 1);
+        List<Class<?>> types = new ArrayList<>(columns.length + 1);
+        names.add("index");
+        types.add(String.class);
+        for (String columnOID : columnOIDs) {
+            names.add(columnOID);
+            types.add(Object.class);
+        }
+        Object[][] data = new Object[columns.length + 1][rows.size()];
+        for (int r = 0; r < rows.size(); r++) {
+            TableEvent event = rows.get(r);
+            data[0][r] = event.getIndex().toDottedString();
+            VariableBinding[] values = event.getColumns();
+            for (int c = 0; values != null && c < values.length && c < columns.length; c++) {
+                VariableBinding vb = values[c];
+                if (vb != null && !vb.isException()) {
+                    data[c + 1][r] = TypedResults.nativeValue(vb.getVariable());
+                }
+            }
+        }
+        return new BasicDataset(names, types, data);
+    }
+
+    static Dataset error(String message) {
+        Object[][] data = new Object[1][1];
+        data[0][0] = message;
+        return new BasicDataset(List.of("error"), List.of(String.class), data);
+    }
+}
@@ -0,0 +1,114 @@
+package io.cursor.snmp.common;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.inductiveautomation.ignition.common.BasicDataset;
+import com.inductiveautomation.ignition.common.Dataset;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.SMIConstants;
+import org.snmp4j.smi.Variable;
+import org.snmp4j.smi.VariableBinding;
+import org.snmp4j.util.TreeEvent;
+
+/**
+ * Builds typed result Datasets straight from {@link VariableBinding}s.
+ * <p>
+ * Columns are {@code oid} (String), {@code type} (SMI syntax name), {@code value} and {@code status}. Integer,
+ * counter, gauge and timetick values are {@code Long} (Counter64 values above 2^63 wrap negative), printable octet
+ * strings are {@code String}, other octet strings and Opaque are {@code byte[]}, and IpAddress/OID values are their
+ * dotted {@code String}. {@code status} is {@code OK}, the exception syntax ({@code noSuchObject},
+ * {@code noSuchInstance}, {@code endOfMibView}) with a {@code null} value, or an {@code [Xnnn]} error on a row with a
+ * {@code null} oid.
+ */
+final class TypedResults {
+    static final String STATUS_OK = "OK";
+
+    private static final List<String> NAMES = List.of("oid", "type", "value", "status");
+    private static final List<Class<?>> TYPES = List.of(String.class, String.class, Object.class, String.class);
+
+    private TypedResults() {
+    }
+
+    static Dataset fromResult(SnmpResult result) {
+        if (result.isError()) {
+            return error(result.error);
+        }
+        Object[][] data = new Object[4][result.bindings.length];
+        for (int i = 0; i < result.bindings.length; i++) {
+            setRow(data, i, result.bindings[i]);
+        }
+        return new BasicDataset(NAMES, TYPES, data);
+    }
+
+    static Dataset fromEvents(List<TreeEvent> events, String errorCode) {
+        List<VariableBinding> rows = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        for (TreeEvent event : events) {
+            if (event == null) {
+                continue;
+            }
+            if (event.isError()) {
+                errors.add(errorCode + " Error: " + event.getErrorMessage());
+            } else if (event.getVariableBindings() != null) {
+                for (VariableBinding vb : event.getVariableBindings()) {
+                    rows.add(vb);
+                }
+            }
+        }
+        Object[][] data = new Object[4][rows.size() + errors.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            setRow(data, i, rows.get(i));
+        }
+        for (int i = 0; i < errors.size(); i++) {
+            data[3][rows.size() + i] = errors.get(i);
+        }
+        return new BasicDataset(NAMES, TYPES, data);
+    }
+
+    static Dataset error(String message) {
+        Object[][] data = new Object[4][1];
+        data[3][0] = message;
+        return new BasicDataset(NAMES, TYPES, data);
+    }
+
+    private static void setRow(Object[][] data, int row, VariableBinding vb) {
+        Variable v = vb.getVariable();
+        data[0][row] = vb.getOid().toDottedString();
+        data[1][row] = v.getSyntaxString();
+        if (v.isException()) {
+            data[3][row] = v.getSyntaxString();
+        } else {
+            data[2][row] = nativeValue(v);
+            data[3][row] = STATUS_OK;
+        }
+    }
+
+    /**
+     * The value as {@code Long}, {@code String} or {@code byte[]}; see the class comment for the mapping. Exception
+     * values ({@code noSuchObject}, {@code noSuchInstance}, {@code endOfMibView}) are {@code null}.
+     */
+    static Object nativeValue(Variable v) {
+        if (v.isException()) {
+            return null;
+        }
+        switch (v.getSyntax()) {
+            case SMIConstants.SYNTAX_INTEGER:
+            case SMIConstants.SYNTAX_COUNTER32:
+            case SMIConstants.SYNTAX_GAUGE32:
+            case SMIConstants.SYNTAX_TIMETICKS:
+            case SMIConstants.SYNTAX_COUNTER64:
+                return v.toLong();
+            case SMIConstants.SYNTAX_OCTET_STRING: {
+                OctetString os = (OctetString) v;
+                return os.isPrintable() ? os.toString() : os.getValue();
+            }
+            case SMIConstants.SYNTAX_OPAQUE:
+                return ((OctetString) v).getValue();
+            case SMIConstants.SYNTAX_NULL:
+                return null;
+            default:
+                return v.toString();
+        }
+    }
+}
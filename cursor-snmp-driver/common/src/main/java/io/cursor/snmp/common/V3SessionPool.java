@@ -0,0 +1,192 @@
+package io.cursor.snmp.common;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.snmp4j.MessageDispatcherImpl;
+import org.snmp4j.Snmp;
+import org.snmp4j.mp.MPv3;
+import org.snmp4j.security.SecurityProtocols;
+import org.snmp4j.security.USM;
+import org.snmp4j.security.UsmUser;
+import org.snmp4j.smi.Address;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.transport.DefaultUdpTransportMapping;
+
+/**
+ * Long-lived SNMPv3 sessions, one per (user, credential fingerprint). Each session owns a UDP transport and a
+ * private USM/MPv3 pair that is never registered in the global {@code SecurityModels}, so sessions do not interfere
+ * with each other. USM keeps the keys it localizes per engine and MPv3 keeps discovered engine IDs, so only the
+ * first call to an agent pays for discovery and password-to-key localization. Agents sharing a credential profile
+ * share the session's transport and may be queried in parallel.
+ * <p>
+ * Idle agents (engine ID cache entries) and idle sessions are evicted on the next {@link #acquire} after
+ * {@link #DEFAULT_IDLE_TIMEOUT_MS}. A failed discovery is remembered for {@link #ENGINE_RETRY_MS}, so calls to an
+ * unreachable agent fail at once instead of each waiting for discovery again.
+ */
+final class V3SessionPool {
+    static final long DEFAULT_IDLE_TIMEOUT_MS = 10L * 60L * 1000L;
+    static final long ENGINE_RETRY_MS = 30L * 1000L;
+    private static final long SWEEP_INTERVAL_MS = 30L * 1000L;
+
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final long idleTimeoutMs;
+    private volatile long nextSweep;
+
+    V3SessionPool(long idleTimeoutMs) {
+        this.idleTimeoutMs = idleTimeoutMs;
+    }
+
+    static final class Session {
+        final String key;
+        final Snmp snmp;
+        final MPv3 mpv3;
+        final AtomicInteger users = new AtomicInteger();
+        final ConcurrentHashMap<Address, Long> agents = new ConcurrentHashMap<>();
+        /** Agents whose discovery failed, to the time discovery may be tried again. */
+        final ConcurrentHashMap<Address, Long> unreachable = new ConcurrentHashMap<>();
+        volatile long lastUsed;
+
+        Session(String key, UsmUser usr, String username, OID authProt) throws IOException {
+            this.key = key;
+            CursorSNMPDriverModule.registerAuthProtocolsForV3(authProt);
+            USM usm = new USM(SecurityProtocols.getInstance(), new OctetString(MPv3.createLocalEngineID()), 0);
+            usm.addUser(new OctetString(username), usr);
+            mpv3 = new MPv3(usm);
+            MessageDispatcherImpl dispatcher = new MessageDispatcherImpl();
+            dispatcher.addMessageProcessingModel(mpv3);
+            snmp = new Snmp(dispatcher, new DefaultUdpTransportMapping());
+            snmp.listen();
+        }
+
+        boolean knowsEngine(Address address) {
+            return agents.containsKey(address);
+        }
+
+        /** Whether discovery of {@code address} failed less than {@link #ENGINE_RETRY_MS} ago. */
+        boolean recentlyUnreachable(Address address) {
+            Long retryAt = unreachable.get(address);
+            return retryAt != null && retryAt > System.currentTimeMillis();
+        }
+
+        /**
+         * Discovers and caches the authoritative engine ID of {@code address}. Returns {@code false} when the agent
+         * did not answer now or {@link #recentlyUnreachable recently}; the failure is cached.
+         */
+        boolean discoverEngine(Address address, long timeout) {
+            if (agents.containsKey(address)) {
+                return true;
+            }
+            if (recentlyUnreachable(address)) {
+                return false;
+            }
+            byte[] engineId = snmp.discoverAuthoritativeEngineID(address, timeout);
+            if (engineId != null && engineId.length > 0) {
+                mpv3.addEngineID(address, new OctetString(engineId));
+                agents.put(address, System.currentTimeMillis());
+                unreachable.remove(address);
+                return true;
+            }
+            unreachable.put(address, System.currentTimeMillis() + ENGINE_RETRY_MS);
+            return false;
+        }
+
+        void touch(Address address) {
+            agents.replace(address, System.currentTimeMillis());
+        }
+
+        void close() {
+            try {
+                snmp.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Returns the session for the given credential profile, creating it on first use. Every call must be paired
+     * with {@link #release(Session)}.
+     */
+    Session acquire(String username, String credFingerprint, UsmUser usr, OID authProt) throws IOException {
+        String key = username + "\0" + credFingerprint;
+        long now = System.currentTimeMillis();
+        Session session;
+        try {
+            session = sessions.compute(key, (k, s) -> {
+                if (s == null) {
+                    try {
+                        s = new Session(k, usr, username, authProt);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                s.users.incrementAndGet();
+                s.lastUsed = now;
+                return s;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (now >= nextSweep) {
+            nextSweep = now + SWEEP_INTERVAL_MS;
+            evictIdle(now);
+        }
+        return session;
+    }
+
+    void release(Session session) {
+        session.lastUsed = System.currentTimeMillis();
+        session.users.decrementAndGet();
+    }
+
+    private void evictIdle(long now) {
+        List<Session> evicted = new ArrayList<>();
+        for (String key : sessions.keySet()) {
+            sessions.computeIfPresent(key, (k, s) -> {
+                if (s.users.get() == 0 && now - s.lastUsed > idleTimeoutMs) {
+                    evicted.add(s);
+                    return null;
+                }
+                return s;
+            });
+        }
+        for (Session s : evicted) {
+            s.close();
+        }
+        for (Session s : sessions.values()) {
+            s.unreachable.values().removeIf(retryAt -> retryAt <= now);
+            for (Map.Entry<Address, Long> agent : s.agents.entrySet()) {
+                if (now - agent.getValue() > idleTimeoutMs && s.agents.remove(agent.getKey(), agent.getValue())) {
+                    s.mpv3.removeEngineID(agent.getKey());
+                }
+            }
+        }
+    }
+
+    /** Thrown when an agent's engine ID could not be discovered, so nothing was sent. */
+    static final class EngineUnreachable extends IOException {
+        /** {@code true} when the failure was remembered from an earlier call rather than seen now. */
+        final boolean cached;
+
+        EngineUnreachable(Address address, boolean cached) {
+            super("No engine ID discovered from " + address
+                    + (cached ? "; discovery is retried " + ENGINE_RETRY_MS / 1000 + " s after the last attempt" : ""));
+            this.cached = cached;
+        }
+    }
+
+    void closeAll() {
+        for (String key : sessions.keySet()) {
+            Session s = sessions.remove(key);
+            if (s != null) {
+                s.close();
+            }
+        }
+    }
+}
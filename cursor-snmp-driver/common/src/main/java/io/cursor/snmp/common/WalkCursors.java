@@ -0,0 +1,161 @@
+package io.cursor.snmp.common;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.snmp4j.PDU;
+import org.snmp4j.event.ResponseEvent;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.VariableBinding;
+
+/**
+ * Pageable walk cursors. A cursor only remembers the root and the last OID returned, and each
+ * {@link #next(String, int)} issues GETBULK/GETNEXT requests from there until the page is full or the subtree
+ * ends, so memory stays flat regardless of subtree size. Paging runs on the caller's thread: a slow consumer
+ * simply asks for the next page later and never blocks SNMP4J's dispatch thread. Cursors idle for
+ * {@link #IDLE_TIMEOUT_MS} are discarded.
+ */
+final class WalkCursors {
+    static final int DEFAULT_PAGE_ROWS = 500;
+    static final long IDLE_TIMEOUT_MS = 5L * 60L * 1000L;
+    static final String UNKNOWN_CURSOR = "[WC01] Error: unknown or expired walk cursor";
+
+    private static final ConcurrentHashMap<String, Cursor> CURSORS = new ConcurrentHashMap<>();
+
+    private WalkCursors() {
+    }
+
+    /** Sends one request PDU for a cursor; implementations pick the session and target. */
+    interface Sender {
+        ResponseEvent send(PDU pdu) throws Exception;
+    }
+
+    private static final class Cursor {
+        final OID root;
+        final Sender sender;
+        final Supplier<PDU> pduFactory;
+        final int maxRepetitions;
+        final String errorCode;
+        OID last;
+        String pendingError;
+        boolean done;
+        volatile long lastUsed = System.currentTimeMillis();
+
+        Cursor(OID root, Sender sender, Supplier<PDU> pduFactory, int maxRepetitions, String errorCode) {
+            this.root = root;
+            this.last = root;
+            this.sender = sender;
+            this.pduFactory = pduFactory;
+            this.maxRepetitions = maxRepetitions;
+            this.errorCode = errorCode;
+        }
+
+        synchronized String[] next(int maxRows) {
+            List<String> rows = new ArrayList<>(Math.min(maxRows, 1024));
+            if (pendingError != null) {
+                rows.add(pendingError);
+                pendingError = null;
+                done = true;
+            }
+            while (!done && rows.size() < maxRows) {
+                PDU pdu = pduFactory.get();
+                pdu.add(new VariableBinding(last));
+                if (maxRepetitions > 0) {
+                    pdu.setType(PDU.GETBULK);
+                    pdu.setNonRepeaters(0);
+                    pdu.setMaxRepetitions(Math.min(maxRepetitions, maxRows - rows.size()));
+                } else {
+                    pdu.setType(PDU.GETNEXT);
+                }
+                PDU response;
+                try {
+                    ResponseEvent event = sender.send(pdu);
+                    response = event == null ? null : event.getResponse();
+                } catch (RateLimits.WaitExceeded e) {
+                    rows.add(e.getMessage());
+                    done = true;
+                    break;
+                } catch (Exception e) {
+                    rows.add("[W002] Error: " + e.getClass().getSimpleName() + ": " + e.getMessage());
+                    done = true;
+                    break;
+                }
+                if (response == null) {
+                    rows.add(errorCode + " Error: Request timed out.");
+                    done = true;
+                } else if (response.getErrorStatus() == PDU.noSuchName || response.size() == 0) {
+                    // v1 agents signal the end of the MIB view with noSuchName.
+                    done = true;
+                } else if (response.getErrorStatus() != PDU.noError) {
+                    rows.add(errorCode + " Error: " + response.getErrorStatusText());
+                    done = true;
+                } else {
+                    for (int i = 0; i < response.size() && !done; i++) {
+                        VariableBinding vb = response.get(i);
+                        OID oid = vb.getOid();
+                        if (vb.isException() || !oid.startsWith(root) || oid.compareTo(last) <= 0) {
+                            done = true;
+                        } else {
+                            rows.add(vb.toString());
+                            last = oid;
+                        }
+                    }
+                }
+            }
+            lastUsed = System.currentTimeMillis();
+            return rows.toArray(new String[0]);
+        }
+    }
+
+    static String open(OID root, Sender sender, Supplier<PDU> pduFactory, int maxRepetitions, String errorCode) {
+        expireIdle();
+        String id = UUID.randomUUID().toString();
+        CURSORS.put(id, new Cursor(root, sender, pduFactory, maxRepetitions, errorCode));
+        return id;
+    }
+
+    /** Opens a cursor that yields only {@code error} and then ends. */
+    static String openFailed(String error) {
+        String id = open(new OID(), null, null, 0, null);
+        Cursor cursor = CURSORS.get(id);
+        if (cursor != null) {
+            cursor.pendingError = error;
+        }
+        return id;
+    }
+
+    /**
+     * Returns up to {@code maxRows} {@code "oid = value"} rows. An empty array means the walk has ended and the
+     * cursor has been released; errors are returned as a final {@code [Xnnn]} row.
+     */
+    static String[] next(String id, int maxRows) {
+        Cursor cursor = id == null ? null : CURSORS.get(id);
+        if (cursor == null) {
+            return new String[] { UNKNOWN_CURSOR };
+        }
+        String[] rows = cursor.next(maxRows > 0 ? maxRows : DEFAULT_PAGE_ROWS);
+        if (rows.length == 0) {
+            CURSORS.remove(id);
+        }
+        return rows;
+    }
+
+    static boolean close(String id) {
+        return id != null && CURSORS.remove(id) != null;
+    }
+
+    private static void expireIdle() {
+        long cutoff = System.currentTimeMillis() - IDLE_TIMEOUT_MS;
+        Iterator<Map.Entry<String, Cursor>> it = CURSORS.entrySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().getValue().lastUsed < cutoff) {
+                it.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package io.cursor.snmp.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.inductiveautomation.ignition.common.Dataset;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.snmp4j.smi.Counter32;
+import org.snmp4j.smi.Counter64;
+import org.snmp4j.smi.Gauge32;
+import org.snmp4j.smi.Null;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.TimeTicks;
+import org.snmp4j.smi.Variable;
+import org.snmp4j.smi.VariableBinding;
+
+class CounterRatesTest {
+    private static final String AGENT = "10.0.0.1:161";
+    private static final String[] OIDS = { "1.3.6.1.2.1.2.2.1.10.1" };
+    private static final long SECOND = 1_000_000_000L;
+    private static final long T0 = 1_000 * SECOND;
+    private static final long WINDOW_MS = CounterRates.DEFAULT_WINDOW_MS;
+
+    @AfterEach
+    void clear() {
+        CounterRates.clear();
+    }
+
+    /** A get answer for {@link #OIDS} followed by sysUpTime.0. */
+    private static SnmpResult answer(Variable value, long upTimeTicks) {
+        return SnmpResult.of(new VariableBinding[] {
+                new VariableBinding(new OID(OIDS[0]), value),
+                new VariableBinding(CounterRates.SYS_UP_TIME, new TimeTicks(upTimeTicks)),
+        });
+    }
+
+    private static Dataset sample(Variable value, long upTimeTicks, long now) {
+        return sample(value, upTimeTicks, now, WINDOW_MS);
+    }
+
+    private static Dataset sample(Variable value, long upTimeTicks, long now, long windowMs) {
+        return CounterRates.update(AGENT, OIDS, answer(value, upTimeTicks), windowMs, now);
+    }
+
+    private static String status(Dataset rates) {
+        return (String) rates.getValueAt(0, 5);
+    }
+
+    private static Double rate(Dataset rates) {
+        return (Double) rates.getValueAt(0, 2);
+    }
+
+    private static Double average(Dataset rates) {
+        return (Double) rates.getValueAt(0, 3);
+    }
+
+    @Test
+    void firstSampleHasNoRate() {
+        Dataset rates = sample(new Counter32(1000), 100, T0);
+
+        assertEquals("first", status(rates));
+        assertEquals(1000L, rates.getValueAt(0, 1));
+        assertNull(rate(rates));
+        assertNull(average(rates));
+        assertEquals(0, rates.getValueAt(0, 4));
+    }
+
+    @Test
+    void rateIsIncreasePerSecondOfLatestInterval() {
+        sample(new Counter32(1000), 100, T0);
+
+        Dataset rates = sample(new Counter32(2000), 1100, T0 + 10 * SECOND);
+
+        assertEquals("OK", status(rates));
+        assertEquals(100.0, rate(rates), 1e-9);
+        assertEquals(100.0, average(rates), 1e-9);
+        assertEquals(1, rates.getValueAt(0, 4));
+    }
+
+    @Test
+    void averageIsWeightedByTime() {
+        sample(new Counter32(0), 100, T0);
+        sample(new Counter32(1000), 1100, T0 + 10 * SECOND);
+
+        Dataset rates = sample(new Counter32(6000), 4100, T0 + 30 * SECOND);
+
+        assertEquals(250.0, rate(rates), 1e-9);
+        assertEquals(6000.0 / 30.0, average(rates), 1e-9);
+        assertEquals(2, rates.getValueAt(0, 4));
+    }
+
+    @Test
+    void averageOnlyCoversIntervalsEndingInWindow() {
+        sample(new Counter32(0), 100, T0);
+        sample(new Counter32(1000), 1100, T0 + 10 * SECOND);
+
+        Dataset rates = sample(new Counter32(6000), 4100, T0 + 30 * SECOND, 15_000L);
+
+        assertEquals(250.0, average(rates), 1e-9);
+        assertEquals(1, rates.getValueAt(0, 4));
+    }
+
+    @Test
+    void counter32WrapsAt2To32() {
+        sample(new Counter32(4294967000L), 100, T0);
+
+        Dataset rates = sample(new Counter32(200), 200, T0 + SECOND);
+
+        assertEquals("wrap", status(rates));
+        assertEquals(496.0, rate(rates), 1e-9);
+    }
+
+    @Test
+    void counter64IsUnsigned() {
+        sample(new Counter64(Long.MAX_VALUE), 100, T0);
+
+        Dataset rates = sample(new Counter64(Long.MIN_VALUE + 1), 200, T0 + SECOND);
+
+        assertEquals("OK", status(rates));
+        assertEquals(2.0, rate(rates), 1e-9);
+    }
+
+    @Test
+    void counter64GoingDownResets() {
+        sample(new Counter64(5000), 100, T0);
+
+        Dataset rates = sample(new Counter64(10), 200, T0 + SECOND);
+
+        assertEquals("reset", status(rates));
+        assertNull(rate(rates));
+
+        Dataset next = sample(new Counter64(110), 300, T0 + 2 * SECOND);
+        assertEquals(100.0, rate(next), 1e-9);
+    }
+
+    @Test
+    void agentRestartResets() {
+        sample(new Counter32(1000), 5000, T0);
+        sample(new Counter32(2000), 5100, T0 + SECOND);
+
+        Dataset rates = sample(new Counter32(3000), 50, T0 + 2 * SECOND);
+
+        assertEquals("reset", status(rates));
+        assertNull(rate(rates));
+        assertNull(average(rates));
+    }
+
+    @Test
+    void typeChangeResets() {
+        sample(new Counter32(1000), 100, T0);
+
+        Dataset rates = sample(new Counter64(2000), 200, T0 + SECOND);
+
+        assertEquals("reset", status(rates));
+        assertNull(rate(rates));
+    }
+
+    @Test
+    void exceptionValueClearsHistory() {
+        sample(new Counter32(1000), 100, T0);
+
+        Dataset missing = sample(Null.noSuchInstance, 200, T0 + SECOND);
+        assertEquals("noSuchInstance", status(missing));
+
+        assertEquals("first", status(sample(new Counter32(3000), 300, T0 + 2 * SECOND)));
+    }
+
+    @Test
+    void gaugeIsNotACounter() {
+        Dataset rates = sample(new Gauge32(75), 100, T0);
+
+        assertEquals("notCounter", status(rates));
+        assertEquals(75L, rates.getValueAt(0, 1));
+        assertNull(rate(rates));
+    }
+
+    @Test
+    void failedGetIsOneErrorRow() {
+        Dataset rates = CounterRates.update(
+                AGENT, OIDS, SnmpResult.error("[G001] Error: timeout", SnmpResult.STATUS_TIMEOUT), WINDOW_MS, T0);
+
+        assertEquals(1, rates.getRowCount());
+        assertEquals("[G001] Error: timeout", status(rates));
+    }
+
+    @Test
+    void idleSeriesAreForgotten() {
+        sample(new Counter32(1000), 100, T0);
+
+        CounterRates.expireIdle(System.currentTimeMillis() + CounterRates.IDLE_TIMEOUT_MS + 1000L);
+
+        assertEquals("first", status(sample(new Counter32(2000), 50, T0 + SECOND)));
+    }
+
+    @Test
+    void recentSeriesSurviveExpiry() {
+        sample(new Counter32(1000), 100, T0);
+
+        CounterRates.expireIdle(System.currentTimeMillis());
+
+        assertEquals("OK", status(sample(new Counter32(2000), 200, T0 + SECOND)));
+    }
+}
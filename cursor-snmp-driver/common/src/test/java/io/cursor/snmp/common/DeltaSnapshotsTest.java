@@ -0,0 +1,128 @@
+package io.cursor.snmp.common;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class DeltaSnapshotsTest {
+
+    @AfterEach
+    void clear() {
+        DeltaSnapshots.clear();
+    }
+
+    private static long seq(String[] response) {
+        String header = response[0];
+        return Long.parseLong(header.substring(1, header.indexOf(':')));
+    }
+
+    private static long base(String[] response) {
+        String header = response[0];
+        return Long.parseLong(header.substring(header.indexOf(':') + 1));
+    }
+
+    @Test
+    void firstResultIsComplete() {
+        String[] response = DeltaSnapshots.encode("c", "q", 0, new String[] { "a", "b" }, false);
+
+        assertEquals(0, base(response));
+        assertArrayEquals(new String[] { response[0], "a", "b" }, response);
+    }
+
+    @Test
+    void knownSequenceGetsOnlyChangedRows() {
+        long seq = seq(DeltaSnapshots.encode("c", "q", 0, new String[] { "a", "b", "c" }, false));
+
+        String[] response = DeltaSnapshots.encode("c", "q", seq, new String[] { "a", "x", "c" }, false);
+
+        assertEquals(seq, base(response));
+        assertArrayEquals(new String[] { response[0], "1 x" }, response);
+    }
+
+    @Test
+    void staleSequenceGetsCompleteResult() {
+        long seq = seq(DeltaSnapshots.encode("c", "q", 0, new String[] { "a", "b", "c" }, false));
+
+        String[] response = DeltaSnapshots.encode("c", "q", seq + 100, new String[] { "a", "x", "c" }, false);
+
+        assertEquals(0, base(response));
+    }
+
+    @Test
+    void snapshotsAreKeptPerClient() {
+        long seq = seq(DeltaSnapshots.encode("c1", "q", 0, new String[] { "a", "b", "c" }, false));
+
+        String[] response = DeltaSnapshots.encode("c2", "q", seq, new String[] { "a", "x", "c" }, false);
+
+        assertEquals(0, base(response));
+    }
+
+    @Test
+    void errorResultIsCompleteAndNotKept() {
+        long seq = seq(DeltaSnapshots.encode("c", "q", 0, new String[] { "a", "b", "c" }, false));
+
+        String[] error = DeltaSnapshots.encode("c", "q", seq, new String[] { "[G001] Error: timeout" }, false);
+        assertArrayEquals(new String[] { "#0:0", "[G001] Error: timeout" }, error);
+
+        String[] response = DeltaSnapshots.encode("c", "q", seq, new String[] { "a", "x", "c" }, false);
+        assertEquals(0, base(response));
+    }
+
+    @Test
+    void changedLengthGetIsComplete() {
+        long seq = seq(DeltaSnapshots.encode("c", "q", 0, new String[] { "a", "b", "c" }, false));
+
+        String[] response = DeltaSnapshots.encode("c", "q", seq, new String[] { "a", "b" }, false);
+
+        assertEquals(0, base(response));
+    }
+
+    @Test
+    void unsortedWalkIsComplete() {
+        long seq = seq(DeltaSnapshots.encode("c", "q", 0, new String[] { "1.1 = a", "1.2 = b", "1.3 = c" }, true));
+
+        String[] unsorted = { "1.2 = b", "1.1 = a", "1.3 = x" };
+        String[] response = DeltaSnapshots.encode("c", "q", seq, unsorted, true);
+
+        assertEquals(0, base(response));
+    }
+
+    @Test
+    void deltaNoSmallerThanResultIsComplete() {
+        long seq = seq(DeltaSnapshots.encode("c", "q", 0, new String[] { "a", "b" }, false));
+
+        String[] response = DeltaSnapshots.encode("c", "q", seq, new String[] { "x", "y" }, false);
+
+        assertEquals(0, base(response));
+    }
+
+    @Test
+    void idleSnapshotsExpire() {
+        long seq = seq(DeltaSnapshots.encode("c", "q", 0, new String[] { "a", "b", "c" }, false));
+
+        DeltaSnapshots.expireIdle(System.currentTimeMillis() + DeltaSnapshots.IDLE_TIMEOUT_MS + 1000L);
+
+        String[] response = DeltaSnapshots.encode("c", "q", seq, new String[] { "a", "x", "c" }, false);
+        assertEquals(0, base(response));
+    }
+
+    @Test
+    void recentSnapshotsSurviveExpiry() {
+        long seq = seq(DeltaSnapshots.encode("c", "q", 0, new String[] { "a", "b", "c" }, false));
+
+        DeltaSnapshots.expireIdle(System.currentTimeMillis() + DeltaSnapshots.IDLE_TIMEOUT_MS - 60000L);
+
+        String[] response = DeltaSnapshots.encode("c", "q", seq, new String[] { "a", "x", "c" }, false);
+        assertEquals(seq, base(response));
+    }
+
+    @Test
+    void oidsRejectsOutOfOrderRows() {
+        assertNull(DeltaSnapshots.oids(new String[] { "1.2 = a", "1.1 = b" }));
+        assertNull(DeltaSnapshots.oids(new String[] { "1.1 = a", "not a row" }));
+        assertEquals(2, DeltaSnapshots.oids(new String[] { "1.1 = a", "1.10 = b" }).length);
+    }
+}
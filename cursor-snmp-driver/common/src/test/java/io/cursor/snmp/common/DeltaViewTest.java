@@ -0,0 +1,164 @@
+package io.cursor.snmp.common;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class DeltaViewTest {
+    private static final String[] PARAMS = { "public" };
+
+    /** Plays the gateway: encodes {@link #rows} against the sequence the client reports and records each response. */
+    private static final class Gateway implements DeltaView.Fetch {
+        final String queryKey;
+        final boolean walk;
+        String[] rows;
+        final List<String[]> sent = new ArrayList<>();
+
+        Gateway(String queryKey, boolean walk) {
+            this.queryKey = queryKey;
+            this.walk = walk;
+        }
+
+        @Override
+        public String[] fetch(String clientId, long knownSeq) {
+            String[] response = DeltaSnapshots.encode(clientId, queryKey, knownSeq, rows, walk);
+            sent.add(response);
+            return response;
+        }
+
+        String[] last() {
+            return sent.get(sent.size() - 1);
+        }
+    }
+
+    @AfterEach
+    void clear() {
+        DeltaSnapshots.clear();
+    }
+
+    private static boolean isDelta(String[] response) {
+        return !response[0].endsWith(":0");
+    }
+
+    @Test
+    void getMergesChangedIndexes() {
+        DeltaView view = new DeltaView();
+        Gateway gateway = new Gateway("get", false);
+        gateway.rows = new String[] { "a", "b", "c", "d" };
+        String[] oids = { "1", "2", "3", "4" };
+        assertArrayEquals(gateway.rows, view.get("10.0.0.1", 161, oids, PARAMS, gateway));
+
+        gateway.rows = new String[] { "a", "B", "c", "D" };
+        String[] rows = view.get("10.0.0.1", 161, oids, PARAMS, gateway);
+
+        assertArrayEquals(new String[] { "a", "B", "c", "D" }, rows);
+        assertEquals(3, gateway.last().length);
+        assertEquals("1 B", gateway.last()[1]);
+        assertEquals("3 D", gateway.last()[2]);
+    }
+
+    @Test
+    void walkMergesChangedAddedAndRemovedRows() {
+        DeltaView view = new DeltaView();
+        Gateway gateway = new Gateway("walk", true);
+        gateway.rows = new String[] {
+                "1.3.6.1.2.1.2.2.1.2.1 = eth0",
+                "1.3.6.1.2.1.2.2.1.2.2 = eth1",
+                "1.3.6.1.2.1.2.2.1.2.3 = eth2",
+                "1.3.6.1.2.1.2.2.1.2.10 = lo",
+                "1.3.6.1.2.1.2.2.1.2.11 = wan",
+                "1.3.6.1.2.1.2.2.1.2.12 = vpn",
+        };
+        view.walk("10.0.0.1", 161, "1.3.6.1.2.1.2.2.1.2", PARAMS, gateway);
+
+        String[] next = {
+                "1.3.6.1.2.1.2.2.1.2.1 = eth0",
+                "1.3.6.1.2.1.2.2.1.2.3 = eth2-renamed",
+                "1.3.6.1.2.1.2.2.1.2.4 = eth3",
+                "1.3.6.1.2.1.2.2.1.2.10 = lo",
+                "1.3.6.1.2.1.2.2.1.2.11 = wan",
+                "1.3.6.1.2.1.2.2.1.2.12 = vpn",
+        };
+        gateway.rows = next;
+        String[] rows = view.walk("10.0.0.1", 161, "1.3.6.1.2.1.2.2.1.2", PARAMS, gateway);
+
+        assertArrayEquals(next, rows);
+        assertTrue(isDelta(gateway.last()));
+        assertArrayEquals(new String[] {
+                gateway.last()[0],
+                "-1.3.6.1.2.1.2.2.1.2.2",
+                "1.3.6.1.2.1.2.2.1.2.3 = eth2-renamed",
+                "1.3.6.1.2.1.2.2.1.2.4 = eth3",
+        }, gateway.last());
+    }
+
+    @Test
+    void walkDeltaAppliesRowsBeyondTheHeldEnd() {
+        DeltaView view = new DeltaView();
+        Gateway gateway = new Gateway("walk", true);
+        gateway.rows = new String[] { "1.1 = a", "1.2 = b", "1.3 = c", "1.4 = d" };
+        view.walk("10.0.0.1", 161, "1", PARAMS, gateway);
+
+        gateway.rows = new String[] { "1.1 = a", "1.2 = b", "1.3 = c", "1.4 = d", "1.5 = e" };
+        assertArrayEquals(gateway.rows, view.walk("10.0.0.1", 161, "1", PARAMS, gateway));
+        assertTrue(isDelta(gateway.last()));
+    }
+
+    @Test
+    void unknownBaseAsksAgainForTheCompleteResult() {
+        DeltaView view = new DeltaView();
+        String[] full = { "#7:0", "1.1 = a", "1.2 = b" };
+        List<Long> reported = new ArrayList<>();
+        DeltaView.Fetch fetch = (clientId, knownSeq) -> {
+            reported.add(knownSeq);
+            return knownSeq == 0 ? full : new String[] { "#8:99", "1.1 = x" };
+        };
+        view.walk("10.0.0.1", 161, "1", PARAMS, fetch);
+
+        String[] rows = view.walk("10.0.0.1", 161, "1", PARAMS, fetch);
+
+        assertArrayEquals(new String[] { "1.1 = a", "1.2 = b" }, rows);
+        assertEquals(List.of(0L, 7L, 0L), reported);
+    }
+
+    @Test
+    void removalOfUnheldRowAsksAgainForTheCompleteResult() {
+        DeltaView view = new DeltaView();
+        String[] full = { "#3:0", "1.1 = a", "1.2 = b" };
+        List<Long> reported = new ArrayList<>();
+        DeltaView.Fetch fetch = (clientId, knownSeq) -> {
+            reported.add(knownSeq);
+            return knownSeq == 0 ? full : new String[] { "#4:3", "-1.9" };
+        };
+        view.walk("10.0.0.1", 161, "1", PARAMS, fetch);
+
+        assertArrayEquals(new String[] { "1.1 = a", "1.2 = b" }, view.walk("10.0.0.1", 161, "1", PARAMS, fetch));
+        assertEquals(List.of(0L, 3L, 0L), reported);
+    }
+
+    @Test
+    void getDeltaIndexOutOfRangeAsksAgainForTheCompleteResult() {
+        DeltaView view = new DeltaView();
+        String[] full = { "#3:0", "a", "b" };
+        DeltaView.Fetch fetch = (clientId, knownSeq) -> knownSeq == 0 ? full : new String[] { "#4:3", "5 z" };
+        String[] oids = { "1", "2" };
+        view.get("10.0.0.1", 161, oids, PARAMS, fetch);
+
+        assertArrayEquals(new String[] { "a", "b" }, view.get("10.0.0.1", 161, oids, PARAMS, fetch));
+    }
+
+    @Test
+    void unreadableResponseIsAnError() {
+        DeltaView view = new DeltaView();
+        String[] rows = view.get("10.0.0.1", 161, new String[] { "1" }, PARAMS, (clientId, knownSeq) -> new String[0]);
+
+        assertEquals(1, rows.length);
+        assertTrue(rows[0].startsWith("[D001] Error:"));
+    }
+}
@@ -0,0 +1,159 @@
+package io.cursor.snmp.common;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.inductiveautomation.ignition.common.BasicDataset;
+import com.inductiveautomation.ignition.common.Dataset;
+import org.junit.jupiter.api.Test;
+
+class PackedResultsTest {
+
+    private static String[] roundTrip(String... rows) {
+        return PackedResults.unpack(PackedResults.pack(rows));
+    }
+
+    private static boolean unreadable(String[] rows) {
+        return rows.length == 1 && PackedResults.UNREADABLE.equals(rows[0]);
+    }
+
+    @Test
+    void everyKindRoundTrips() {
+        String[] rows = {
+                null,
+                "plain text",
+                "1.3.6.1.2.1.1.1.0 = Linux router 5.10",
+                "1.3.6.1.2.1.1.3.0 = 123456",
+                "42",
+                "-7",
+                "1.3.6.1.2.1.2.2.1.10.1 = -9223372036854775808",
+                "1.3.6.1.2.1.2.2.1.10.2 = 9223372036854775807",
+                "1.3.6.1.2.1.2.2.1.2.1 = ",
+                "",
+        };
+        assertArrayEquals(rows, roundTrip(rows));
+    }
+
+    @Test
+    void nonCanonicalNumbersStayStrings() {
+        String[] rows = { "007", "-0", "+5", "1.3.6.1 = 00", "99999999999999999999", "1.3.6.1 = 1e3" };
+        assertArrayEquals(rows, roundTrip(rows));
+    }
+
+    @Test
+    void walkSharesOidPrefixes() {
+        String[] rows = new String[200];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = "1.3.6.1.2.1.2.2.1.10." + (i + 1) + " = " + (1000L * i);
+        }
+        byte[] packed = PackedResults.pack(rows);
+        assertArrayEquals(rows, PackedResults.unpack(packed));
+        assertTrue(packed.length < String.join("\n", rows).length() / 4);
+    }
+
+    @Test
+    void unicodeStringsRoundTrip() {
+        String[] rows = { "1.3.6.1.2.1.1.6.0 = Z\u00fcrich \u2013 rack 3", "\u65e5\u672c" };
+        assertArrayEquals(rows, roundTrip(rows));
+    }
+
+    @Test
+    void emptyResultRoundTrips() {
+        assertArrayEquals(new String[0], roundTrip());
+    }
+
+    @Test
+    void errorRowsRoundTrip() {
+        String[] rows = { "[G001] Error: No response from device (timeout or unreachable)" };
+        assertArrayEquals(rows, roundTrip(rows));
+        String[] partial = { "1.3.6.1.2.1.1.1.0 = up", "[W001] Error: Request timed out." };
+        assertArrayEquals(partial, roundTrip(partial));
+    }
+
+    @Test
+    void largeResultIsDeflatedAndRoundTrips() {
+        String[] rows = new String[5000];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = "1.3.6.1.2.1.31.1.1.1.1." + i + " = GigabitEthernet0/" + i;
+        }
+        byte[] packed = PackedResults.pack(rows);
+        assertEquals(1, packed[1] & 1);
+        assertArrayEquals(rows, PackedResults.unpack(packed));
+    }
+
+    @Test
+    void everyTruncationIsUnreadableNotAnException() {
+        String[] rows = { null, "text", "1.3.6.1.2.1.1.3.0 = 99", "1.3.6.1.2.1.1.5.0 = host", "12" };
+        byte[] packed = PackedResults.pack(rows);
+        for (int length = 0; length < packed.length; length++) {
+            String[] decoded = PackedResults.unpack(Arrays.copyOf(packed, length));
+            assertTrue(unreadable(decoded), "prefix of " + length + " bytes decoded to " + Arrays.toString(decoded));
+        }
+    }
+
+    @Test
+    void truncatedDeflatedPayloadIsUnreadable() {
+        String[] rows = new String[5000];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = "1.3.6.1.2.1.31.1.1.1.1." + i + " = port" + i;
+        }
+        byte[] packed = PackedResults.pack(rows);
+        assertTrue(unreadable(PackedResults.unpack(Arrays.copyOf(packed, packed.length / 2))));
+    }
+
+    @Test
+    void rowCountBeyondKindColumnIsUnreadable() {
+        // version, flags, rowCount=3, then four columns: one kind byte (KIND_INTEGER) and one integer
+        byte[] packed = { 1, 0, 3, 1, 4, 0, 1, 2, 0 };
+        assertTrue(unreadable(PackedResults.unpack(packed)));
+    }
+
+    @Test
+    void sharedPrefixLongerThanPreviousOidIsUnreadable() {
+        // one KIND_OID_STRING row claiming 5 characters shared with an empty previous OID
+        byte[] packed = { 1, 0, 1, 1, 2, 2, 5, 0, 0, 1, 0 };
+        assertTrue(unreadable(PackedResults.unpack(packed)));
+    }
+
+    @Test
+    void unknownVersionAndNullAreUnreadable() {
+        assertTrue(unreadable(PackedResults.unpack(null)));
+        assertTrue(unreadable(PackedResults.unpack(new byte[] { 9, 0, 0, 0, 0, 0, 0 })));
+    }
+
+    @Test
+    void datasetRoundTrips() {
+        Dataset dataset = new BasicDataset(
+                List.of("target", "oid", "value", "status"),
+                List.of(String.class, String.class, String.class, String.class),
+                new Object[][] {
+                        { "10.0.0.1:161", "10.0.0.2:161" },
+                        { "1.3.6.1.2.1.1.3.0", "1.3.6.1.2.1.1.3.0" },
+                        { "1234", null },
+                        { "OK", "[G001] Error: timeout" },
+                });
+        Dataset decoded = PackedResults.unpackDataset(PackedResults.packDataset(dataset));
+
+        assertEquals(4, decoded.getColumnCount());
+        assertEquals(2, decoded.getRowCount());
+        for (int c = 0; c < 4; c++) {
+            assertEquals(dataset.getColumnName(c), decoded.getColumnName(c));
+            for (int r = 0; r < 2; r++) {
+                assertEquals(dataset.getValueAt(r, c), decoded.getValueAt(r, c));
+            }
+        }
+    }
+
+    @Test
+    void unreadableDatasetIsOneErrorCell() {
+        Dataset decoded = PackedResults.unpackDataset(PackedResults.pack(new String[] { "5", "1", "a" }));
+
+        assertEquals(1, decoded.getRowCount());
+        assertEquals("error", decoded.getColumnName(0));
+        assertEquals(PackedResults.UNREADABLE, decoded.getValueAt(0, 0));
+    }
+}
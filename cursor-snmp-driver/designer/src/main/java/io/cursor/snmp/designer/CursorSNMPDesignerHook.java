@@ -18,4 +18,10 @@ public class CursorSNMPDesignerHook extends AbstractDesignerModuleHook {
                 new ClientScriptModule(),
                 new PropertiesFileDocProvider());
     }
+
+    @Override
+    public void shutdown() {
+        ClientScriptModule.shutdown();
+        super.shutdown();
+    }
 }
@@ -3,6 +3,7 @@ package io.cursor.snmp.gateway;
 import com.inductiveautomation.ignition.common.licensing.LicenseState;
 import com.inductiveautomation.ignition.common.script.ScriptManager;
 import com.inductiveautomation.ignition.common.script.hints.PropertiesFileDocProvider;
+import com.inductiveautomation.ignition.gateway.clientcomm.ClientReqSession;
 import com.inductiveautomation.ignition.gateway.model.AbstractGatewayModuleHook;
 import com.inductiveautomation.ignition.gateway.model.GatewayContext;
 import com.inductiveautomation.ignition.gateway.rpc.GatewayRpcImplementation;
@@ -11,27 +12,57 @@ import io.cursor.snmp.common.FunctionInterface;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.Optional;
 
 public class CursorSNMPGatewayHook extends AbstractGatewayModuleHook {
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
-    private final GatewayScriptModule scriptModule = new GatewayScriptModule();
+    private final PollEngine pollEngine = new PollEngine();
+
+    private final TrapReceiver trapReceiver = new TrapReceiver();
+
+    private final Subscriptions subscriptions = new Subscriptions(pollEngine);
+
+    private final GatewayScriptModule scriptModule = new GatewayScriptModule(pollEngine, trapReceiver, subscriptions);
+
+    private GatewayContext context;
 
     @Override
     public void setup(GatewayContext gatewayContext) {
         logger.info("setup()");
+        context = gatewayContext;
+        scriptModule.setContext(gatewayContext);
+        subscriptions.setPublisher((session, payload) -> gatewayContext.getGatewaySessionManager().sendNotification(
+                session, CursorSNMPDriverModule.MODULE_ID, FunctionInterface.SUBSCRIPTION_NOTIFICATION, payload));
+        subscriptions.setSessionLookup(CursorSNMPGatewayHook::currentSessionId);
+        SnmpMetrics.register(gatewayContext.getMetricRegistry());
     }
 
     @Override
     public void startup(LicenseState licenseState) {
         logger.info("startup()");
+        pollEngine.startup();
+        Integer trapPort = Integer.getInteger(TrapReceiver.PORT_PROPERTY);
+        if (trapPort != null) {
+            try {
+                trapReceiver.start(trapPort, new String[0]);
+            } catch (IOException e) {
+                logger.error("Trap receiver could not listen on port {}", trapPort, e);
+            }
+        }
     }
 
     @Override
     public void shutdown() {
         logger.info("shutdown()");
+        subscriptions.clear();
+        pollEngine.shutdown();
+        trapReceiver.stop();
+        if (context != null) {
+            SnmpMetrics.unregister(context.getMetricRegistry());
+        }
         CursorSNMPDriverModule.shutdown();
     }
 
@@ -45,6 +76,12 @@ public class CursorSNMPGatewayHook extends AbstractGatewayModuleHook {
                 new PropertiesFileDocProvider());
     }
 
+    /** The client session of the RPC request being served on this thread, or {@code null} outside one. */
+    private static String currentSessionId() {
+        ClientReqSession session = ClientReqSession.get();
+        return session == null ? null : session.getId();
+    }
+
     @Override
     public boolean isFreeModule(){
         return true;
@@ -54,7 +91,7 @@ public class CursorSNMPGatewayHook extends AbstractGatewayModuleHook {
     public Optional<GatewayRpcImplementation> getRpcImplementation() {
         return Optional.of(GatewayRpcImplementation.of(
                 FunctionInterface.SERIALIZER,
-                new FunctionInterfaceImpl() {}
+                new FunctionInterfaceImpl(subscriptions, pollEngine.journal()) {}
         ));
     }
 }
@@ -1,5 +1,6 @@
 package io.cursor.snmp.gateway;
 
+import com.inductiveautomation.ignition.common.Dataset;
 import com.inductiveautomation.ignition.common.project.ClientPermissionsConstants;
 import com.inductiveautomation.ignition.gateway.rpc.RpcDelegate;
 import io.cursor.snmp.common.FunctionInterface;
@@ -15,8 +16,16 @@ import io.cursor.snmp.common.CursorSNMPDriverModule;
 @RpcDelegate.RunsOnClient(clientPermissionId = ClientPermissionsConstants.UNRESTRICTED)
 public class FunctionInterfaceImpl implements FunctionInterface {
 
-    public FunctionInterfaceImpl() {
+    private final Subscriptions subscriptions;
+    private final SampleJournal journal;
 
+    FunctionInterfaceImpl() {
+        this(null, null);
+    }
+
+    FunctionInterfaceImpl(Subscriptions subscriptions, SampleJournal journal) {
+        this.subscriptions = subscriptions;
+        this.journal = journal;
     }
 
     @Override
@@ -38,4 +47,160 @@ public class FunctionInterfaceImpl implements FunctionInterface {
     public String[] walkV3(String ip, int port, String startOID, int authLevel, String user, String pass, int authProt, int privProt, String[] params) {
         return CursorSNMPDriverModule.snmpWalkV3(ip, port, startOID, authLevel, user, pass, authProt, privProt, params);
     }
+
+    @Override
+    public Dataset getMany(String[] targets, String[] OIDS, String... params) {
+        return CursorSNMPDriverModule.snmpGetMany(targets, OIDS, params);
+    }
+
+    @Override
+    public Dataset getTyped(String addr, int port, String[] OIDS, String... params) {
+        return CursorSNMPDriverModule.snmpGetTyped(addr, port, OIDS, params);
+    }
+
+    @Override
+    public Dataset getTypedV3(String addr, int port, String[] OIDS, int authLevel, String user, String pass, int authProt, int privProt, String... params) {
+        return CursorSNMPDriverModule.snmpGetTypedV3(addr, port, OIDS, authLevel, user, pass, authProt, privProt, params);
+    }
+
+    @Override
+    public Dataset walkTyped(String addr, int port, String startOID, String... params) {
+        return CursorSNMPDriverModule.snmpWalkTyped(addr, port, startOID, params);
+    }
+
+    @Override
+    public Dataset walkTypedV3(String addr, int port, String startOID, int authLevel, String user, String pass, int authProt, int privProt, String... params) {
+        return CursorSNMPDriverModule.snmpWalkTypedV3(addr, port, startOID, authLevel, user, pass, authProt, privProt, params);
+    }
+
+    @Override
+    public String walkOpen(String addr, int port, String startOID, String... params) {
+        return CursorSNMPDriverModule.snmpWalkOpen(addr, port, startOID, params);
+    }
+
+    @Override
+    public String walkOpenV3(String addr, int port, String startOID, int authLevel, String user, String pass, int authProt, int privProt, String... params) {
+        return CursorSNMPDriverModule.snmpWalkOpenV3(addr, port, startOID, authLevel, user, pass, authProt, privProt, params);
+    }
+
+    @Override
+    public String[] walkNext(String cursorId, int maxRows) {
+        return CursorSNMPDriverModule.snmpWalkNext(cursorId, maxRows);
+    }
+
+    @Override
+    public boolean walkClose(String cursorId) {
+        return CursorSNMPDriverModule.snmpWalkClose(cursorId);
+    }
+
+    @Override
+    public Dataset getTable(String addr, int port, String[] columnOIDs, String... params) {
+        return CursorSNMPDriverModule.snmpGetTable(addr, port, columnOIDs, params);
+    }
+
+    @Override
+    public Dataset getTableV3(String addr, int port, String[] columnOIDs, int authLevel, String user, String pass, int authProt, int privProt, String... params) {
+        return CursorSNMPDriverModule.snmpGetTableV3(addr, port, columnOIDs, authLevel, user, pass, authProt, privProt, params);
+    }
+
+    @Override
+    public Dataset getStats() {
+        return CursorSNMPDriverModule.snmpGetStats();
+    }
+
+    @Override
+    public String prepare(String addr, int port, String[] OIDS, String... params) {
+        return CursorSNMPDriverModule.snmpPrepare(addr, port, OIDS, params);
+    }
+
+    @Override
+    public String prepareV3(String addr, int port, String[] OIDS, int authLevel, String user, String pass, int authProt, int privProt, String... params) {
+        return CursorSNMPDriverModule.snmpPrepareV3(addr, port, OIDS, authLevel, user, pass, authProt, privProt, params);
+    }
+
+    @Override
+    public String[] execute(String handle) {
+        return CursorSNMPDriverModule.snmpExecute(handle);
+    }
+
+    @Override
+    public boolean releasePrepared(String handle) {
+        return CursorSNMPDriverModule.snmpReleasePrepared(handle);
+    }
+
+    @Override
+    public String[] walkDelta(String clientId, long knownSeq, String addr, int port, String startOID, String... params) {
+        return CursorSNMPDriverModule.snmpWalkDelta(clientId, knownSeq, addr, port, startOID, params);
+    }
+
+    @Override
+    public String[] getDelta(String clientId, long knownSeq, String addr, int port, String[] OIDS, String... params) {
+        return CursorSNMPDriverModule.snmpGetDelta(clientId, knownSeq, addr, port, OIDS, params);
+    }
+
+    @Override
+    public byte[] walkPacked(String ip, int port, String startOID, String[] params) {
+        return CursorSNMPDriverModule.snmpWalkPacked(ip, port, startOID, params);
+    }
+
+    @Override
+    public byte[] walkV3Packed(String ip, int port, String startOID, int authLevel, String user, String pass, int authProt, int privProt, String[] params) {
+        return CursorSNMPDriverModule.snmpWalkV3Packed(ip, port, startOID, authLevel, user, pass, authProt, privProt, params);
+    }
+
+    @Override
+    public byte[] getManyPacked(String[] targets, String[] OIDS, String... params) {
+        return CursorSNMPDriverModule.snmpGetManyPacked(targets, OIDS, params);
+    }
+
+    @Override
+    public String[] subscribe(String clientId, String addr, int port, String[] OIDS, long rateMs, double deadband, String... params) {
+        if (subscriptions == null) {
+            return new String[] { "[S002] Error: subscriptions are not available" };
+        }
+        return subscriptions.subscribeClient(clientId, addr, port, OIDS, rateMs, deadband, params);
+    }
+
+    @Override
+    public String[] renewSubscriptions(String clientId, String[] subscriptionIds) {
+        return subscriptions == null ? subscriptionIds : subscriptions.renew(clientId, subscriptionIds);
+    }
+
+    @Override
+    public boolean unsubscribe(String clientId, String subscriptionId) {
+        return subscriptions != null && subscriptions.unsubscribeClient(clientId, subscriptionId);
+    }
+
+    @Override
+    public Dataset getRates(String addr, int port, String[] OIDS, String... params) {
+        return CursorSNMPDriverModule.snmpGetRates(addr, port, OIDS, params);
+    }
+
+    @Override
+    public String discover(String[] cidrs, String[] communities, String[] oids, String... params) {
+        return CursorSNMPDriverModule.snmpDiscover(cidrs, communities, oids, params);
+    }
+
+    @Override
+    public String discoverV3(String[] cidrs, String[] oids, int authLevel, String user, String pass, int authProt, int privProt, String... params) {
+        return CursorSNMPDriverModule.snmpDiscoverV3(cidrs, oids, authLevel, user, pass, authProt, privProt, params);
+    }
+
+    @Override
+    public Dataset discoverNext(String sweepId, int maxRows) {
+        return CursorSNMPDriverModule.snmpDiscoverNext(sweepId, maxRows);
+    }
+
+    @Override
+    public boolean discoverClose(String sweepId) {
+        return CursorSNMPDriverModule.snmpDiscoverClose(sweepId);
+    }
+
+    @Override
+    public Dataset queryJournal(String addr, int port, String[] OIDS, long startMillis, long endMillis, int maxRows) {
+        if (journal == null) {
+            return SampleJournal.error(SampleJournal.UNAVAILABLE);
+        }
+        return journal.query(addr + ":" + port, OIDS, startMillis, endMillis, maxRows);
+    }
 }
@@ -1,10 +1,161 @@
 package io.cursor.snmp.gateway;
 
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+import com.inductiveautomation.ignition.common.Dataset;
+import com.inductiveautomation.ignition.common.script.hints.JythonElement;
+import com.inductiveautomation.ignition.common.script.hints.ScriptArg;
+import com.inductiveautomation.ignition.gateway.model.GatewayContext;
 import io.cursor.snmp.common.AbstractScriptModule;
 import io.cursor.snmp.common.CursorSNMPDriverModule;
+import org.python.core.Py;
+import org.python.core.PyObject;
 
 public class GatewayScriptModule extends AbstractScriptModule {
 
+    private final PollEngine pollEngine;
+    private final TrapReceiver trapReceiver;
+    private final Subscriptions subscriptions;
+    private volatile GatewayContext context;
+
+    GatewayScriptModule(PollEngine pollEngine, TrapReceiver trapReceiver) {
+        this(pollEngine, trapReceiver, new Subscriptions(pollEngine));
+    }
+
+    GatewayScriptModule(PollEngine pollEngine, TrapReceiver trapReceiver, Subscriptions subscriptions) {
+        this.pollEngine = pollEngine;
+        this.trapReceiver = trapReceiver;
+        this.subscriptions = subscriptions;
+    }
+
+    void setContext(GatewayContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Gateway scope only. Registers (or replaces) a named poll group: {@code OIDs} are read from the target every
+     * {@code rateMs}, and each cycle's values are passed to {@code callback(name, values, status)} and/or written to
+     * {@code tagPaths} (same order as {@code OIDs}; pass {@code None} for either to skip it).
+     */
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public void addPollGroup(
+            @ScriptArg("name") String name,
+            @ScriptArg("address") String addr,
+            @ScriptArg("port") int port,
+            @ScriptArg("OID") String[] OIDS,
+            @ScriptArg("rateMs") long rateMs,
+            @ScriptArg("callback") PyObject callback,
+            @ScriptArg("tagPaths") String[] tagPaths,
+            @ScriptArg("others") String... params) throws IOException
+    {
+        PollEngine.PollListener listener = null;
+        if (callback != null && callback != Py.None) {
+            listener = PollListeners.script(callback);
+        }
+        if (tagPaths != null && tagPaths.length > 0) {
+            if (context == null) {
+                throw new IllegalStateException("[P002] Error: tag publishing is not available before gateway setup");
+            }
+            listener = PollListeners.both(listener, PollListeners.tags(context, tagPaths));
+        }
+        if (listener == null) {
+            throw new IllegalArgumentException("[P003] Error: a poll group needs a callback or tagPaths");
+        }
+        pollEngine.addGroup(name, addr, port, OIDS, rateMs, params, listener);
+    }
+
+    /**
+     * Gateway scope only. Limits the requests per second to one agent, or to all agents when {@code address} is
+     * {@code "*"}. It changes every request the gateway sends, so it is not offered to clients.
+     */
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public boolean setRateLimit(
+            @ScriptArg("address") String addr,
+            @ScriptArg("port") int port,
+            @ScriptArg("rateLimit") int rateLimit,
+            @ScriptArg("rateBurst") int rateBurst)
+    {
+        return CursorSNMPDriverModule.snmpSetRateLimit(addr, port, rateLimit, rateBurst);
+    }
+
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public boolean removePollGroup(@ScriptArg("name") String name) {
+        return pollEngine.removeGroup(name);
+    }
+
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public Dataset getPollGroups() {
+        return pollEngine.getGroups();
+    }
+
+    /**
+     * Gateway scope only. Opens the trap/inform receiver on {@code port}, replacing a running one; see
+     * {@link TrapReceiver#start} for the options.
+     */
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public void startTrapReceiver(
+            @ScriptArg("port") int port,
+            @ScriptArg("others") String... params) throws IOException
+    {
+        trapReceiver.start(port, params);
+    }
+
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public void stopTrapReceiver() {
+        trapReceiver.stop();
+    }
+
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public void addTrapUserV3(
+            @ScriptArg("user") String user,
+            @ScriptArg("authLevel") int authLevel,
+            @ScriptArg("pass") String pass,
+            @ScriptArg("authProt") int authProt,
+            @ScriptArg("privProt") int privProt,
+            @ScriptArg("others") String... params)
+    {
+        trapReceiver.addUser(user, authLevel, pass, authProt, privProt, params);
+    }
+
+    /**
+     * Gateway scope only. Registers (or replaces) a named trap handler for trap OIDs under {@code trapOID} (empty
+     * for all). Each batch is passed to {@code callback(traps)} as a Dataset and/or the last trap is written to
+     * {@code tagPath}; pass {@code None} for either to skip it.
+     */
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public void addTrapHandler(
+            @ScriptArg("name") String name,
+            @ScriptArg("trapOID") String trapOidPrefix,
+            @ScriptArg("callback") PyObject callback,
+            @ScriptArg("tagPath") String tagPath) throws IOException
+    {
+        TrapReceiver.TrapListener listener = null;
+        if (callback != null && callback != Py.None) {
+            listener = TrapListeners.script(callback);
+        }
+        if (tagPath != null && !tagPath.isEmpty()) {
+            if (context == null) {
+                throw new IllegalStateException("[R001] Error: tag publishing is not available before gateway setup");
+            }
+            listener = TrapListeners.both(listener, TrapListeners.tag(context, tagPath));
+        }
+        if (listener == null) {
+            throw new IllegalArgumentException("[R002] Error: a trap handler needs a callback or tagPath");
+        }
+        trapReceiver.addHandler(name, trapOidPrefix, listener);
+    }
+
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public boolean removeTrapHandler(@ScriptArg("name") String name) {
+        return trapReceiver.removeHandler(name);
+    }
+
+    @JythonElement(docBundlePrefix = "AbstractScriptModule")
+    public Dataset getTrapReceiverStatus() {
+        return trapReceiver.getStatus();
+    }
+
     @Override
     protected String[] getImpl(String addr, int port, String[] OIDS, String... params) {
         return CursorSNMPDriverModule.snmpGet(addr, port, OIDS, params);
@@ -24,4 +175,157 @@ public class GatewayScriptModule extends AbstractScriptModule {
     protected String[] walkImplV3(String addr, int port, String startOID, int authLevel, String user, String pass, int authProt, int privProt, String... params) {
     	return CursorSNMPDriverModule.snmpWalkV3(addr, port, startOID, authLevel, user, pass, authProt, privProt, params);
     }
-}
\ No newline at end of file
+
+    @Override
+    protected CompletableFuture<String[]> getAsyncImpl(String addr, int port, String[] OIDS, String... params) {
+        return CursorSNMPDriverModule.snmpGetAsync(addr, port, OIDS, params);
+    }
+
+    @Override
+    protected CompletableFuture<String[]> walkAsyncImpl(String addr, int port, String startOID, String... params) {
+        return CursorSNMPDriverModule.snmpWalkAsync(addr, port, startOID, params);
+    }
+
+    @Override
+    protected Dataset getManyImpl(String[] targets, String[] OIDS, String... params) {
+        return CursorSNMPDriverModule.snmpGetMany(targets, OIDS, params);
+    }
+
+    @Override
+    protected Dataset getTypedImpl(String addr, int port, String[] OIDS, String... params) {
+        return CursorSNMPDriverModule.snmpGetTyped(addr, port, OIDS, params);
+    }
+
+    @Override
+    protected Dataset getTypedV3Impl(String addr, int port, String[] OIDS, int authLevel, String user, String pass, int authProt, int privProt, String... params) {
+        return CursorSNMPDriverModule.snmpGetTypedV3(addr, port, OIDS, authLevel, user, pass, authProt, privProt, params);
+    }
+
+    @Override
+    protected Dataset walkTypedImpl(String addr, int port, String startOID, String... params) {
+        return CursorSNMPDriverModule.snmpWalkTyped(addr, port, startOID, params);
+    }
+
+    @Override
+    protected Dataset walkTypedV3Impl(String addr, int port, String startOID, int authLevel, String user, String pass, int authProt, int privProt, String... params) {
+        return CursorSNMPDriverModule.snmpWalkTypedV3(addr, port, startOID, authLevel, user, pass, authProt, privProt, params);
+    }
+
+    @Override
+    protected String walkOpenImpl(String addr, int port, String startOID, String... params) {
+        return CursorSNMPDriverModule.snmpWalkOpen(addr, port, startOID, params);
+    }
+
+    @Override
+    protected String walkOpenV3Impl(String addr, int port, String startOID, int authLevel, String user, String pass, int authProt, int privProt, String... params) {
+        return CursorSNMPDriverModule.snmpWalkOpenV3(addr, port, startOID, authLevel, user, pass, authProt, privProt, params);
+    }
+
+    @Override
+    protected String[] walkNextImpl(String cursorId, int maxRows) {
+        return CursorSNMPDriverModule.snmpWalkNext(cursorId, maxRows);
+    }
+
+    @Override
+    protected boolean walkCloseImpl(String cursorId) {
+        return CursorSNMPDriverModule.snmpWalkClose(cursorId);
+    }
+
+    @Override
+    protected Dataset getTableImpl(String addr, int port, String[] columnOIDs, String... params) {
+        return CursorSNMPDriverModule.snmpGetTable(addr, port, columnOIDs, params);
+    }
+
+    @Override
+    protected Dataset getTableV3Impl(String addr, int port, String[] columnOIDs, int authLevel, String user, String pass, int authProt, int privProt, String... params) {
+        return CursorSNMPDriverModule.snmpGetTableV3(addr, port, columnOIDs, authLevel, user, pass, authProt, privProt, params);
+    }
+
+    @Override
+    protected Dataset getStatsImpl() {
+        return CursorSNMPDriverModule.snmpGetStats();
+    }
+
+    @Override
+    protected String prepareImpl(String addr, int port, String[] OIDS, String... params) {
+        return CursorSNMPDriverModule.snmpPrepare(addr, port, OIDS, params);
+    }
+
+    @Override
+    protected String prepareV3Impl(String addr, int port, String[] OIDS, int authLevel, String user, String pass, int authProt, int privProt, String... params) {
+        return CursorSNMPDriverModule.snmpPrepareV3(addr, port, OIDS, authLevel, user, pass, authProt, privProt, params);
+    }
+
+    @Override
+    protected String[] executeImpl(String handle) {
+        return CursorSNMPDriverModule.snmpExecute(handle);
+    }
+
+    @Override
+    protected boolean releasePreparedImpl(String handle) {
+        return CursorSNMPDriverModule.snmpReleasePrepared(handle);
+    }
+
+    /** Gateway scripts have no RPC hop to save, so the delta variants are plain calls. */
+    @Override
+    protected String[] walkDeltaImpl(String addr, int port, String startOID, String... params) {
+        return CursorSNMPDriverModule.snmpWalk(addr, port, startOID, params);
+    }
+
+    @Override
+    protected String[] getDeltaImpl(String addr, int port, String[] OIDS, String... params) {
+        return CursorSNMPDriverModule.snmpGet(addr, port, OIDS, params);
+    }
+
+    /** Gateway scripts share the poll engine with client subscriptions; the callback runs on the callback pool. */
+    @Override
+    protected String subscribeImpl(String addr, int port, String[] OIDS, long rateMs, double deadband, PyObject callback, String... params) {
+        Subscriptions.Listener listener = (values, status) -> {
+            if (callback != null && callback != Py.None) {
+                callback.__call__(Py.java2py(values), Py.java2py(status));
+            }
+        };
+        return subscriptions.subscribeListener(addr, port, OIDS, rateMs, deadband, params, listener);
+    }
+
+    @Override
+    protected String[] readSubscriptionImpl(String handle) {
+        String[] values = subscriptions.read(handle);
+        return values == null ? new String[] { Subscriptions.UNKNOWN_SUBSCRIPTION } : values;
+    }
+
+    @Override
+    protected boolean unsubscribeImpl(String handle) {
+        return subscriptions.unsubscribeListener(handle);
+    }
+
+    @Override
+    protected Dataset getRatesImpl(String addr, int port, String[] OIDS, String... params) {
+        return CursorSNMPDriverModule.snmpGetRates(addr, port, OIDS, params);
+    }
+
+    @Override
+    protected String discoverImpl(String[] cidrs, String[] communities, String[] oids, String... params) {
+        return CursorSNMPDriverModule.snmpDiscover(cidrs, communities, oids, params);
+    }
+
+    @Override
+    protected String discoverV3Impl(String[] cidrs, String[] oids, int authLevel, String user, String pass, int authProt, int privProt, String... params) {
+        return CursorSNMPDriverModule.snmpDiscoverV3(cidrs, oids, authLevel, user, pass, authProt, privProt, params);
+    }
+
+    @Override
+    protected Dataset discoverNextImpl(String sweepId, int maxRows) {
+        return CursorSNMPDriverModule.snmpDiscoverNext(sweepId, maxRows);
+    }
+
+    @Override
+    protected boolean discoverCloseImpl(String sweepId) {
+        return CursorSNMPDriverModule.snmpDiscoverClose(sweepId);
+    }
+
+    @Override
+    protected Dataset queryJournalImpl(String addr, int port, String[] OIDS, long startMillis, long endMillis, int maxRows) {
+        return pollEngine.journal().query(addr + ":" + port, OIDS, startMillis, endMillis, maxRows);
+    }
+}
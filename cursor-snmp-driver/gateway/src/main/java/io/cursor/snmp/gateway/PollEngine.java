@@ -0,0 +1,274 @@
+package io.cursor.snmp.gateway;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.inductiveautomation.ignition.common.BasicDataset;
+import com.inductiveautomation.ignition.common.Dataset;
+import io.cursor.snmp.common.CursorSNMPDriverModule;
+import io.cursor.snmp.common.SnmpResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snmp4j.smi.VariableBinding;
+
+/**
+ * Gateway-side scheduled polling. Poll groups (target, OIDs, rate) are registered by name; groups for the same
+ * device, community/options and rate share one device job, which requests the union of their OIDs once per cycle
+ * over the shared community session and fans the values out to each group's listener. Each device job starts after
+ * a random delay within its period so devices registered together do not poll in bursts. Numeric values of groups
+ * that journal are also appended to the {@link SampleJournal}.
+ */
+public class PollEngine {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    /** Receives each cycle's values for one group, ordered like the group's OIDs. */
+    public interface PollListener {
+        void onResult(PollGroup group, SnmpResult result);
+    }
+
+    public static final class PollGroup {
+        final String name;
+        final String address;
+        final int port;
+        final String[] oids;
+        final long rateMs;
+        final String[] params;
+        final PollListener listener;
+        volatile long lastPoll;
+        volatile String lastStatus = "pending";
+
+        PollGroup(String name, String address, int port, String[] oids, long rateMs, String[] params, PollListener listener) {
+            this.name = name;
+            this.address = address;
+            this.port = port;
+            this.oids = oids.clone();
+            this.rateMs = rateMs;
+            this.params = params == null ? new String[0] : params.clone();
+            this.listener = listener;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String[] getOids() {
+            return oids.clone();
+        }
+
+        String deviceKey() {
+            return address + "/" + port + "@" + rateMs + "|" + String.join("\0", params);
+        }
+    }
+
+    private final class DeviceJob implements Runnable {
+        final String key;
+        final PollGroup template;
+        final Map<String, PollGroup> groups = new LinkedHashMap<>();
+        final AtomicBoolean inFlight = new AtomicBoolean();
+        String[] oids = new String[0];
+        int[][] positions = new int[0][];
+        PollGroup[] members = new PollGroup[0];
+        ScheduledFuture<?> future;
+
+        DeviceJob(String key, PollGroup template) {
+            this.key = key;
+            this.template = template;
+        }
+
+        /** Rebuilds the merged OID list; callers hold the engine lock. */
+        void rebuild() {
+            LinkedHashMap<String, Integer> union = new LinkedHashMap<>();
+            members = groups.values().toArray(new PollGroup[0]);
+            positions = new int[members.length][];
+            for (int g = 0; g < members.length; g++) {
+                String[] groupOids = members[g].oids;
+                positions[g] = new int[groupOids.length];
+                for (int i = 0; i < groupOids.length; i++) {
+                    Integer pos = union.get(groupOids[i]);
+                    if (pos == null) {
+                        pos = union.size();
+                        union.put(groupOids[i], pos);
+                    }
+                    positions[g][i] = pos;
+                }
+            }
+            oids = union.keySet().toArray(new String[0]);
+        }
+
+        @Override
+        public void run() {
+            if (!inFlight.compareAndSet(false, true)) {
+                return;
+            }
+            String[] requestOids;
+            PollGroup[] requestMembers;
+            int[][] requestPositions;
+            synchronized (PollEngine.this) {
+                requestOids = oids;
+                requestMembers = members;
+                requestPositions = positions;
+            }
+            CursorSNMPDriverModule.snmpGetResultAsync(template.address, template.port, requestOids, template.params)
+                    .whenCompleteAsync((result, error) -> {
+                        try {
+                            SnmpResult r = error != null ? SnmpResult.error("[P001] Error: " + error) : result;
+                            if (!r.isError() && SampleJournal.journaled(template.params)) {
+                                journal.append(template.address + ":" + template.port, requestOids, r.bindings);
+                            }
+                            for (int g = 0; g < requestMembers.length; g++) {
+                                deliver(requestMembers[g], r, requestPositions[g]);
+                            }
+                        } finally {
+                            inFlight.set(false);
+                        }
+                    }, CursorSNMPDriverModule.callbackExecutor());
+        }
+    }
+
+    private final Map<String, PollGroup> groups = new ConcurrentHashMap<>();
+    private final Map<String, DeviceJob> jobs = new LinkedHashMap<>();
+    private final SampleJournal journal = new SampleJournal();
+    private ScheduledExecutorService scheduler;
+
+    SampleJournal journal() {
+        return journal;
+    }
+
+    public synchronized void startup() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "cursorSNMP-poll");
+                t.setDaemon(true);
+                return t;
+            });
+            for (DeviceJob job : jobs.values()) {
+                schedule(job);
+            }
+        }
+    }
+
+    public synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        for (DeviceJob job : jobs.values()) {
+            job.future = null;
+        }
+        journal.close();
+    }
+
+    /**
+     * Registers or replaces the group {@code name}.
+     */
+    public synchronized void addGroup(
+            String name,
+            String address,
+            int port,
+            String[] oids,
+            long rateMs,
+            String[] params,
+            PollListener listener) {
+        if (rateMs <= 0) {
+            throw new IllegalArgumentException("rateMs must be positive");
+        }
+        removeGroup(name);
+        PollGroup group = new PollGroup(name, address, port, oids, rateMs, params, listener);
+        groups.put(name, group);
+        DeviceJob job = jobs.get(group.deviceKey());
+        if (job == null) {
+            job = new DeviceJob(group.deviceKey(), group);
+            jobs.put(job.key, job);
+            job.groups.put(name, group);
+            job.rebuild();
+            schedule(job);
+        } else {
+            job.groups.put(name, group);
+            job.rebuild();
+        }
+    }
+
+    public synchronized boolean removeGroup(String name) {
+        PollGroup group = groups.remove(name);
+        if (group == null) {
+            return false;
+        }
+        DeviceJob job = jobs.get(group.deviceKey());
+        if (job != null) {
+            job.groups.remove(name);
+            if (job.groups.isEmpty()) {
+                if (job.future != null) {
+                    job.future.cancel(false);
+                }
+                jobs.remove(job.key);
+            } else {
+                job.rebuild();
+            }
+        }
+        return true;
+    }
+
+    /** One row per group: name, target, OID count, rate, device job size, last poll time and status. */
+    public Dataset getGroups() {
+        List<PollGroup> snapshot = new ArrayList<>(groups.values());
+        Object[][] data = new Object[7][snapshot.size()];
+        for (int i = 0; i < snapshot.size(); i++) {
+            PollGroup g = snapshot.get(i);
+            data[0][i] = g.name;
+            data[1][i] = g.address + ":" + g.port;
+            data[2][i] = g.oids.length;
+            data[3][i] = g.rateMs;
+            synchronized (this) {
+                DeviceJob job = jobs.get(g.deviceKey());
+                data[4][i] = job == null ? 0 : job.oids.length;
+            }
+            data[5][i] = g.lastPoll == 0 ? null : new Date(g.lastPoll);
+            data[6][i] = g.lastStatus;
+        }
+        return new BasicDataset(
+                Arrays.asList("name", "target", "oidCount", "rateMs", "deviceOidCount", "lastPoll", "lastStatus"),
+                Arrays.asList(String.class, String.class, Integer.class, Long.class, Integer.class,
+                        Date.class, String.class),
+                data);
+    }
+
+    private void schedule(DeviceJob job) {
+        if (scheduler == null) {
+            return;
+        }
+        long period = job.template.rateMs;
+        long jitter = ThreadLocalRandom.current().nextLong(period);
+        job.future = scheduler.scheduleAtFixedRate(job, jitter, period, TimeUnit.MILLISECONDS);
+    }
+
+    private void deliver(PollGroup group, SnmpResult deviceResult, int[] positions) {
+        SnmpResult result = deviceResult;
+        if (!deviceResult.isError()) {
+            VariableBinding[] values = new VariableBinding[positions.length];
+            for (int i = 0; i < positions.length; i++) {
+                int pos = positions[i];
+                values[i] = pos < deviceResult.bindings.length ? deviceResult.bindings[pos] : null;
+            }
+            result = SnmpResult.of(values);
+        }
+        group.lastPoll = System.currentTimeMillis();
+        group.lastStatus = result.isError() ? result.error : "OK";
+        try {
+            group.listener.onResult(group, result);
+        } catch (Exception e) {
+            logger.warn("Poll group '{}' listener failed", group.name, e);
+        }
+    }
+}
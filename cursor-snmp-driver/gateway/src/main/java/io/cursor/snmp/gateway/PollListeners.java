@@ -0,0 +1,85 @@
+package io.cursor.snmp.gateway;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.inductiveautomation.ignition.common.tags.model.TagPath;
+import com.inductiveautomation.ignition.common.tags.paths.parser.TagPathParser;
+import com.inductiveautomation.ignition.gateway.model.GatewayContext;
+import io.cursor.snmp.common.CursorSNMPDriverModule;
+import io.cursor.snmp.common.SnmpResult;
+import org.python.core.Py;
+import org.python.core.PyObject;
+import org.snmp4j.smi.VariableBinding;
+
+/**
+ * Poll engine publishers: a script callback and/or memory tag writes.
+ */
+final class PollListeners {
+
+    private PollListeners() {
+    }
+
+    /**
+     * Native values ordered like the group's OIDs; {@code null} where the value is missing or the agent returned an
+     * exception ({@code noSuchObject}, {@code noSuchInstance}, {@code endOfMibView}).
+     */
+    static Object[] values(SnmpResult result) {
+        Object[] values = new Object[result.bindings.length];
+        for (int i = 0; i < values.length; i++) {
+            VariableBinding vb = result.bindings[i];
+            values[i] = vb == null || vb.isException() ? null : CursorSNMPDriverModule.nativeValue(vb.getVariable());
+        }
+        return values;
+    }
+
+    /** Calls {@code callback(groupName, values, status)}; status is {@code OK} or the error message. */
+    static PollEngine.PollListener script(PyObject callback) {
+        return (group, result) -> callback.__call__(new PyObject[] {
+                Py.java2py(group.getName()),
+                Py.java2py(values(result)),
+                Py.java2py(result.isError() ? result.error : "OK")
+        });
+    }
+
+    /**
+     * Writes each value to the tag path at the same position as its OID. Errors skip the write so tags keep their
+     * last value.
+     */
+    static PollEngine.PollListener tags(GatewayContext context, String[] tagPaths) throws IOException {
+        List<TagPath> paths = new ArrayList<>(tagPaths.length);
+        for (String tagPath : tagPaths) {
+            paths.add(TagPathParser.parse(tagPath));
+        }
+        return (group, result) -> {
+            if (result.isError()) {
+                return;
+            }
+            Object[] values = values(result);
+            List<TagPath> writePaths = new ArrayList<>();
+            List<Object> writeValues = new ArrayList<>();
+            for (int i = 0; i < paths.size() && i < values.length; i++) {
+                writePaths.add(paths.get(i));
+                writeValues.add(values[i]);
+            }
+            context.getTagManager().writeAsync(writePaths, writeValues);
+        };
+    }
+
+    static PollEngine.PollListener both(PollEngine.PollListener first, PollEngine.PollListener second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        return (group, result) -> {
+            try {
+                first.onResult(group, result);
+            } finally {
+                second.onResult(group, result);
+            }
+        };
+    }
+}
@@ -0,0 +1,525 @@
+package io.cursor.snmp.gateway;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.inductiveautomation.ignition.common.BasicDataset;
+import com.inductiveautomation.ignition.common.Dataset;
+import io.cursor.snmp.common.CursorSNMPDriverModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snmp4j.smi.SMIConstants;
+import org.snmp4j.smi.Variable;
+import org.snmp4j.smi.VariableBinding;
+
+/**
+ * Short on-disk history of polled values, for troubleshooting without the tag historian.
+ * <p>
+ * Poll groups with {@code journal=true} in their params, or every group without {@code journal=false} when
+ * {@value #ENABLED_PROPERTY} is set, append each numeric value of every successful cycle as a fixed
+ * {@value #RECORD_BYTES}-byte record: target id and OID id (ints), timestamp (epoch ms) and value (long). Strings,
+ * addresses, OIDs, exceptions and failed cycles are not journaled. Targets ({@code address:port}) and OIDs are
+ * numbered by two dictionaries, {@code targets.dict} and {@code oids.dict}, which hold one name per line in id order.
+ * <p>
+ * Records go to memory-mapped segment files of {@value #SEGMENT_MB_PROPERTY} MB (default {@value #DEFAULT_SEGMENT_MB})
+ * in {@value #DIR_PROPERTY} (default {@value #DEFAULT_DIR}). The active segment is closed when full or after
+ * {@value #ROLL_MINUTES_PROPERTY} minutes (default {@value #DEFAULT_ROLL_MINUTES}), then cut to the records it holds
+ * and mapped read-only. Closed segments are deleted, oldest first, while their files and the records of the active
+ * segment take more than {@value #MAX_MB_PROPERTY} MB (default {@value #DEFAULT_MAX_MB}), and once their newest record
+ * is older than {@value #MAX_HOURS_PROPERTY} hours (default {@value #DEFAULT_MAX_HOURS}).
+ * Timestamps never decrease across the journal, so {@link #query} binary-searches each mapped segment for the start
+ * of the range and reads only the records in it; while the wall clock is behind the newest record, records keep that
+ * record's timestamp. Once {@link #close closed}, the journal ignores appends and queries return {@code [J001]}.
+ */
+final class SampleJournal {
+    static final String ENABLED_PROPERTY = "cursor.snmp.journal";
+    static final String DIR_PROPERTY = "cursor.snmp.journalDir";
+    static final String SEGMENT_MB_PROPERTY = "cursor.snmp.journalSegmentMb";
+    static final String ROLL_MINUTES_PROPERTY = "cursor.snmp.journalRollMinutes";
+    static final String MAX_MB_PROPERTY = "cursor.snmp.journalMaxMb";
+    static final String MAX_HOURS_PROPERTY = "cursor.snmp.journalMaxHours";
+    static final String DEFAULT_DIR = "data/cursor-snmp-journal";
+    static final int DEFAULT_SEGMENT_MB = 64;
+    static final int DEFAULT_ROLL_MINUTES = 60;
+    static final int DEFAULT_MAX_MB = 2048;
+    static final int DEFAULT_MAX_HOURS = 72;
+    static final int DEFAULT_MAX_ROWS = 100_000;
+    static final int RECORD_BYTES = 24;
+    static final String UNAVAILABLE = "[J001] Error: the sample journal is not available";
+
+    private static final int MAGIC = 0x534E4A31;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int COUNT_OFFSET = 8;
+    private static final int FIRST_OFFSET = 16;
+    private static final int LAST_OFFSET = 24;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".snj";
+    private static final boolean ENABLED = Boolean.getBoolean(ENABLED_PROPERTY);
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final long rollMs;
+    private final long maxBytes;
+    private final long maxAgeMs;
+
+    /** One segment file; records are written only to the active one, under the journal lock. */
+    private static final class Segment {
+        final Path path;
+        final long created;
+        final MappedByteBuffer buffer;
+        final int capacity;
+        volatile int count;
+        volatile long first;
+        volatile long last;
+        /** Size of the file on disk; guarded by the journal lock. */
+        long fileBytes;
+
+        Segment(Path path, long created, MappedByteBuffer buffer) {
+            this.path = path;
+            this.created = created;
+            this.buffer = buffer;
+            this.capacity = (buffer.capacity() - HEADER_BYTES) / RECORD_BYTES;
+            this.fileBytes = buffer.capacity();
+        }
+
+        long usedBytes() {
+            return HEADER_BYTES + (long) count * RECORD_BYTES;
+        }
+
+        long timestamp(int index) {
+            return buffer.getLong(HEADER_BYTES + index * RECORD_BYTES + 8);
+        }
+
+        /** First index with a timestamp at or after {@code from}. */
+        int lowerBound(long from) {
+            int lo = 0;
+            int hi = count;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (timestamp(mid) < from) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+    /** Name-to-id map persisted as one name per line; guarded by its own lock. */
+    private static final class Dictionary {
+        final Path path;
+        final Map<String, Integer> ids = new HashMap<>();
+        final List<String> names = new ArrayList<>();
+        Writer writer;
+
+        Dictionary(Path path) throws IOException {
+            this.path = path;
+            if (Files.exists(path)) {
+                for (String name : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                    ids.putIfAbsent(name, names.size());
+                    names.add(name);
+                }
+            }
+            writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+
+        synchronized int id(String name) throws IOException {
+            Integer id = ids.get(name);
+            if (id == null) {
+                id = names.size();
+                writer.write(name);
+                writer.write('\n');
+                writer.flush();
+                names.add(name);
+                ids.put(name, id);
+            }
+            return id;
+        }
+
+        synchronized Integer find(String name) {
+            return ids.get(name);
+        }
+
+        synchronized String name(int id) {
+            return id >= 0 && id < names.size() ? names.get(id) : null;
+        }
+
+        synchronized void close() {
+            try {
+                writer.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /** Guarded by {@code this}; {@code null} until the first append or query. */
+    private Dictionary targets;
+    private Dictionary oids;
+    private Segment active;
+    private long lastTimestamp;
+    private boolean clamping;
+    private boolean failed;
+    private boolean closed;
+    private final List<Path> pendingDeletes = new ArrayList<>();
+    /** Oldest first; replaced, never modified, so queries can read it without the lock. */
+    private volatile List<Segment> segments = Collections.emptyList();
+
+    SampleJournal() {
+        this(Paths.get(System.getProperty(DIR_PROPERTY, DEFAULT_DIR)),
+                Math.min(1024, Math.max(1, Integer.getInteger(SEGMENT_MB_PROPERTY, DEFAULT_SEGMENT_MB))) * 1024L * 1024L,
+                Math.max(1, Integer.getInteger(ROLL_MINUTES_PROPERTY, DEFAULT_ROLL_MINUTES)) * 60_000L,
+                Math.max(1, Integer.getInteger(MAX_MB_PROPERTY, DEFAULT_MAX_MB)) * 1024L * 1024L,
+                Math.max(1, Integer.getInteger(MAX_HOURS_PROPERTY, DEFAULT_MAX_HOURS)) * 3_600_000L);
+    }
+
+    /** Segments of {@code segmentBytes} hold as many whole records as fit after the header. */
+    SampleJournal(Path dir, long segmentBytes, long rollMs, long maxBytes, long maxAgeMs) {
+        this.dir = dir;
+        this.segmentBytes = HEADER_BYTES + (long) RECORD_BYTES
+                * Math.max(1, (segmentBytes - HEADER_BYTES) / RECORD_BYTES);
+        this.rollMs = rollMs;
+        this.maxBytes = maxBytes;
+        this.maxAgeMs = maxAgeMs;
+    }
+
+    /** Whether a poll group with these params is journaled. */
+    static boolean journaled(String[] params) {
+        String value = CursorSNMPDriverModule.findParam(params, "journal");
+        return value == null ? ENABLED : Boolean.parseBoolean(value);
+    }
+
+    /** Appends the numeric values of one successful poll of {@code target}; {@code bindings} align with {@code oidNames}. */
+    void append(String target, String[] oidNames, VariableBinding[] bindings) {
+        append(target, oidNames, bindings, System.currentTimeMillis());
+    }
+
+    synchronized void append(String target, String[] oidNames, VariableBinding[] bindings, long clock) {
+        if (failed || closed) {
+            return;
+        }
+        try {
+            open();
+            if (clock < lastTimestamp && !clamping) {
+                logger.warn("Wall clock is {} ms behind the newest journal record; journaling at {} until it catches up",
+                        lastTimestamp - clock, new Date(lastTimestamp));
+            }
+            clamping = clock < lastTimestamp;
+            long now = Math.max(clock, lastTimestamp);
+            if (active == null || active.count >= active.capacity || now - active.created >= rollMs) {
+                roll(now);
+            }
+            int targetId = targets.id(target);
+            MappedByteBuffer buffer = active.buffer;
+            int count = active.count;
+            for (int i = 0; i < oidNames.length && i < bindings.length; i++) {
+                VariableBinding vb = bindings[i];
+                if (vb == null || !numeric(vb.getVariable())) {
+                    continue;
+                }
+                if (count >= active.capacity) {
+                    publish(count, now);
+                    roll(now);
+                    buffer = active.buffer;
+                    count = 0;
+                }
+                int offset = HEADER_BYTES + count * RECORD_BYTES;
+                buffer.putInt(offset, targetId);
+                buffer.putInt(offset + 4, oids.id(oidNames[i]));
+                buffer.putLong(offset + 8, now);
+                buffer.putLong(offset + 16, vb.getVariable().toLong());
+                count++;
+            }
+            publish(count, now);
+            lastTimestamp = now;
+        } catch (IOException | RuntimeException e) {
+            failed = true;
+            logger.error("Sample journal in {} failed; journaling stops until the module restarts", dir, e);
+        }
+    }
+
+    /**
+     * Records of {@code target} from {@code from} to {@code to} (epoch ms, inclusive) in time order, at most
+     * {@code maxRows} ({@code 0}: {@value #DEFAULT_MAX_ROWS}). {@code oidNames} restricts the OIDs; {@code null} or
+     * empty returns all of them. Columns: {@code oid}, {@code t_stamp} and {@code value}.
+     */
+    Dataset query(String target, String[] oidNames, long from, long to, int maxRows) {
+        List<Segment> snapshot;
+        Dictionary targets;
+        Dictionary oids;
+        synchronized (this) {
+            if (closed) {
+                return error(UNAVAILABLE);
+            }
+            try {
+                open();
+            } catch (IOException | RuntimeException e) {
+                return error("[J002] Error: " + e.getClass().getSimpleName() + ": " + e.getMessage());
+            }
+            snapshot = segments;
+            targets = this.targets;
+            oids = this.oids;
+        }
+        int limit = maxRows > 0 ? maxRows : DEFAULT_MAX_ROWS;
+        List<String> rowOids = new ArrayList<>();
+        List<Date> rowTimes = new ArrayList<>();
+        List<Long> rowValues = new ArrayList<>();
+        Integer targetId = targets.find(target);
+        BitSet wanted = null;
+        if (oidNames != null && oidNames.length > 0) {
+            wanted = new BitSet();
+            for (String oid : oidNames) {
+                Integer id = oids.find(oid);
+                if (id != null) {
+                    wanted.set(id);
+                }
+            }
+        }
+        if (targetId != null && (wanted == null || !wanted.isEmpty())) {
+            int t = targetId;
+            Map<Integer, String> names = new HashMap<>();
+            for (Segment segment : snapshot) {
+                int count = segment.count;
+                if (count == 0 || segment.last < from || segment.first > to) {
+                    continue;
+                }
+                ByteBuffer buffer = segment.buffer;
+                for (int i = segment.lowerBound(from); i < count && rowOids.size() < limit; i++) {
+                    int offset = HEADER_BYTES + i * RECORD_BYTES;
+                    long timestamp = buffer.getLong(offset + 8);
+                    if (timestamp > to) {
+                        break;
+                    }
+                    int oidId = buffer.getInt(offset + 4);
+                    if (buffer.getInt(offset) != t || (wanted != null && !wanted.get(oidId))) {
+                        continue;
+                    }
+                    rowOids.add(names.computeIfAbsent(oidId, oids::name));
+                    rowTimes.add(new Date(timestamp));
+                    rowValues.add(buffer.getLong(offset + 16));
+                }
+            }
+        }
+        Object[][] data = new Object[3][rowOids.size()];
+        for (int r = 0; r < rowOids.size(); r++) {
+            data[0][r] = rowOids.get(r);
+            data[1][r] = rowTimes.get(r);
+            data[2][r] = rowValues.get(r);
+        }
+        return new BasicDataset(List.of("oid", "t_stamp", "value"), List.of(String.class, Date.class, Long.class), data);
+    }
+
+    /** Flushes and releases the files; later appends are ignored and queries return {@code [J001]}. */
+    synchronized void close() {
+        closed = true;
+        if (active != null) {
+            if (seal(active) == active) {
+                logger.debug("Journal segment {} keeps its full size until the next start", active.path);
+            }
+            active = null;
+        }
+        if (targets != null) {
+            targets.close();
+            targets = null;
+        }
+        if (oids != null) {
+            oids.close();
+            oids = null;
+        }
+        segments = Collections.emptyList();
+        failed = false;
+    }
+
+    static Dataset error(String message) {
+        Object[][] data = new Object[1][1];
+        data[0][0] = message;
+        return new BasicDataset(List.of("error"), List.of(String.class), data);
+    }
+
+    private static boolean numeric(Variable v) {
+        switch (v.getSyntax()) {
+            case SMIConstants.SYNTAX_INTEGER:
+            case SMIConstants.SYNTAX_COUNTER32:
+            case SMIConstants.SYNTAX_GAUGE32:
+            case SMIConstants.SYNTAX_TIMETICKS:
+            case SMIConstants.SYNTAX_COUNTER64:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /** Loads the dictionaries and the existing segments; new records always go to a new segment. */
+    private void open() throws IOException {
+        if (targets != null) {
+            return;
+        }
+        Files.createDirectories(dir);
+        List<Segment> loaded = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : files) {
+                Segment segment = load(path);
+                if (segment != null) {
+                    loaded.add(segment);
+                }
+            }
+        }
+        loaded.sort((a, b) -> Long.compare(a.created, b.created));
+        for (Segment segment : loaded) {
+            lastTimestamp = Math.max(lastTimestamp, segment.last);
+        }
+        targets = new Dictionary(dir.resolve("targets.dict"));
+        oids = new Dictionary(dir.resolve("oids.dict"));
+        segments = Collections.unmodifiableList(loaded);
+    }
+
+    /** Maps a segment left by an earlier run; a file that was not sealed is first cut to its records. */
+    private Segment load(Path path) {
+        String name = path.getFileName().toString();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long created = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            if (channel.read(header, 0) < HEADER_BYTES || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                logger.warn("Ignoring {}: not a journal segment", path);
+                return null;
+            }
+            long size = channel.size();
+            int count = (int) Math.max(0, Math.min((size - HEADER_BYTES) / RECORD_BYTES, header.getInt(COUNT_OFFSET)));
+            long used = HEADER_BYTES + (long) count * RECORD_BYTES;
+            if (size > used) {
+                try {
+                    channel.truncate(used);
+                    size = used;
+                } catch (IOException e) {
+                    // Still mapped by this JVM on Windows (module restart); the next start cuts it.
+                    logger.debug("Could not cut journal segment {}; mapping its records only", path, e);
+                }
+            }
+            Segment segment = new Segment(path, created, channel.map(FileChannel.MapMode.READ_ONLY, 0, used));
+            segment.fileBytes = size;
+            segment.count = count;
+            segment.first = header.getLong(FIRST_OFFSET);
+            segment.last = header.getLong(LAST_OFFSET);
+            return segment;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Ignoring unreadable journal segment {}", path, e);
+            return null;
+        }
+    }
+
+    /** Closes the active segment, starts a new one and applies retention. */
+    private void roll(long now) throws IOException {
+        List<Segment> current = segments;
+        if (active != null) {
+            Segment sealed = seal(active);
+            if (sealed != active) {
+                List<Segment> replaced = new ArrayList<>(current);
+                replaced.set(replaced.indexOf(active), sealed);
+                current = replaced;
+            }
+        }
+        long created = current.isEmpty() ? now : Math.max(now, current.get(current.size() - 1).created + 1);
+        Path path = dir.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, created, SEGMENT_SUFFIX));
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        active = new Segment(path, created, buffer);
+        List<Segment> next = new ArrayList<>(current);
+        next.add(active);
+        segments = Collections.unmodifiableList(retain(next, now));
+    }
+
+    /**
+     * Cuts a segment that takes no more records to the records it holds and maps it read-only, so a segment closed
+     * early by the roll interval does not keep its full size. Returns the segment to use from now on.
+     */
+    private Segment seal(Segment segment) {
+        segment.buffer.force();
+        long used = segment.usedBytes();
+        try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.truncate(used);
+            Segment sealed = new Segment(segment.path, segment.created, channel.map(FileChannel.MapMode.READ_ONLY, 0, used));
+            sealed.count = segment.count;
+            sealed.first = segment.first;
+            sealed.last = segment.last;
+            return sealed;
+        } catch (IOException e) {
+            // Windows cannot truncate a file that is still mapped; the next start cuts it instead.
+            return segment;
+        }
+    }
+
+    /** Drops closed segments over the size or age limit; files that cannot be deleted yet are retried later. */
+    private List<Segment> retain(List<Segment> all, long now) {
+        long total = 0;
+        for (Segment segment : all) {
+            total += bytes(segment);
+        }
+        List<Segment> kept = new ArrayList<>(all);
+        while (kept.size() > 1) {
+            Segment oldest = kept.get(0);
+            boolean tooBig = total > maxBytes;
+            boolean tooOld = oldest.count == 0 || now - oldest.last > maxAgeMs;
+            if (!tooBig && !tooOld) {
+                break;
+            }
+            kept.remove(0);
+            total -= bytes(oldest);
+            pendingDeletes.add(oldest.path);
+        }
+        // A file that is still mapped cannot be deleted on Windows; it is retried on the next roll.
+        pendingDeletes.removeIf(path -> {
+            try {
+                Files.deleteIfExists(path);
+                return true;
+            } catch (IOException e) {
+                return false;
+            }
+        });
+        return kept;
+    }
+
+    /** Disk space of a segment; the active one counts only the records written so far. */
+    private long bytes(Segment segment) {
+        return segment == active ? segment.usedBytes() : segment.fileBytes;
+    }
+
+    /** Makes {@code count} records visible to queries; the header is updated first so a restart finds them. */
+    private void publish(int count, long now) {
+        if (count == active.count) {
+            return;
+        }
+        if (active.count == 0) {
+            active.first = now;
+            active.buffer.putLong(FIRST_OFFSET, now);
+        }
+        active.buffer.putLong(LAST_OFFSET, now);
+        active.buffer.putInt(COUNT_OFFSET, count);
+        active.last = now;
+        active.count = count;
+    }
+}
@@ -0,0 +1,32 @@
+package io.cursor.snmp.gateway;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+import io.cursor.snmp.common.SnmpStats;
+
+/**
+ * Publishes the module-wide {@link SnmpStats} totals as gauges in the gateway metrics registry. Per-target detail
+ * stays in {@code system.snmp.getStats()} so the registry does not grow with the number of agents.
+ */
+final class SnmpMetrics {
+    static final String PREFIX = "cursorSNMP.";
+
+    private SnmpMetrics() {
+    }
+
+    static void register(MetricRegistry registry) {
+        unregister(registry);
+        registry.register(PREFIX + "requests", (Gauge<Long>) SnmpStats::totalRequests);
+        registry.register(PREFIX + "timeouts", (Gauge<Long>) SnmpStats::totalTimeouts);
+        registry.register(PREFIX + "errors", (Gauge<Long>) SnmpStats::totalErrors);
+        registry.register(PREFIX + "retries", (Gauge<Long>) SnmpStats::totalRetries);
+        registry.register(PREFIX + "inFlight", (Gauge<Long>) SnmpStats::inFlight);
+        registry.register(PREFIX + "stripeWaitMs", (Gauge<Long>) SnmpStats::totalStripeWaitMs);
+        registry.register(PREFIX + "walkVarbinds", (Gauge<Long>) SnmpStats::totalWalkVarbinds);
+    }
+
+    static void unregister(MetricRegistry registry) {
+        registry.removeMatching(MetricFilter.startsWith(PREFIX));
+    }
+}
@@ -0,0 +1,353 @@
+package io.cursor.snmp.gateway;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import io.cursor.snmp.common.FunctionInterface;
+import io.cursor.snmp.common.SnmpResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snmp4j.smi.VariableBinding;
+
+/**
+ * Change-of-value subscriptions on top of the {@link PollEngine}.
+ * <p>
+ * Subscribers asking for the same target, OIDs, options, rate and deadband share one subscription, which runs as
+ * poll group {@code subscription:<id>} and so is polled once per cycle however many clients hold it. After each
+ * cycle the values that changed since they were last published are sent as a push notification
+ * ({@link FunctionInterface#SUBSCRIPTION_NOTIFICATION}) to each client session holding the subscription, once per
+ * session, and passed to gateway-scope subscribers. The session is the one that made the subscribe or renew call.
+ * With a positive deadband a numeric value counts as changed only when it moved more than the deadband away from the
+ * last published value.
+ * <p>
+ * Notifications are {@code String[]}: the subscription id, the status ({@code OK} or the {@code [Gxxx]} error),
+ * then pairs of value index and value string (as {@code get} returns it). Client subscriptions are leases that the
+ * client renews every 20 seconds; a client that stops renewing for {@value #LEASE_MS} ms is dropped, and a
+ * subscription without subscribers stops polling.
+ */
+final class Subscriptions {
+    static final long LEASE_MS = 60_000L;
+    static final String UNKNOWN_SUBSCRIPTION = "[S001] Error: unknown subscription";
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final PollEngine pollEngine;
+    private volatile BiConsumer<String, String[]> publisher = (session, payload) -> { };
+    private volatile Supplier<String> sessionLookup = () -> null;
+
+    /** Receives the changed values of a gateway-scope subscription. */
+    interface Listener {
+        void onChange(String[] values, String status);
+    }
+
+    private final class Subscription implements PollEngine.PollListener {
+        final String id = UUID.randomUUID().toString();
+        final String key;
+        final double deadband;
+        /** Client id to lease expiry. */
+        final Map<String, Long> clients = new ConcurrentHashMap<>();
+        /** Client id to the gateway session its notifications go to. */
+        final Map<String, String> sessions = new ConcurrentHashMap<>();
+        final Map<String, Listener> listeners = new ConcurrentHashMap<>();
+        String[] published;
+        double[] publishedNumbers;
+        String status;
+
+        Subscription(String key, int oidCount, double deadband) {
+            this.key = key;
+            this.deadband = deadband;
+            this.published = new String[oidCount];
+            this.publishedNumbers = new double[oidCount];
+            Arrays.fill(publishedNumbers, Double.NaN);
+        }
+
+        @Override
+        public void onResult(PollEngine.PollGroup group, SnmpResult result) {
+            String[] payload;
+            String[] values;
+            String currentStatus;
+            synchronized (this) {
+                currentStatus = result.isError() ? result.error : "OK";
+                List<String> changes = new ArrayList<>();
+                changes.add(id);
+                changes.add(currentStatus);
+                if (!result.isError()) {
+                    for (int i = 0; i < published.length && i < result.bindings.length; i++) {
+                        VariableBinding vb = result.bindings[i];
+                        String value = vb == null ? null : String.valueOf(vb.getVariable());
+                        if (changed(i, value)) {
+                            published[i] = value;
+                            publishedNumbers[i] = number(value);
+                            changes.add(String.valueOf(i));
+                            changes.add(value);
+                        }
+                    }
+                }
+                boolean statusChanged = !currentStatus.equals(status);
+                status = currentStatus;
+                if (changes.size() == 2 && !statusChanged) {
+                    payload = null;
+                } else {
+                    payload = changes.toArray(new String[0]);
+                }
+                values = published.clone();
+            }
+            expireLeases(this);
+            if (payload == null) {
+                return;
+            }
+            if (!sessions.isEmpty()) {
+                Set<String> sent = new HashSet<>();
+                for (String session : sessions.values()) {
+                    if (sent.add(session)) {
+                        publish(session, payload);
+                    }
+                }
+            }
+            for (Listener listener : listeners.values()) {
+                try {
+                    listener.onChange(values, currentStatus);
+                } catch (Exception e) {
+                    logger.warn("Subscription listener failed", e);
+                }
+            }
+        }
+
+        private boolean changed(int i, String value) {
+            if (Objects.equals(value, published[i])) {
+                return false;
+            }
+            if (deadband > 0 && value != null && published[i] != null) {
+                double number = number(value);
+                if (!Double.isNaN(number) && !Double.isNaN(publishedNumbers[i])) {
+                    return Math.abs(number - publishedNumbers[i]) > deadband;
+                }
+            }
+            return true;
+        }
+
+        /** Every value in notification form; the status is {@code null} until the first poll. */
+        synchronized String[] snapshot() {
+            String[] payload = new String[2 + published.length * 2];
+            payload[0] = id;
+            payload[1] = status;
+            for (int i = 0; i < published.length; i++) {
+                payload[2 + i * 2] = String.valueOf(i);
+                payload[3 + i * 2] = published[i];
+            }
+            return payload;
+        }
+
+        boolean idle() {
+            return clients.isEmpty() && listeners.isEmpty();
+        }
+    }
+
+    private final Map<String, Subscription> byKey = new ConcurrentHashMap<>();
+    private final Map<String, Subscription> byId = new ConcurrentHashMap<>();
+
+    Subscriptions(PollEngine pollEngine) {
+        this.pollEngine = pollEngine;
+    }
+
+    /** Sets how a notification is sent to one client session; until then they are dropped. */
+    void setPublisher(BiConsumer<String, String[]> publisher) {
+        this.publisher = publisher;
+    }
+
+    /**
+     * Sets how the session of the RPC call being served is found; a client whose session is unknown ({@code null})
+     * holds its lease but receives no notifications.
+     */
+    void setSessionLookup(Supplier<String> sessionLookup) {
+        this.sessionLookup = sessionLookup;
+    }
+
+    /**
+     * Adds or renews {@code clientId}'s lease on the shared subscription. Returns all current values in notification
+     * form, so the first element is the subscription id.
+     */
+    String[] subscribeClient(
+            String clientId,
+            String address,
+            int port,
+            String[] oids,
+            long rateMs,
+            double deadband,
+            String[] params) {
+        String session = sessionLookup.get();
+        Subscription subscription = join(address, port, oids, rateMs, deadband, params, s -> {
+            s.clients.put(clientId, System.currentTimeMillis() + LEASE_MS);
+            track(s, clientId, session);
+        });
+        return subscription.snapshot();
+    }
+
+    /** Adds a gateway-scope listener; the returned handle is passed to {@link #unsubscribeListener}. */
+    String subscribeListener(
+            String address,
+            int port,
+            String[] oids,
+            long rateMs,
+            double deadband,
+            String[] params,
+            Listener listener) {
+        String handle = UUID.randomUUID().toString();
+        Subscription subscription = join(address, port, oids, rateMs, deadband, params,
+                s -> s.listeners.put(handle, listener));
+        return subscription.id + "/" + handle;
+    }
+
+    /**
+     * Last published values of a gateway-scope subscription ({@code null} before the first poll), its error as the
+     * only element, or {@code null} for an unknown handle.
+     */
+    String[] read(String handle) {
+        int slash = handle == null ? -1 : handle.indexOf('/');
+        Subscription subscription = slash < 0 ? null : byId.get(handle.substring(0, slash));
+        if (subscription == null || !subscription.listeners.containsKey(handle.substring(slash + 1))) {
+            return null;
+        }
+        synchronized (subscription) {
+            if (subscription.status != null && !"OK".equals(subscription.status)) {
+                return new String[] { subscription.status };
+            }
+            return subscription.published.clone();
+        }
+    }
+
+    boolean unsubscribeListener(String handle) {
+        int slash = handle == null ? -1 : handle.indexOf('/');
+        if (slash < 0) {
+            return false;
+        }
+        Subscription subscription = byId.get(handle.substring(0, slash));
+        if (subscription == null || subscription.listeners.remove(handle.substring(slash + 1)) == null) {
+            return false;
+        }
+        removeIfIdle(subscription);
+        return true;
+    }
+
+    boolean unsubscribeClient(String clientId, String subscriptionId) {
+        Subscription subscription = subscriptionId == null ? null : byId.get(subscriptionId);
+        if (subscription == null || subscription.clients.remove(clientId) == null) {
+            return false;
+        }
+        subscription.sessions.remove(clientId);
+        removeIfIdle(subscription);
+        return true;
+    }
+
+    /**
+     * Extends {@code clientId}'s leases and moves their notifications to the calling session (the client may have
+     * reconnected); returns the ids it does not hold (the client subscribes those again).
+     */
+    String[] renew(String clientId, String[] subscriptionIds) {
+        long expiry = System.currentTimeMillis() + LEASE_MS;
+        String session = sessionLookup.get();
+        List<String> unknown = new ArrayList<>();
+        for (String subscriptionId : subscriptionIds) {
+            Subscription subscription = subscriptionId == null ? null : byId.get(subscriptionId);
+            if (subscription == null || subscription.clients.replace(clientId, expiry) == null) {
+                unknown.add(subscriptionId);
+            } else {
+                track(subscription, clientId, session);
+            }
+        }
+        return unknown.toArray(new String[0]);
+    }
+
+    private static void track(Subscription subscription, String clientId, String session) {
+        if (session != null) {
+            subscription.sessions.put(clientId, session);
+        }
+    }
+
+    synchronized void clear() {
+        for (Subscription subscription : byId.values()) {
+            pollEngine.removeGroup(groupName(subscription));
+        }
+        byId.clear();
+        byKey.clear();
+    }
+
+    private synchronized Subscription join(
+            String address,
+            int port,
+            String[] oids,
+            long rateMs,
+            double deadband,
+            String[] params,
+            Consumer<Subscription> addSubscriber) {
+        String key = address + "/" + port + "@" + rateMs + "~" + deadband + "|" + String.join("\0", oids)
+                + "|" + (params == null ? "" : String.join("\0", params));
+        Subscription subscription = byKey.get(key);
+        if (subscription == null) {
+            subscription = new Subscription(key, oids.length, deadband);
+            pollEngine.addGroup(groupName(subscription), address, port, oids, rateMs, params, subscription);
+            byKey.put(key, subscription);
+            byId.put(subscription.id, subscription);
+        }
+        addSubscriber.accept(subscription);
+        return subscription;
+    }
+
+    private void expireLeases(Subscription subscription) {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<String, Long>> it = subscription.clients.entrySet().iterator();
+        boolean expired = false;
+        while (it.hasNext()) {
+            Map.Entry<String, Long> lease = it.next();
+            if (lease.getValue() < now) {
+                it.remove();
+                subscription.sessions.remove(lease.getKey());
+                expired = true;
+            }
+        }
+        if (expired) {
+            removeIfIdle(subscription);
+        }
+    }
+
+    private synchronized void removeIfIdle(Subscription subscription) {
+        if (subscription.idle() && byId.remove(subscription.id) != null) {
+            byKey.remove(subscription.key);
+            pollEngine.removeGroup(groupName(subscription));
+        }
+    }
+
+    private void publish(String session, String[] payload) {
+        try {
+            publisher.accept(session, payload);
+        } catch (Exception e) {
+            logger.warn("Could not push subscription values to session {}", session, e);
+        }
+    }
+
+    private static String groupName(Subscription subscription) {
+        return "subscription:" + subscription.id;
+    }
+
+    private static double number(String value) {
+        if (value == null || value.isEmpty()) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package io.cursor.snmp.gateway;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.inductiveautomation.ignition.common.tags.model.TagPath;
+import com.inductiveautomation.ignition.common.tags.paths.parser.TagPathParser;
+import com.inductiveautomation.ignition.gateway.model.GatewayContext;
+import org.python.core.Py;
+import org.python.core.PyObject;
+
+/**
+ * Trap receiver publishers: a script callback per batch and/or a tag holding the latest trap.
+ */
+final class TrapListeners {
+
+    private TrapListeners() {
+    }
+
+    /** Calls {@code callback(traps)} with the batch as a Dataset (see {@link TrapReceiver#toDataset}). */
+    static TrapReceiver.TrapListener script(PyObject callback) {
+        return traps -> callback.__call__(Py.java2py(TrapReceiver.toDataset(traps)));
+    }
+
+    /** Writes the last trap of each batch to {@code tagPath} as {@code source trapOid} followed by its varbinds. */
+    static TrapReceiver.TrapListener tag(GatewayContext context, String tagPath) throws IOException {
+        List<TagPath> paths = List.of(TagPathParser.parse(tagPath));
+        return traps -> {
+            TrapReceiver.Trap last = traps.get(traps.size() - 1);
+            String value = last.getSource() + " " + last.getTrapOid() + "\n" + last.getVarbinds();
+            context.getTagManager().writeAsync(paths, List.of(value));
+        };
+    }
+
+    static TrapReceiver.TrapListener both(TrapReceiver.TrapListener first, TrapReceiver.TrapListener second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        return traps -> {
+            try {
+                first.onTraps(traps);
+            } finally {
+                second.onTraps(traps);
+            }
+        };
+    }
+}
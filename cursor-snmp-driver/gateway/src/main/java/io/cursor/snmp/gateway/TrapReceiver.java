@@ -0,0 +1,516 @@
+package io.cursor.snmp.gateway;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.inductiveautomation.ignition.common.BasicDataset;
+import com.inductiveautomation.ignition.common.Dataset;
+import io.cursor.snmp.common.CursorSNMPDriverModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snmp4j.CommandResponder;
+import org.snmp4j.CommandResponderEvent;
+import org.snmp4j.MessageDispatcherImpl;
+import org.snmp4j.MessageException;
+import org.snmp4j.PDU;
+import org.snmp4j.PDUv1;
+import org.snmp4j.Snmp;
+import org.snmp4j.mp.MPv1;
+import org.snmp4j.mp.MPv2c;
+import org.snmp4j.mp.MPv3;
+import org.snmp4j.mp.MessageProcessingModel;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.mp.StatusInformation;
+import org.snmp4j.security.SecurityModel;
+import org.snmp4j.security.SecurityProtocols;
+import org.snmp4j.security.USM;
+import org.snmp4j.smi.Address;
+import org.snmp4j.smi.IpAddress;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.UdpAddress;
+import org.snmp4j.smi.VariableBinding;
+import org.snmp4j.transport.DefaultUdpTransportMapping;
+import org.snmp4j.util.MultiThreadedMessageDispatcher;
+import org.snmp4j.util.ThreadPool;
+
+/**
+ * Trap and inform receiver.
+ * <p>
+ * Messages are decoded in parallel by a {@link MultiThreadedMessageDispatcher}. The responder thread does
+ * constant-time work only: it acknowledges informs, applies the per-source rate limit and offers the raw PDU to a
+ * bounded array ring. When the ring is full the trap is dropped and counted, so a storm can never block the
+ * receive path. One drain thread takes up to {@code batchSize} PDUs at a time (or whatever arrived within
+ * {@code batchMs}), extracts the trap OID, suppresses duplicates per source, trap OID and varbind values within
+ * {@code dedupMs}, and hands each batch to the registered handlers. v3 traps and informs are authenticated against
+ * users added with {@link #addUser}, built through the same helpers as outbound v3 calls.
+ */
+public class TrapReceiver {
+    static final int DEFAULT_PORT = 162;
+    static final int DEFAULT_RECEIVE_BUFFER = 4 * 1024 * 1024;
+    static final int DEFAULT_THREADS = 4;
+    static final int DEFAULT_QUEUE = 65536;
+    static final int DEFAULT_BATCH_SIZE = 500;
+    static final int DEFAULT_BATCH_MS = 250;
+    static final int DEFAULT_RATE_LIMIT = 1000;
+    static final int DEFAULT_DEDUP_MS = 2000;
+    /** Property holding the port to open on gateway startup; unset leaves the receiver stopped. */
+    static final String PORT_PROPERTY = "cursor.snmp.trapPort";
+
+    private static final OID SYS_UP_TIME = SnmpConstants.sysUpTime;
+    private static final OID SNMP_TRAP_OID = SnmpConstants.snmpTrapOID;
+    private static final OID SNMP_TRAPS = new OID("1.3.6.1.6.3.1.1.5");
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    /** Receives batches of traps on the drain thread. */
+    public interface TrapListener {
+        void onTraps(List<Trap> traps);
+    }
+
+    /** One received trap or inform. */
+    public static final class Trap {
+        final long received;
+        final String source;
+        final String version;
+        final String type;
+        final String securityName;
+        final OID trapOid;
+        final VariableBinding[] bindings;
+
+        Trap(long received, String source, String version, String type, String securityName, OID trapOid,
+                VariableBinding[] bindings) {
+            this.received = received;
+            this.source = source;
+            this.version = version;
+            this.type = type;
+            this.securityName = securityName;
+            this.trapOid = trapOid;
+            this.bindings = bindings;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        public String getTrapOid() {
+            return trapOid == null ? null : trapOid.toDottedString();
+        }
+
+        /** Varbinds as {@code oid = value} lines. */
+        public String getVarbinds() {
+            StringBuilder sb = new StringBuilder();
+            for (VariableBinding vb : bindings) {
+                if (sb.length() > 0) {
+                    sb.append('\n');
+                }
+                sb.append(vb);
+            }
+            return sb.toString();
+        }
+    }
+
+    private static final class Handler {
+        final String name;
+        final OID prefix;
+        final TrapListener listener;
+
+        Handler(String name, OID prefix, TrapListener listener) {
+            this.name = name;
+            this.prefix = prefix;
+            this.listener = listener;
+        }
+    }
+
+    private static final class Raw {
+        final long received;
+        final Address peer;
+        final int version;
+        final String securityName;
+        final PDU pdu;
+
+        Raw(long received, Address peer, int version, String securityName, PDU pdu) {
+            this.received = received;
+            this.peer = peer;
+            this.version = version;
+            this.securityName = securityName;
+            this.pdu = pdu;
+        }
+    }
+
+    /** Fixed one-second window counter per source address. */
+    private static final class SourceWindow {
+        long windowStart;
+        int count;
+
+        synchronized boolean allow(long now, int limit) {
+            if (now - windowStart >= 1000L) {
+                windowStart = now;
+                count = 0;
+            }
+            return ++count <= limit;
+        }
+    }
+
+    private final Map<String, Handler> handlers = new ConcurrentHashMap<>();
+    private final Map<Address, SourceWindow> sources = new ConcurrentHashMap<>();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+
+    private Snmp snmp;
+    private USM usm;
+    private ThreadPool threadPool;
+    private Thread drainThread;
+    private volatile ArrayBlockingQueue<Raw> ring;
+    private volatile boolean running;
+    private String listenAddress;
+    private int batchSize;
+    private int batchMs;
+    private int rateLimit;
+    private int dedupMs;
+    private String community;
+
+    /**
+     * Opens the receiver on {@code port}, replacing a running one. Options in {@code params}: {@code bind},
+     * {@code rcvBuf}, {@code threads}, {@code queue}, {@code batchSize}, {@code batchMs}, {@code rateLimit}
+     * (traps/s per source, 0 = off), {@code dedupMs} (0 = off) and {@code community} (accept only that v1/v2c
+     * community).
+     */
+    public synchronized void start(int port, String[] params) throws IOException {
+        stop();
+        String bind = CursorSNMPDriverModule.findParam(params, "bind");
+        int rcvBuf = CursorSNMPDriverModule.intParam(params, "rcvBuf", DEFAULT_RECEIVE_BUFFER);
+        int threads = Math.max(1, CursorSNMPDriverModule.intParam(params, "threads", DEFAULT_THREADS));
+        int queue = Math.max(1, CursorSNMPDriverModule.intParam(params, "queue", DEFAULT_QUEUE));
+        batchSize = Math.max(1, CursorSNMPDriverModule.intParam(params, "batchSize", DEFAULT_BATCH_SIZE));
+        batchMs = Math.max(1, CursorSNMPDriverModule.intParam(params, "batchMs", DEFAULT_BATCH_MS));
+        rateLimit = Math.max(0, CursorSNMPDriverModule.intParam(params, "rateLimit", DEFAULT_RATE_LIMIT));
+        dedupMs = Math.max(0, CursorSNMPDriverModule.intParam(params, "dedupMs", DEFAULT_DEDUP_MS));
+        community = CursorSNMPDriverModule.findParam(params, "community");
+
+        UdpAddress address = new UdpAddress((bind == null || bind.isEmpty() ? "0.0.0.0" : bind) + "/" + (port > 0 ? port : DEFAULT_PORT));
+        DefaultUdpTransportMapping transport = new DefaultUdpTransportMapping(address, true);
+        if (rcvBuf > 0) {
+            transport.setReceiveBufferSize(rcvBuf);
+        }
+
+        threadPool = ThreadPool.create("cursorSNMP-trap", threads);
+        MultiThreadedMessageDispatcher dispatcher =
+                new MultiThreadedMessageDispatcher(threadPool, new MessageDispatcherImpl());
+        if (usm == null) {
+            SecurityProtocols.getInstance().addDefaultProtocols();
+            usm = new USM(SecurityProtocols.getInstance(), new OctetString(MPv3.createLocalEngineID()), 0);
+        }
+        dispatcher.addMessageProcessingModel(new MPv1());
+        dispatcher.addMessageProcessingModel(new MPv2c());
+        dispatcher.addMessageProcessingModel(new MPv3(usm));
+
+        ring = new ArrayBlockingQueue<>(queue);
+        snmp = new Snmp(dispatcher, transport);
+        snmp.addCommandResponder(new Responder());
+        try {
+            snmp.listen();
+        } catch (IOException e) {
+            closeSession();
+            throw e;
+        }
+        listenAddress = address.toString();
+        running = true;
+        drainThread = new Thread(this::drain, "cursorSNMP-trap-drain");
+        drainThread.setDaemon(true);
+        drainThread.start();
+        logger.info("Trap receiver listening on {}", listenAddress);
+    }
+
+    public synchronized void stop() {
+        if (!running && snmp == null) {
+            return;
+        }
+        running = false;
+        if (drainThread != null) {
+            drainThread.interrupt();
+            drainThread = null;
+        }
+        closeSession();
+        sources.clear();
+        logger.info("Trap receiver stopped");
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Adds a v3 user for incoming traps and informs. Without {@code engineId=<hex>} in {@code params} the user is
+     * accepted from any sender engine and its keys are localized per engine on first use.
+     */
+    public synchronized void addUser(String user, int authLevel, String pass, int authProt, int privProt, String[] params) {
+        if (usm == null) {
+            SecurityProtocols.getInstance().addDefaultProtocols();
+            usm = new USM(SecurityProtocols.getInstance(), new OctetString(MPv3.createLocalEngineID()), 0);
+        }
+        String engineId = CursorSNMPDriverModule.findParam(params, "engineId");
+        if (engineId == null || engineId.isEmpty()) {
+            usm.addUser(CursorSNMPDriverModule.snmpUsmUser(user, authLevel, pass, authProt, privProt, params));
+        } else {
+            usm.addUser(new OctetString(user), OctetString.fromHexString(engineId),
+                    CursorSNMPDriverModule.snmpUsmUser(user, authLevel, pass, authProt, privProt, params));
+        }
+    }
+
+    /** Registers or replaces handler {@code name}; a {@code null} or empty prefix matches every trap OID. */
+    public void addHandler(String name, String trapOidPrefix, TrapListener listener) {
+        OID prefix = trapOidPrefix == null || trapOidPrefix.isEmpty() ? null : new OID(trapOidPrefix);
+        handlers.put(name, new Handler(name, prefix, listener));
+    }
+
+    public boolean removeHandler(String name) {
+        return handlers.remove(name) != null;
+    }
+
+    /** One row: running, address, counters, ring depth and handler count. */
+    public Dataset getStatus() {
+        ArrayBlockingQueue<Raw> q = ring;
+        Object[][] data = new Object[10][1];
+        data[0][0] = running;
+        data[1][0] = running ? listenAddress : null;
+        data[2][0] = received.get();
+        data[3][0] = delivered.get();
+        data[4][0] = duplicates.get();
+        data[5][0] = rateLimited.get();
+        data[6][0] = dropped.get();
+        data[7][0] = rejected.get();
+        data[8][0] = q == null ? 0 : q.size();
+        data[9][0] = handlers.size();
+        return new BasicDataset(
+                Arrays.asList("running", "address", "received", "delivered", "duplicates", "rateLimited",
+                        "dropped", "rejected", "queued", "handlers"),
+                Arrays.asList(Boolean.class, String.class, Long.class, Long.class, Long.class, Long.class,
+                        Long.class, Long.class, Integer.class, Integer.class),
+                data);
+    }
+
+    /** Batch as a Dataset: received, source, version, type, securityName, trapOid and varbinds. */
+    static Dataset toDataset(List<Trap> traps) {
+        Object[][] data = new Object[7][traps.size()];
+        for (int i = 0; i < traps.size(); i++) {
+            Trap t = traps.get(i);
+            data[0][i] = new Date(t.received);
+            data[1][i] = t.source;
+            data[2][i] = t.version;
+            data[3][i] = t.type;
+            data[4][i] = t.securityName;
+            data[5][i] = t.getTrapOid();
+            data[6][i] = t.getVarbinds();
+        }
+        return new BasicDataset(
+                Arrays.asList("received", "source", "version", "type", "securityName", "trapOid", "varbinds"),
+                Arrays.asList(Date.class, String.class, String.class, String.class, String.class, String.class,
+                        String.class),
+                data);
+    }
+
+    private final class Responder implements CommandResponder {
+        @Override
+        public <A extends Address> void processPdu(CommandResponderEvent<A> event) {
+            PDU pdu = event.getPDU();
+            if (pdu == null) {
+                return;
+            }
+            int type = pdu.getType();
+            if (type != PDU.TRAP && type != PDU.V1TRAP && type != PDU.INFORM) {
+                return;
+            }
+            event.setProcessed(true);
+            received.incrementAndGet();
+            if (type == PDU.INFORM) {
+                acknowledge(event);
+            }
+            String securityName = event.getSecurityName() == null ? null : new String(event.getSecurityName());
+            if (community != null && event.getSecurityModel() != SecurityModel.SECURITY_MODEL_USM
+                    && !community.equals(securityName)) {
+                rejected.incrementAndGet();
+                return;
+            }
+            long now = System.currentTimeMillis();
+            Address peer = event.getPeerAddress();
+            if (rateLimit > 0 && !sources.computeIfAbsent(peer, a -> new SourceWindow()).allow(now, rateLimit)) {
+                rateLimited.incrementAndGet();
+                return;
+            }
+            ArrayBlockingQueue<Raw> q = ring;
+            if (q == null || !q.offer(new Raw(now, peer, event.getMessageProcessingModel(), securityName, pdu))) {
+                dropped.incrementAndGet();
+            }
+        }
+    }
+
+    /** Informs are answered before rate limiting so senders do not retransmit into a storm. */
+    private <A extends Address> void acknowledge(CommandResponderEvent<A> event) {
+        PDU response = (PDU) event.getPDU().clone();
+        response.setType(PDU.RESPONSE);
+        response.setErrorStatus(PDU.noError);
+        response.setErrorIndex(0);
+        try {
+            event.getMessageDispatcher().returnResponsePdu(
+                    event.getMessageProcessingModel(),
+                    event.getSecurityModel(),
+                    event.getSecurityName(),
+                    event.getSecurityLevel(),
+                    response,
+                    event.getMaxSizeResponsePDU(),
+                    event.getStateReference(),
+                    new StatusInformation());
+        } catch (MessageException e) {
+            logger.debug("Inform acknowledgement to {} failed", event.getPeerAddress(), e);
+        }
+    }
+
+    private void drain() {
+        List<Raw> raw = new ArrayList<>(batchSize);
+        Map<String, Long> seen = new HashMap<>();
+        ArrayBlockingQueue<Raw> q = ring;
+        while (running) {
+            try {
+                Raw first = q.poll(batchMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                raw.add(first);
+                q.drainTo(raw, batchSize - 1);
+                List<Trap> batch = new ArrayList<>(raw.size());
+                for (Raw r : raw) {
+                    Trap trap = parse(r);
+                    if (dedupMs > 0 && isDuplicate(seen, trap)) {
+                        duplicates.incrementAndGet();
+                    } else {
+                        batch.add(trap);
+                    }
+                }
+                raw.clear();
+                if (seen.size() > 10000) {
+                    long cutoff = System.currentTimeMillis() - dedupMs;
+                    seen.values().removeIf(t -> t < cutoff);
+                }
+                publish(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.warn("Trap batch processing failed", e);
+                raw.clear();
+            }
+        }
+    }
+
+    private boolean isDuplicate(Map<String, Long> seen, Trap trap) {
+        StringBuilder key = new StringBuilder(trap.source).append('|').append(trap.trapOid);
+        for (VariableBinding vb : trap.bindings) {
+            if (!SYS_UP_TIME.equals(vb.getOid())) {
+                key.append('|').append(vb);
+            }
+        }
+        Long last = seen.put(key.toString(), trap.received);
+        return last != null && trap.received - last < dedupMs;
+    }
+
+    private void publish(List<Trap> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        for (Handler handler : handlers.values()) {
+            List<Trap> matching = batch;
+            if (handler.prefix != null) {
+                matching = new ArrayList<>();
+                for (Trap trap : batch) {
+                    if (trap.trapOid != null && trap.trapOid.startsWith(handler.prefix)) {
+                        matching.add(trap);
+                    }
+                }
+            }
+            if (matching.isEmpty()) {
+                continue;
+            }
+            try {
+                handler.listener.onTraps(matching);
+            } catch (Exception e) {
+                logger.warn("Trap handler '{}' failed", handler.name, e);
+            }
+        }
+        delivered.addAndGet(batch.size());
+    }
+
+    private static Trap parse(Raw r) {
+        PDU pdu = r.pdu;
+        String version;
+        switch (r.version) {
+            case MessageProcessingModel.MPv1:
+                version = "1";
+                break;
+            case MessageProcessingModel.MPv2c:
+                version = "2c";
+                break;
+            default:
+                version = "3";
+        }
+        String source = r.peer instanceof IpAddress
+                ? ((IpAddress) r.peer).getInetAddress().getHostAddress()
+                : String.valueOf(r.peer);
+        List<VariableBinding> bindings = new ArrayList<>(pdu.getVariableBindings());
+        OID trapOid = null;
+        String type;
+        if (pdu instanceof PDUv1) {
+            PDUv1 v1 = (PDUv1) pdu;
+            type = "V1TRAP";
+            if (v1.getGenericTrap() == PDUv1.ENTERPRISE_SPECIFIC) {
+                trapOid = new OID(v1.getEnterprise().getValue(), 0).append(v1.getSpecificTrap());
+            } else {
+                trapOid = new OID(SNMP_TRAPS.getValue(), v1.getGenericTrap() + 1);
+            }
+            if (v1.getAgentAddress() != null && !v1.getAgentAddress().isAnyAddress()) {
+                source = v1.getAgentAddress().toString();
+            }
+        } else {
+            type = pdu.getType() == PDU.INFORM ? "INFORM" : "TRAP";
+            for (Iterator<VariableBinding> it = bindings.iterator(); it.hasNext(); ) {
+                VariableBinding vb = it.next();
+                if (SNMP_TRAP_OID.equals(vb.getOid()) && vb.getVariable() instanceof OID) {
+                    trapOid = (OID) vb.getVariable();
+                    it.remove();
+                    break;
+                }
+            }
+        }
+        return new Trap(r.received, source, version, type, r.securityName, trapOid,
+                bindings.toArray(new VariableBinding[0]));
+    }
+
+    private void closeSession() {
+        if (snmp != null) {
+            try {
+                snmp.close();
+            } catch (IOException ignored) {
+            }
+            snmp = null;
+        }
+        if (threadPool != null) {
+            threadPool.stop();
+            threadPool = null;
+        }
+        ring = null;
+    }
+}
@@ -0,0 +1,249 @@
+package io.cursor.snmp.gateway;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+import com.inductiveautomation.ignition.common.Dataset;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.snmp4j.smi.Counter32;
+import org.snmp4j.smi.Gauge32;
+import org.snmp4j.smi.Null;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.Variable;
+import org.snmp4j.smi.VariableBinding;
+
+class SampleJournalTest {
+    private static final String AGENT = "10.0.0.1:161";
+    private static final String IN_OCTETS = "1.3.6.1.2.1.2.2.1.10.1";
+    private static final String OUT_OCTETS = "1.3.6.1.2.1.2.2.1.16.1";
+    private static final long T0 = 1_700_000_000_000L;
+    private static final long HOUR = 3_600_000L;
+    private static final int HEADER = 32;
+    private static final int RECORD = SampleJournal.RECORD_BYTES;
+
+    private Path dir;
+    private final List<SampleJournal> journals = new ArrayList<>();
+
+    @BeforeEach
+    void createDir() throws IOException {
+        dir = Files.createTempDirectory("journal");
+    }
+
+    @AfterEach
+    void deleteDir() throws IOException {
+        for (SampleJournal journal : journals) {
+            journal.close();
+        }
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private SampleJournal journal(long segmentRecords, long rollMs, long maxBytes, long maxAgeMs) {
+        SampleJournal journal = new SampleJournal(dir, HEADER + segmentRecords * RECORD, rollMs, maxBytes, maxAgeMs);
+        journals.add(journal);
+        return journal;
+    }
+
+    private SampleJournal journal() {
+        return journal(1000, HOUR, Long.MAX_VALUE, 24 * HOUR);
+    }
+
+    private static VariableBinding[] values(Variable... variables) {
+        VariableBinding[] bindings = new VariableBinding[variables.length];
+        for (int i = 0; i < variables.length; i++) {
+            bindings[i] = new VariableBinding(new OID(i == 0 ? IN_OCTETS : OUT_OCTETS), variables[i]);
+        }
+        return bindings;
+    }
+
+    private static void append(SampleJournal journal, long now, long value) {
+        journal.append(AGENT, new String[] { IN_OCTETS }, values(new Counter32(value)), now);
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "segment-*.snj")) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+        return files;
+    }
+
+    private static long time(Dataset rows, int row) {
+        return ((Date) rows.getValueAt(row, 1)).getTime();
+    }
+
+    private static long value(Dataset rows, int row) {
+        return (Long) rows.getValueAt(row, 2);
+    }
+
+    @Test
+    void sealedSegmentHoldsHeaderAndFixedSizeRecords() throws IOException {
+        SampleJournal journal = journal();
+        journal.append(AGENT, new String[] { IN_OCTETS, OUT_OCTETS, "1.3.6.1.2.1.1.5.0" },
+                values(new Counter32(5), new Gauge32(7), Null.noSuchInstance), T0);
+        journal.close();
+
+        List<Path> files = segmentFiles();
+        assertEquals(1, files.size());
+        assertEquals(String.format("segment-%016d.snj", T0), files.get(0).getFileName().toString());
+        ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(files.get(0)));
+        assertEquals(HEADER + 2 * RECORD, file.capacity());
+        assertEquals(0x534E4A31, file.getInt(0));
+        assertEquals(1, file.getInt(4));
+        assertEquals(2, file.getInt(8));
+        assertEquals(T0, file.getLong(16));
+        assertEquals(T0, file.getLong(24));
+        assertEquals(0, file.getInt(HEADER));
+        assertEquals(0, file.getInt(HEADER + 4));
+        assertEquals(T0, file.getLong(HEADER + 8));
+        assertEquals(5L, file.getLong(HEADER + 16));
+        assertEquals(0, file.getInt(HEADER + RECORD));
+        assertEquals(1, file.getInt(HEADER + RECORD + 4));
+        assertEquals(7L, file.getLong(HEADER + RECORD + 16));
+        assertEquals(List.of(AGENT), Files.readAllLines(dir.resolve("targets.dict"), StandardCharsets.UTF_8));
+        assertEquals(List.of(IN_OCTETS, OUT_OCTETS), Files.readAllLines(dir.resolve("oids.dict"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void fullSegmentRollsMidCycle() throws IOException {
+        SampleJournal journal = journal(2, HOUR, Long.MAX_VALUE, 24 * HOUR);
+        journal.append(AGENT, new String[] { IN_OCTETS, OUT_OCTETS }, values(new Counter32(1), new Counter32(2)), T0);
+        journal.append(AGENT, new String[] { IN_OCTETS, OUT_OCTETS }, values(new Counter32(3), new Counter32(4)), T0 + 1);
+
+        assertEquals(2, segmentFiles().size());
+        Dataset rows = journal.query(AGENT, null, 0, Long.MAX_VALUE, 0);
+        assertEquals(4, rows.getRowCount());
+        for (int r = 0; r < 4; r++) {
+            assertEquals(r + 1L, value(rows, r));
+        }
+        assertEquals(OUT_OCTETS, rows.getValueAt(3, 0));
+    }
+
+    @Test
+    void rollIntervalStartsNewSegment() throws IOException {
+        SampleJournal journal = journal(1000, 1000, Long.MAX_VALUE, 24 * HOUR);
+        append(journal, T0, 1);
+        append(journal, T0 + 999, 2);
+        assertEquals(1, segmentFiles().size());
+
+        append(journal, T0 + 1000, 3);
+        List<Path> files = segmentFiles();
+        assertEquals(2, files.size());
+        assertEquals(HEADER + 2 * RECORD, Files.size(files.get(0)));
+        assertEquals(3, journal.query(AGENT, null, 0, Long.MAX_VALUE, 0).getRowCount());
+    }
+
+    @Test
+    void retentionDropsSegmentsOlderThanMaxAge() throws IOException {
+        SampleJournal journal = journal(1000, 100, Long.MAX_VALUE, 1000);
+        append(journal, T0, 1);
+        append(journal, T0 + 200, 2);
+        append(journal, T0 + 1100, 3);
+
+        assertEquals(2, segmentFiles().size());
+        Dataset rows = journal.query(AGENT, null, 0, Long.MAX_VALUE, 0);
+        assertEquals(2, rows.getRowCount());
+        assertEquals(T0 + 200, time(rows, 0));
+        assertEquals(T0 + 1100, time(rows, 1));
+    }
+
+    @Test
+    void retentionDropsOldestSegmentsOverMaxBytes() throws IOException {
+        // Two sealed one-record segments and the new active header exceed 120 bytes.
+        SampleJournal journal = journal(1000, 1, 120, 24 * HOUR);
+        append(journal, T0, 1);
+        append(journal, T0 + 1, 2);
+        append(journal, T0 + 2, 3);
+
+        assertEquals(2, segmentFiles().size());
+        Dataset rows = journal.query(AGENT, null, 0, Long.MAX_VALUE, 0);
+        assertEquals(2, rows.getRowCount());
+        assertEquals(2L, value(rows, 0));
+        assertEquals(3L, value(rows, 1));
+    }
+
+    @Test
+    void queryBoundsAreInclusiveAndLimited() {
+        SampleJournal journal = journal(2, HOUR, Long.MAX_VALUE, 24 * HOUR);
+        append(journal, T0, 1);
+        append(journal, T0 + 10, 2);
+        append(journal, T0 + 20, 3);
+        append(journal, T0 + 30, 4);
+
+        Dataset rows = journal.query(AGENT, null, T0 + 10, T0 + 20, 0);
+        assertEquals(2, rows.getRowCount());
+        assertEquals(T0 + 10, time(rows, 0));
+        assertEquals(T0 + 20, time(rows, 1));
+        assertEquals(0, journal.query(AGENT, null, T0 + 11, T0 + 19, 0).getRowCount());
+        assertEquals(0, journal.query(AGENT, null, T0 + 31, Long.MAX_VALUE, 0).getRowCount());
+
+        Dataset limited = journal.query(AGENT, null, T0 + 10, Long.MAX_VALUE, 2);
+        assertEquals(2, limited.getRowCount());
+        assertEquals(2L, value(limited, 0));
+        assertEquals(3L, value(limited, 1));
+    }
+
+    @Test
+    void queryFiltersByTargetAndOid() {
+        SampleJournal journal = journal();
+        journal.append(AGENT, new String[] { IN_OCTETS, OUT_OCTETS }, values(new Counter32(1), new Counter32(2)), T0);
+        journal.append("10.0.0.2:161", new String[] { IN_OCTETS }, values(new Counter32(3)), T0);
+
+        Dataset rows = journal.query(AGENT, new String[] { OUT_OCTETS }, 0, Long.MAX_VALUE, 0);
+        assertEquals(1, rows.getRowCount());
+        assertEquals(2L, value(rows, 0));
+        assertEquals(0, journal.query(AGENT, new String[] { "1.3.6.1.2.1.1.3.0" }, 0, Long.MAX_VALUE, 0).getRowCount());
+        assertEquals(0, journal.query("10.0.0.3:161", null, 0, Long.MAX_VALUE, 0).getRowCount());
+        assertEquals(1, journal.query("10.0.0.2:161", null, 0, Long.MAX_VALUE, 0).getRowCount());
+    }
+
+    @Test
+    void backwardsClockKeepsNewestTimestamp() {
+        SampleJournal journal = journal();
+        append(journal, T0 + 100, 1);
+        append(journal, T0, 2);
+
+        Dataset rows = journal.query(AGENT, null, 0, Long.MAX_VALUE, 0);
+        assertEquals(2, rows.getRowCount());
+        assertEquals(T0 + 100, time(rows, 1));
+    }
+
+    @Test
+    void restartLoadsUnsealedSegments() throws IOException {
+        append(journal(), T0, 1);
+
+        Dataset rows = journal().query(AGENT, null, 0, Long.MAX_VALUE, 0);
+        assertEquals(1, rows.getRowCount());
+        assertEquals(1L, value(rows, 0));
+        assertEquals(HEADER + RECORD, Files.size(segmentFiles().get(0)));
+    }
+
+    @Test
+    void closedJournalIgnoresAppendsAndQueries() throws IOException {
+        SampleJournal journal = journal();
+        journal.close();
+        append(journal, T0, 1);
+
+        assertEquals(0, segmentFiles().size());
+        Dataset rows = journal.query(AGENT, null, 0, Long.MAX_VALUE, 0);
+        assertEquals(1, rows.getRowCount());
+        assertEquals(SampleJournal.UNAVAILABLE, rows.getValueAt(0, 0));
+    }
+}